@@ -41,7 +41,17 @@ public final class FileSystem extends AbstractDataBus {
 
 
     public FileSystem() {
-        super(DataBusWorker.create());
+        this(DataBusWorker.create());
+    }
+
+    /**
+     * @param worker    Determines how the {@link Session}s of this
+     *                  file system are run: for example, on a shared
+     *                  pool of threads, or on virtual threads; see
+     *                  {@link DataBusWorker#create(crud.implementer.SessionExecutorFactory)}.
+     */
+    public FileSystem(final DataBusWorker worker) {
+        super(worker);
     }
 
     @Override
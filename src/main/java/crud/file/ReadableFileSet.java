@@ -22,6 +22,7 @@ import crud.core.Session;
 import crud.implementer.AbstractReadableResourceSet;
 import crud.implementer.AbstractSession;
 import crud.implementer.SessionWorker;
+import crud.implementer.UnorderedSession;
 
 
 /*package*/ final class ReadableFileSet extends AbstractReadableResourceSet<File, String> {
@@ -32,6 +33,9 @@ import crud.implementer.SessionWorker;
 
     @Override
     public ReadableResource<String> get(final File key, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return ((UnorderedSession) session).get(this, key);
+        }
         final SessionWorker worker = ((AbstractSession) session).getWorker();
         return new TextLineFileReader(key, worker);
     }
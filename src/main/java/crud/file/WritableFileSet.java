@@ -20,6 +20,7 @@ import crud.core.WritableResourceSet;
 import crud.implementer.AbstractSession;
 import crud.implementer.AbstractWritableResourceSet;
 import crud.implementer.SessionWorker;
+import crud.implementer.UnorderedSession;
 
 
 /*package*/ final class WritableFileSet extends AbstractWritableResourceSet<WriteRequest, String, Void> {
@@ -30,6 +31,9 @@ import crud.implementer.SessionWorker;
 
     @Override
     public WritableResource<String, Void> get(final WriteRequest key, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return ((UnorderedSession) session).get(this, key);
+        }
         final SessionWorker worker = ((AbstractSession) session).getWorker();
         return new TextLineFileWriter(
                 key.getFileToWrite(),
@@ -14,6 +14,8 @@
  */
 package crud.implementer;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -202,13 +204,37 @@ public abstract class AbstractDataBus implements DataBus {
      * the fact that unordered {@link Session}s can always be upgraded to
      * ordered. Subclasses that support ordered Sessions therefore only need
      * to override that method, not both that one and this one.
+     * <p/>
+     * If the {@link #getWorker() worker} calls for
+     * {@link DataBusWorker#getUnorderedSessionParallelism() parallelism}
+     * greater than one, this method starts that many ordered Sessions, and
+     * combines them into an {@link UnorderedSession}, which spreads its work
+     * across them. In that case, this DataBus's {@link ResourceSet}s must
+     * recognize UnorderedSession.
      *
      * @throws Exception    Subclasses may throw whatever they wish.
      *                      Exceptions will be passed to
      *                      {@link Observer#onError(Throwable)}.
      */
     protected @Nonnull Session doStartUnorderedSession() throws Exception {
-        return doStartOrderedSession();
+        final int parallelism = this.worker.getUnorderedSessionParallelism();
+        if (parallelism == 1) {
+            return doStartOrderedSession();
+        }
+
+        final List<Session> lanes = new ArrayList<>(parallelism);
+        try {
+            for (int i = 0; i < parallelism; ++i) {
+                lanes.add(doStartOrderedSession());
+            }
+        } catch (final Exception ex) {
+            // Don't leak the lanes we did manage to start:
+            for (final Session lane : lanes) {
+                lane.shutdown();
+            }
+            throw ex;
+        }
+        return new UnorderedSession(lanes);
     }
 
     /**
@@ -42,12 +42,13 @@ public abstract class AbstractResource<RSRC> implements Resource<RSRC> {
      */
     @Override
     public Observable<Void> shutdown() {
+        this.worker.removePreShutdownHook(this);
         return this.worker.scheduleHot(new Task<Void>() {
             @Override
             public void call(final Subscriber<? super Void> sub) throws Exception {
                 doShutdown();
             }
-        });
+        }, TaskKind.SHUTDOWN);
     }
 
     protected AbstractResource(@Nonnull final SessionWorker worker) {
@@ -15,9 +15,9 @@
 package crud.implementer;
 
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import crud.core.Session;
 import rx.Observable;
@@ -28,6 +28,10 @@ import rx.Subscriber;
 public abstract class AbstractSession extends AbstractAsyncCloseable implements Session {
 
     private @Nonnull final SessionWorker worker;
+    /**
+     * The worker with which this Session is registered for shutdown, if any.
+     */
+    private @Nullable final DataBusWorker dataBusWorker;
     private @Nonnull final Session.Ordering ordering;
 
     private final Task<Void> shutdownTask = new Task<Void>() {
@@ -60,22 +64,28 @@ public abstract class AbstractSession extends AbstractAsyncCloseable implements
      */
     @Override
     public Observable<Void> shutdown() {
-        return this.worker.shutdown(this.shutdownTask, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (this.dataBusWorker != null) {
+            this.dataBusWorker.removePreShutdownHook(this);
+        }
+        return this.worker.shutdown(this.shutdownTask);
     }
 
     protected AbstractSession(
             @Nonnull final SessionWorker worker,
             @Nonnull final Session.Ordering ordering) {
-        this.worker = Objects.requireNonNull(worker);
-        this.ordering = Objects.requireNonNull(ordering);
+        this(null, worker, ordering);
     }
 
     protected AbstractSession(
-            @Nonnull final DataBusWorker dataBusWorker,
+            @Nullable final DataBusWorker dataBusWorker,
             @Nonnull final SessionWorker myWorker,
             @Nonnull final Session.Ordering ordering) {
-        this(myWorker, ordering);
-        dataBusWorker.addPreShutdownHook(this);
+        this.worker = Objects.requireNonNull(myWorker);
+        this.ordering = Objects.requireNonNull(ordering);
+        this.dataBusWorker = dataBusWorker;
+        if (this.dataBusWorker != null) {
+            this.dataBusWorker.addPreShutdownHook(this);
+        }
     }
 
     /**
@@ -0,0 +1,49 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import rx.Subscriber;
+
+
+/**
+ * A {@link Task} that can be asked to stop early. If the {@link Subscriber}
+ * passed to {@link #call(Subscriber)} unsubscribes while that method is
+ * still running, the {@link SessionWorker} will call {@link #cancel()}.
+ * JDBC resources, for example, can implement it with
+ * {@link java.sql.Statement#cancel()}.
+ * <p/>
+ * Note that a Task whose Subscriber unsubscribes before the Task begins to
+ * run will not be called at all, whether it implements this interface or
+ * not.
+ *
+ * @author Rick Warren
+ */
+public interface CancellableTask<T> extends Task<T> {
+
+    /**
+     * Interrupt a call to {@link #call(Subscriber)} in progress. This method
+     * is called from the unsubscribing thread, not from the worker thread
+     * that is running the Task, so it must be thread-safe. It may race with
+     * the normal completion of the Task, so it must be harmless if that
+     * happens. It will be called at most once per call to
+     * {@link #call(Subscriber)}.
+     *
+     * @throws Exception    Exceptions will be logged and otherwise ignored:
+     *              by the time this method is called, there is no one
+     *              left to receive them.
+     */
+    void cancel() throws Exception;
+
+}
@@ -14,29 +14,160 @@
  */
 package crud.implementer;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+
 import crud.core.DataBus;
 import crud.core.Session;
 import rx.Observable;
 import rx.Observer;
-import rx.schedulers.Schedulers;
+import rx.functions.Action0;
+import rx.subjects.AsyncSubject;
 
 
 /**
  * Manages lifecycle concerns on behalf of {@link DataBus} implementations.
+ * It also creates the {@link SessionWorker}s for the {@link Session}s of
+ * that DataBus, by means of a {@link SessionExecutorFactory}: for example,
+ * each with a thread of its own, or all sharing a bounded pool of threads.
+ *
+ * @see #create()
+ * @see #create(int)
+ * @see #create(SessionExecutorFactory)
  *
  * @author Rick Warren
  */
 @ThreadSafe
 public class DataBusWorker {
 
-    private final WorkerDelegate delegate = new WorkerDelegate(Schedulers.immediate());
+    private final WorkerDelegate delegate = new WorkerDelegate(MoreExecutors.directExecutor());
+
+    /**
+     * Used by {@link #createSessionWorker()}.
+     */
+    private @Nonnull final SessionExecutorFactory sessionExecutorFactory;
+    /**
+     * @see #getUnorderedSessionParallelism()
+     */
+    private final int unorderedSessionParallelism;
+    private @Nonnull final ShutdownPolicy shutdownPolicy;
+    /**
+     * Added to every {@link SessionWorker} created by
+     * {@link #createSessionWorker()}.
+     */
+    private final List<TaskListener> taskListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Set by the first call to {@link #shutdown(Task)}, and returned by
+     * every call.
+     */
+    private final AtomicReference<AsyncSubject<Void>> shutdownResult = new AtomicReference<>();
 
 
+    /**
+     * Create a worker whose {@link #createSessionWorker() SessionWorkers}
+     * will each have a dedicated thread.
+     *
+     * @see SessionExecutors#dedicatedThreads()
+     */
     public static DataBusWorker create() {
-        return new DataBusWorker();
+        return create(SessionExecutors.dedicatedThreads());
+    }
+
+    /**
+     * Create a worker whose {@link #createSessionWorker() SessionWorkers}
+     * will all share a pool of the given number of threads, however many
+     * {@link Session}s are started. The pool will be shut down along with
+     * this worker.
+     *
+     * @throws IllegalArgumentException If the pool size is not positive.
+     *
+     * @see SessionExecutors#sharedPool(int)
+     */
+    public static DataBusWorker create(final int sessionThreadPoolSize) {
+        return create(SessionExecutors.sharedPool(sessionThreadPoolSize));
+    }
+
+    /**
+     * Create a worker whose {@link #createSessionWorker() SessionWorkers}
+     * will run their tasks on executors obtained from the given factory.
+     * The factory will be {@link SessionExecutorFactory#shutdown() shut down}
+     * along with this worker.
+     */
+    public static DataBusWorker create(@Nonnull final SessionExecutorFactory sessionExecutorFactory) {
+        return create(sessionExecutorFactory, 1);
+    }
+
+    /**
+     * Create a worker whose {@link #createSessionWorker() SessionWorkers}
+     * will run their tasks on executors obtained from the given factory,
+     * and whose {@link DataBus} will back each
+     * {@link crud.core.Session.Ordering#UNORDERED unordered} {@link Session}
+     * with the given number of parallel lanes.
+     *
+     * @throws IllegalArgumentException If the parallelism is not positive.
+     *
+     * @see #getUnorderedSessionParallelism()
+     */
+    public static DataBusWorker create(
+            @Nonnull final SessionExecutorFactory sessionExecutorFactory,
+            final int unorderedSessionParallelism) {
+        return create(sessionExecutorFactory, unorderedSessionParallelism, ShutdownPolicy.unbounded());
+    }
+
+    /**
+     * Like {@link #create(SessionExecutorFactory, int)}, but also specify
+     * how this worker will shut down its {@link Session}s when it is
+     * {@link #shutdown(Task) shut down} itself.
+     *
+     * @throws IllegalArgumentException If the parallelism is not positive.
+     */
+    public static DataBusWorker create(
+            @Nonnull final SessionExecutorFactory sessionExecutorFactory,
+            final int unorderedSessionParallelism,
+            @Nonnull final ShutdownPolicy shutdownPolicy) {
+        return new DataBusWorker(sessionExecutorFactory, unorderedSessionParallelism, shutdownPolicy);
+    }
+
+    /**
+     * The number of ordered {@link Session}s -- each with its own worker,
+     * and its own connection to the middleware -- that should do the work
+     * of each {@link crud.core.Session.Ordering#UNORDERED unordered} Session.
+     * If one, unordered Sessions are simply ordered ones.
+     *
+     * @see UnorderedSession
+     */
+    public int getUnorderedSessionParallelism() {
+        return this.unorderedSessionParallelism;
+    }
+
+    /**
+     * Create a new {@link SessionWorker}, on behalf of a new {@link Session}
+     * of this worker's {@link DataBus}.
+     */
+    public @Nonnull SessionWorker createSessionWorker() {
+        final SessionWorker sessionWorker = SessionWorker.create(this.sessionExecutorFactory);
+        for (final TaskListener listener : this.taskListeners) {
+            sessionWorker.addTaskListener(listener);
+        }
+        return sessionWorker;
+    }
+
+    /**
+     * Notify the given listener of the progress of every {@link Task} run by
+     * every {@link SessionWorker} {@link #createSessionWorker() created} from
+     * now on. Use this to export statistics for a whole {@link DataBus}; for
+     * those of a single Session, see {@link SessionWorker#getTaskStatistics()}.
+     */
+    public void addTaskListener(@Nonnull final TaskListener listener) {
+        this.taskListeners.add(Objects.requireNonNull(listener));
     }
 
     /**
@@ -51,6 +182,16 @@ public class DataBusWorker {
         this.delegate.addPreShutdownHook(shutMeDown);
     }
 
+    /**
+     * Forget a listener previously
+     * {@link #addPreShutdownHook(Session) added}. {@link Session}s should
+     * call this method when they are shut down individually, so that a
+     * long-lived worker does not retain them.
+     */
+    public void removePreShutdownHook(@Nonnull final Session shutMeDown) {
+        this.delegate.removePreShutdownHook(shutMeDown);
+    }
+
     /**
      * Schedule the given task after shutting down the
      * {@link #addPreShutdownHook(Session) pre-shutdown hooks}. The
@@ -69,24 +210,57 @@ public class DataBusWorker {
      *      errors are not allowed to hide any errors from that task.)</li>
      *  <li>{@link Observer#onCompleted()} once the termination is complete,
      *      if no errors occurred.</li>
+     *  <li>A {@link java.util.concurrent.TimeoutException} if the
+     *      pre-shutdown hooks fail to complete within the deadline of this
+     *      worker's {@link ShutdownPolicy}. The final task runs anyway.</li>
      * </ol>
      * <p/>
+     * The Sessions shut down concurrently, as many at once as the
+     * {@link ShutdownPolicy} allows.
+     * <p/>
      * This method only operates once. Calling it additional times has no
-     * effect, and will return an {@link Observable} that emits
-     * {@link Observer#onCompleted()}.
+     * effect, and will return an {@link Observable} that terminates along
+     * with that of the first call; their final tasks are not run.
      *
      * @param finalTask The caller should perform any of its own cleanup in
      *                  this task, scheduled here to avoid race conditions.
      */
     public Observable<Void> shutdown(final Task<Void> finalTask) {
-        return this.delegate.shutdown(finalTask);
+        final AsyncSubject<Void> newResult = AsyncSubject.create();
+        if (!this.shutdownResult.compareAndSet(null, newResult)) {
+            return this.shutdownResult.get().asObservable();
+        }
+
+        /* Any executors shared by the factory can only go away once every
+         * Session using them has finished shutting down. Only the first
+         * call may do so: later ones get a result from the delegate that
+         * is already complete, though Sessions may still be draining.
+         * Subscribing the subject makes the result hot, and keeps any error
+         * for the caller.
+         */
+        this.delegate.shutdown(finalTask, this.shutdownPolicy).doOnTerminate(new Action0() {
+            @Override
+            public void call() {
+                DataBusWorker.this.sessionExecutorFactory.shutdown();
+            }
+        }).subscribe(newResult);
+        return newResult.asObservable();
     }
 
-    private DataBusWorker() {
+    private DataBusWorker(
+            @Nonnull final SessionExecutorFactory sessionExecutorFactory,
+            final int unorderedSessionParallelism,
+            @Nonnull final ShutdownPolicy shutdownPolicy) {
         /* Private to prevent subclassing. We could just make the class final,
          * but that would prevent mocking as well. Fortunately, Mockito can
          * call a private constructor reflectively.
          */
+        this.sessionExecutorFactory = Objects.requireNonNull(sessionExecutorFactory);
+        this.unorderedSessionParallelism = unorderedSessionParallelism;
+        this.shutdownPolicy = Objects.requireNonNull(shutdownPolicy);
+        Preconditions.checkArgument(
+                this.unorderedSessionParallelism > 0,
+                "unorderedSessionParallelism must be positive");
     }
 
 }
@@ -0,0 +1,120 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A point in time by which a {@link Task} must complete. A Task that is
+ * still queued when its deadline passes will not be run at all; its
+ * subscriber will receive a {@link java.util.concurrent.TimeoutException}
+ * instead. A Task that is already running can look up its deadline with
+ * {@link #current()}, and pass the {@link #remaining(TimeUnit) remaining}
+ * time on to its middleware: for example, via
+ * {@link java.sql.Statement#setQueryTimeout(int)}.
+ *
+ * @see SessionWorker#scheduleCold(Task, long, TimeUnit)
+ * @see SessionWorker#scheduleHot(Task, long, TimeUnit)
+ *
+ * @author Rick Warren
+ */
+@Immutable
+public final class Deadline {
+
+    /**
+     * The deadline of the {@link Task} currently running in this thread,
+     * if any.
+     */
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+
+    /**
+     * Create a deadline the given duration from now.
+     *
+     * @throws IllegalArgumentException If the duration is negative.
+     */
+    public static @Nonnull Deadline after(final long duration, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(duration >= 0, "negative duration");
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * The deadline of the {@link Task} running in the calling thread, or
+     * absent if there is no such Task, or if it has no deadline.
+     */
+    public static @Nonnull Optional<Deadline> current() {
+        return Optional.fromNullable(current.get());
+    }
+
+    /**
+     * The time left before this deadline, rounded down to the given unit, or
+     * zero if it has already passed.
+     */
+    public long remaining(@Nonnull final TimeUnit unit) {
+        final long remainingNanos = this.deadlineNanos - System.nanoTime();
+        return (remainingNanos > 0L) ? unit.convert(remainingNanos, TimeUnit.NANOSECONDS) : 0L;
+    }
+
+    /**
+     * The time left before this deadline in whole seconds, rounded up, but
+     * at least one. This is the form expected by
+     * {@link java.sql.Statement#setQueryTimeout(int)}, for which zero would
+     * mean no limit at all.
+     */
+    public int remainingSecondsRoundedUp() {
+        final long remainingNanos = this.deadlineNanos - System.nanoTime();
+        final long oneSecondNanos = TimeUnit.SECONDS.toNanos(1L);
+        final long seconds = (remainingNanos + oneSecondNanos - 1L) / oneSecondNanos;
+        return (int) Math.max(1L, Math.min(seconds, Integer.MAX_VALUE));
+    }
+
+    public boolean isExpired() {
+        return this.deadlineNanos - System.nanoTime() <= 0L;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(remaining=" + remaining(TimeUnit.MILLISECONDS) + " ms)";
+    }
+
+    /**
+     * Make the given deadline {@link #current() current} in this thread, and
+     * return the previous one, to be restored when the {@link Task} is done.
+     */
+    /*package*/ static @Nullable Deadline setCurrent(@Nullable final Deadline deadline) {
+        final Deadline previous = current.get();
+        if (deadline == null) {
+            current.remove();
+        } else {
+            current.set(deadline);
+        }
+        return previous;
+    }
+
+    private Deadline(final long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+}
@@ -33,7 +33,7 @@ public class DefaultSession extends AbstractSession {
     public DefaultSession(
             @Nonnull final DataBusWorker dataBusWorker,
             @Nonnull final Session.Ordering ordering) {
-        super(dataBusWorker, SessionWorker.create(), ordering);
+        super(dataBusWorker, dataBusWorker.createSessionWorker(), ordering);
         Preconditions.checkArgument(
                 getOrdering() != Session.Ordering.TRANSACTED,
                 "Not a TransactedSession");
@@ -0,0 +1,212 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import rx.Observable;
+import rx.Subscriber;
+
+
+/**
+ * The single-shot result of a {@link Task} scheduled by
+ * {@link WorkerDelegate#scheduleHot(Task, TaskKind)}. The task's thread
+ * fulfils this object directly: it is both the {@link Subscriber} passed to
+ * the task and the source of the {@link Observable} returned to the
+ * application, which replays the task's few results to every subscriber.
+ * <p/>
+ * This replaces a chain of {@link Observable#subscribeOn(rx.Scheduler)},
+ * {@link Observable#cache()}, and {@link Observable#materialize()}, which
+ * allocated dozens of objects per task, with a single object and an
+ * {@link Observable} to expose it.
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+/*package*/ final class HotTaskResult<T> extends Subscriber<T>
+implements Runnable, Observable.OnSubscribe<T> {
+
+    private @Nonnull final WorkerDelegate owner;
+    private @Nonnull final Task<T> task;
+    private @Nonnull final TaskKind kind;
+    private final boolean isFinalTask;
+    private @Nullable final Deadline deadline;
+    private @Nonnull final Observable<T> observable;
+    /**
+     * When this task was queued, according to {@link System#nanoTime()}.
+     */
+    private final long queuedNanos;
+
+    /**
+     * Most tasks emit zero elements or one, so don't allocate a list until
+     * the second.
+     */
+    @GuardedBy("this")
+    private @Nullable T firstValue = null;
+    @GuardedBy("this")
+    private @Nullable List<T> moreValues = null;
+    @GuardedBy("this")
+    private int valueCount = 0;
+    @GuardedBy("this")
+    private boolean terminated = false;
+    @GuardedBy("this")
+    private @Nullable Throwable error = null;
+    /**
+     * Subscribers that arrived before the task completed. Allocated only if
+     * there are any.
+     */
+    @GuardedBy("this")
+    private @Nullable List<Subscriber<? super T>> waitingSubscribers = null;
+
+
+    public HotTaskResult(
+            @Nonnull final WorkerDelegate owner,
+            @Nonnull final Task<T> task,
+            @Nonnull final TaskKind kind,
+            final boolean isFinalTask,
+            @Nullable final Deadline deadline) {
+        this.owner = Objects.requireNonNull(owner);
+        this.task = Objects.requireNonNull(task);
+        this.kind = Objects.requireNonNull(kind);
+        this.isFinalTask = isFinalTask;
+        this.deadline = deadline;
+        this.observable = Observable.create(this);
+        this.queuedNanos = System.nanoTime();
+    }
+
+    public @Nonnull Observable<T> asObservable() {
+        return this.observable;
+    }
+
+    /**
+     * Run the task in the calling thread, which will presumably be that of
+     * the worker.
+     */
+    @Override
+    public void run() {
+        this.owner.runTask(this.task, this, this.kind, this.isFinalTask, this.deadline, this.queuedNanos);
+    }
+
+    /**
+     * Called by the application, via {@link #asObservable()}.
+     */
+    @Override
+    public void call(final Subscriber<? super T> sub) {
+        synchronized (this) {
+            if (!this.terminated) {
+                if (this.waitingSubscribers == null) {
+                    this.waitingSubscribers = new ArrayList<>(1);
+                }
+                this.waitingSubscribers.add(sub);
+                return;
+            }
+        }
+        // Already complete, and thus immutable, so replay without the lock:
+        replayTo(sub);
+    }
+
+    // --- Called by the Task: -----------------------------------------------
+
+    @Override
+    public void onNext(final T value) {
+        synchronized (this) {
+            if (this.terminated) {
+                return;
+            }
+            if (this.valueCount == 0) {
+                this.firstValue = value;
+            } else {
+                if (this.moreValues == null) {
+                    this.moreValues = new ArrayList<>(2);
+                }
+                this.moreValues.add(value);
+            }
+            ++this.valueCount;
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        terminate(null);
+    }
+
+    @Override
+    public void onError(@Nonnull final Throwable ex) {
+        terminate(Objects.requireNonNull(ex));
+    }
+
+    // --- Private helpers: --------------------------------------------------
+
+    /**
+     * Only the first terminal event counts; some tasks emit their own, after
+     * which the {@link WorkerDelegate} emits another.
+     */
+    private void terminate(@Nullable final Throwable maybeError) {
+        final List<Subscriber<? super T>> subscribers;
+        synchronized (this) {
+            if (this.terminated) {
+                return;
+            }
+            this.terminated = true;
+            this.error = maybeError;
+            subscribers = (this.waitingSubscribers == null)
+                    ? Collections.<Subscriber<? super T>>emptyList()
+                    : this.waitingSubscribers;
+            this.waitingSubscribers = null;
+        }
+        for (int i = 0; i < subscribers.size(); ++i) {
+            replayTo(subscribers.get(i));
+        }
+        // Nothing left for the task to tell us:
+        unsubscribe();
+    }
+
+    private void replayTo(final Subscriber<? super T> sub) {
+        final int count;
+        final T first;
+        final List<T> more;
+        final Throwable ex;
+        synchronized (this) {
+            // Immutable once terminated, but synchronize for visibility:
+            count = this.valueCount;
+            first = this.firstValue;
+            more = this.moreValues;
+            ex = this.error;
+        }
+
+        if (count > 0 && !sub.isUnsubscribed()) {
+            sub.onNext(first);
+            for (int i = 0; more != null && i < more.size() && !sub.isUnsubscribed(); ++i) {
+                sub.onNext(more.get(i));
+            }
+        }
+        if (!sub.isUnsubscribed()) {
+            if (ex == null) {
+                sub.onCompleted();
+            } else {
+                sub.onError(ex);
+            }
+        }
+    }
+
+}
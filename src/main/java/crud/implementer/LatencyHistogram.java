@@ -0,0 +1,115 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A lock-free histogram of durations, with buckets at powers of two
+ * nanoseconds. Recording a value costs a single atomic increment, and the
+ * histogram occupies a fixed 64 counters however many values it records.
+ * The price is precision: percentiles are accurate only to within a factor
+ * of two.
+ *
+ * @see TaskStatistics
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+
+    /**
+     * Bucket 0 counts durations of zero (or less, which
+     * {@link System#nanoTime()} should never produce). Bucket {@code i}
+     * counts durations from {@code 2^(i-1)} up to {@code 2^i - 1}
+     * nanoseconds.
+     */
+    private static final int NUM_BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+
+    public void record(final long nanos) {
+        this.buckets.incrementAndGet(bucketOf(nanos));
+    }
+
+    public long getCount() {
+        long count = 0L;
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            count += this.buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * An upper bound on the given percentile of the recorded durations:
+     * the top of the bucket in which it falls. Zero if nothing has been
+     * recorded.
+     *
+     * @param percentile    Greater than zero, and no greater than 100.
+     *
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public long getPercentile(final double percentile, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(percentile > 0.0 && percentile <= 100.0, "percentile out of range");
+        final long[] snapshot = getBucketCounts();
+        long count = 0L;
+        for (final long bucketCount : snapshot) {
+            count += bucketCount;
+        }
+        final long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0L;
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank && seen > 0L) {
+                return unit.convert(getBucketUpperBoundNanos(i), TimeUnit.NANOSECONDS);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * A snapshot of the count in each bucket. Bucket {@code i} counts
+     * durations up to {@link #getBucketUpperBoundNanos(int)}, and above that
+     * of bucket {@code i - 1}.
+     */
+    public @Nonnull long[] getBucketCounts() {
+        final long[] snapshot = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            snapshot[i] = this.buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * The largest duration, in nanoseconds, counted in the given bucket.
+     */
+    public static long getBucketUpperBoundNanos(final int bucket) {
+        Preconditions.checkElementIndex(bucket, NUM_BUCKETS);
+        return (bucket == NUM_BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1L;
+    }
+
+    private static int bucketOf(final long nanos) {
+        return (nanos <= 0L) ? 0 : NUM_BUCKETS - Long.numberOfLeadingZeros(nanos);
+    }
+
+}
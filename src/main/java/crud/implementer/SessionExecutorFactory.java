@@ -0,0 +1,56 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import crud.core.DataBus;
+import crud.core.Session;
+
+
+/**
+ * Determines how the tasks of {@link SessionWorker}s are carried: for
+ * example, on a dedicated platform thread per {@link Session}, on a shared
+ * pool, or on virtual threads. {@link SessionExecutors} provides the
+ * standard implementations.
+ *
+ * @see DataBusWorker#create(SessionExecutorFactory)
+ * @see SessionWorker#create(SessionExecutorFactory)
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public interface SessionExecutorFactory {
+
+    /**
+     * Create a new {@link ExecutorService} for the exclusive use of a single
+     * {@link SessionWorker}. It must run the tasks submitted to it one at a
+     * time, in the order in which they were submitted, and each must see
+     * the effects of those that came before it.
+     */
+    public @Nonnull ExecutorService newSessionExecutor();
+
+    /**
+     * Release any resources shared among the executors created by this
+     * factory. This method will be called once the {@link DataBus} that
+     * uses this factory, and all of its {@link Session}s, have been shut
+     * down.
+     */
+    public void shutdown();
+
+}
@@ -0,0 +1,178 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import crud.core.Session;
+
+
+/**
+ * Standard implementations of {@link SessionExecutorFactory}.
+ *
+ * @author Rick Warren
+ */
+public final class SessionExecutors {
+
+    private static final SessionExecutorFactory dedicatedThreads = new SessionExecutorFactory() {
+        @Override
+        public ExecutorService newSessionExecutor() {
+            return Executors.newSingleThreadExecutor();
+        }
+
+        @Override
+        public void shutdown() {
+            // nothing shared, so nothing to do
+        }
+
+        @Override
+        public String toString() {
+            return SessionExecutors.class.getSimpleName() + ".dedicatedThreads()";
+        }
+    };
+
+
+    /**
+     * Give each {@link Session} a platform thread of its own. This is the
+     * default.
+     */
+    public static @Nonnull SessionExecutorFactory dedicatedThreads() {
+        return dedicatedThreads;
+    }
+
+    /**
+     * Run the tasks of all {@link Session}s on a pool of the given number of
+     * platform threads, however many Sessions there are. Each Session's
+     * tasks still run one at a time, in order. The pool is shut down along
+     * with the factory.
+     *
+     * @throws IllegalArgumentException If the pool size is not positive.
+     */
+    public static @Nonnull SessionExecutorFactory sharedPool(final int poolSize) {
+        Preconditions.checkArgument(poolSize > 0, "poolSize must be positive");
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                poolSize,
+                new ThreadFactoryBuilder().setNameFormat("crud-session-%d").build());
+        return new SessionExecutorFactory() {
+            @Override
+            public ExecutorService newSessionExecutor() {
+                return new StrandExecutor(pool);
+            }
+
+            @Override
+            public void shutdown() {
+                pool.shutdown();
+            }
+
+            @Override
+            public String toString() {
+                return SessionExecutors.class.getSimpleName() + ".sharedPool(" + poolSize + ')';
+            }
+        };
+    }
+
+    /**
+     * Give each {@link Session} a virtual thread of its own. Blocking calls
+     * into JDBC or JMS drivers park the virtual thread rather than occupying
+     * a platform thread, so very many Sessions can be open at once. Note
+     * that a driver that blocks while holding a monitor will still pin its
+     * carrier thread.
+     *
+     * Virtual threads require Java 21 or later. They are looked up
+     * reflectively, so that this library can still be built for, and run
+     * on, earlier versions.
+     *
+     * @throws UnsupportedOperationException    If the running JVM does not
+     *              support virtual threads.
+     *
+     * @see #isVirtualThreadSupportAvailable()
+     */
+    public static @Nonnull SessionExecutorFactory virtualThreads() {
+        final ThreadFactory threadFactory = VirtualThreadFactoryHolder.threadFactory;
+        if (threadFactory == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        return new SessionExecutorFactory() {
+            @Override
+            public ExecutorService newSessionExecutor() {
+                return Executors.newSingleThreadExecutor(threadFactory);
+            }
+
+            @Override
+            public void shutdown() {
+                // Virtual threads are not pooled, so nothing to do
+            }
+
+            @Override
+            public String toString() {
+                return SessionExecutors.class.getSimpleName() + ".virtualThreads()";
+            }
+        };
+    }
+
+    /**
+     * Return true if {@link #virtualThreads()} can be called in the running
+     * JVM without throwing an exception.
+     */
+    public static boolean isVirtualThreadSupportAvailable() {
+        return VirtualThreadFactoryHolder.threadFactory != null;
+    }
+
+    private SessionExecutors() {
+        // prevent instantiation
+    }
+
+
+    /**
+     * Initialization-on-demand holder for the virtual-thread factory, so
+     * that the reflective lookup happens at most once, and only if
+     * virtual threads are actually requested.
+     */
+    private static final class VirtualThreadFactoryHolder {
+        /**
+         * The equivalent of
+         * {@code Thread.ofVirtual().name("crud-session-", 0).factory()},
+         * or null if this JVM does not support virtual threads.
+         */
+        public static final ThreadFactory threadFactory = lookUpVirtualThreadFactory();
+
+        private static ThreadFactory lookUpVirtualThreadFactory() {
+            try {
+                final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+                final Object builder = ofVirtual.invoke(null);
+                final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                final Method name = builderType.getMethod("name", String.class, long.class);
+                final Object namedBuilder = name.invoke(builder, "crud-session-", 0L);
+                final Method factory = builderType.getMethod("factory");
+                return (ThreadFactory) factory.invoke(namedBuilder);
+            } catch (final NoSuchMethodException | ClassNotFoundException ex) {
+                return null;    // pre-Java 21
+            } catch (final IllegalAccessException | InvocationTargetException ex) {
+                // Present, but unusable; e.g. preview features disabled:
+                return null;
+            }
+        }
+    }
+
+}
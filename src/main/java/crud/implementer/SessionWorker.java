@@ -14,27 +14,32 @@
  */
 package crud.implementer;
 
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.google.common.base.Preconditions;
+
 import crud.core.Resource;
 import crud.core.Session;
 import rx.Observable;
 import rx.Observer;
-import rx.Scheduler;
-import rx.Subscriber;
-import rx.functions.Action1;
-import rx.schedulers.Schedulers;
+import rx.functions.Func0;
+import rx.subjects.AsyncSubject;
 
 
 /**
  * Runs tasks in a background thread on behalf of {@link Session}
- * implementations.
+ * implementations. By default, each worker has a thread of its own.
+ * Alternatively, many workers can share a bounded pool of threads; see
+ * {@link SessionExecutors#sharedPool(int)}. Either way, the tasks of a single worker run
+ * one at a time, in the order in which they were scheduled.
  *
  * @author Rick Warren
  */
@@ -44,44 +49,191 @@ public class SessionWorker {
     /**
      * All subscriptions run here.
      *
-     * @see #scheduler
+     * @see SessionExecutorFactory#newSessionExecutor()
      */
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private final WorkerDelegate delegate = new WorkerDelegate(Schedulers.from(this.executor));
+    private @Nonnull final ExecutorService executor;
+    private @Nonnull final WorkerDelegate delegate;
 
+    /**
+     * @see #drain()
+     */
+    private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+    /**
+     * Completes when the last task scheduled on this worker has finished.
+     *
+     * @see #drain()
+     */
+    private final AsyncSubject<Void> drained = AsyncSubject.create();
 
+
+    /**
+     * Create a new worker with a dedicated background thread.
+     *
+     * @see SessionExecutors#dedicatedThreads()
+     */
     public static SessionWorker create() {
-        return new SessionWorker();
+        return create(SessionExecutors.dedicatedThreads());
+    }
+
+    /**
+     * Create a new worker whose tasks will run on an executor obtained from
+     * the given factory. Tasks scheduled on this worker will run one at a
+     * time, in order, however that executor carries them.
+     */
+    public static SessionWorker create(@Nonnull final SessionExecutorFactory executorFactory) {
+        return new SessionWorker(executorFactory.newSessionExecutor());
     }
 
     /**
-     * Wrap the given {@link Action1 action} in an {@link Observable} and
-     * schedule its subscription to run on the {@link Scheduler} encapsulated
-     * by this {@link SessionWorker worker}. This method only creates the
-     * {@link Observable}; it does not subscribe to it.
+     * Wrap the given {@link Task} in an {@link Observable}, each
+     * subscription to which will run the task in the background thread
+     * encapsulated by this {@link SessionWorker worker}. This method only
+     * creates the {@link Observable}; it does not subscribe to it. The task
+     * will be counted as a {@link TaskKind#READ read}.
      *
      * @see #scheduleHot(Task)
      */
     public <T> Observable<T> scheduleCold(@Nonnull final Task<T> task) {
-        final boolean isFinalTask = false;
-        return this.delegate.scheduleCold(task, isFinalTask);
+        return scheduleCold(task, TaskKind.READ);
     }
 
     /**
-     * Wrap the given {@link Action1 action} in an {@link Observable} and
-     * schedule its subscription to run on the {@link Scheduler} encapsulated
-     * by this {@link SessionWorker worker}. Then
-     * {@link Observable#cache() cache} the result, and begin the
-     * subscription. This allows the subscription action to begin immediately,
-     * but allows the caller to see every resulting value. Note that the use
-     * of cache() assumes that the number of those results is relatively
-     * small.
+     * Like {@link #scheduleCold(Task)}, but count the task as being of the
+     * given {@link TaskKind kind} in the {@link #getTaskStatistics()
+     * statistics}.
+     */
+    public <T> Observable<T> scheduleCold(@Nonnull final Task<T> task, @Nonnull final TaskKind kind) {
+        return this.delegate.scheduleCold(task, kind);
+    }
+
+    /**
+     * Submit the given {@link Task} to run immediately in the background
+     * thread encapsulated by this {@link SessionWorker worker}, and return an
+     * {@link Observable} that will replay its results to every subscriber.
+     * This allows the task to begin immediately, but allows the caller to
+     * see every resulting value. Note that the retention of those results
+     * assumes that their number is relatively small. The task will be
+     * counted as a {@link TaskKind#WRITE write}.
      *
      * @see #scheduleCold(Task)
      */
     public <T> Observable<T> scheduleHot(@Nonnull final Task<T> task) {
-        final boolean isFinalTask = false;
-        return this.delegate.scheduleHot(task, isFinalTask);
+        return scheduleHot(task, TaskKind.WRITE);
+    }
+
+    /**
+     * Like {@link #scheduleHot(Task)}, but count the task as being of the
+     * given {@link TaskKind kind} in the {@link #getTaskStatistics()
+     * statistics}.
+     */
+    public <T> Observable<T> scheduleHot(@Nonnull final Task<T> task, @Nonnull final TaskKind kind) {
+        return this.delegate.scheduleHot(task, kind);
+    }
+
+    /**
+     * Like {@link #scheduleCold(Task)}, but the task must complete within the
+     * given time, measured from each subscription. If the task is still
+     * waiting behind others when that time is up, it will not run at all,
+     * and the subscriber will receive a {@link TimeoutException}. Otherwise,
+     * the task can find its {@link Deadline#current() deadline}, and pass
+     * the remaining time on to its middleware.
+     *
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public <T> Observable<T> scheduleCold(
+            @Nonnull final Task<T> task,
+            final long timeout, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(timeout >= 0, "negative timeout");
+        return this.delegate.scheduleCold(task, TaskKind.READ, timeout, unit);
+    }
+
+    /**
+     * Like {@link #scheduleHot(Task)}, but the task must complete within the
+     * given time, measured from now. If the task is still waiting behind
+     * others when that time is up, it will not run at all, and subscribers
+     * will receive a {@link TimeoutException}. Otherwise, the task can find
+     * its {@link Deadline#current() deadline}, and pass the remaining time
+     * on to its middleware.
+     *
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public <T> Observable<T> scheduleHot(
+            @Nonnull final Task<T> task,
+            final long timeout, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(timeout >= 0, "negative timeout");
+        return this.delegate.scheduleHot(task, TaskKind.WRITE, timeout, unit);
+    }
+
+    /**
+     * Wrap the {@link StreamingTask}s created by the given factory in an
+     * {@link Observable}. Each subscription will create a new task, and pull
+     * elements from it in the background thread encapsulated by this
+     * {@link SessionWorker worker}, honoring the subscriber's
+     * {@link rx.Producer#request(long) requests}. Between bursts of
+     * demand, the worker is free to run other tasks. The bursts will be
+     * counted as {@link TaskKind#READ reads}.
+     */
+    public <T> Observable<T> scheduleStreaming(@Nonnull final Func0<? extends StreamingTask<T>> taskFactory) {
+        return scheduleStreaming(taskFactory, TaskKind.READ);
+    }
+
+    /**
+     * Like {@link #scheduleStreaming(Func0)}, but count the bursts as being
+     * of the given {@link TaskKind kind} in the
+     * {@link #getTaskStatistics() statistics}.
+     */
+    public <T> Observable<T> scheduleStreaming(
+            @Nonnull final Func0<? extends StreamingTask<T>> taskFactory,
+            @Nonnull final TaskKind kind) {
+        return this.delegate.scheduleStreaming(taskFactory, kind);
+    }
+
+    /**
+     * Like {@link #scheduleStreaming(Func0)}, but each task must be
+     * {@link StreamingTask#open() opened} within the given time, measured
+     * from its subscription. The task can find its
+     * {@link Deadline#current() deadline} while it is being opened.
+     *
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public <T> Observable<T> scheduleStreaming(
+            @Nonnull final Func0<? extends StreamingTask<T>> taskFactory,
+            final long timeout, @Nonnull final TimeUnit unit) {
+        return scheduleStreaming(taskFactory, TaskKind.READ, timeout, unit);
+    }
+
+    /**
+     * Like {@link #scheduleStreaming(Func0, long, TimeUnit)}, but count the
+     * bursts as being of the given {@link TaskKind kind} in the
+     * {@link #getTaskStatistics() statistics}.
+     *
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public <T> Observable<T> scheduleStreaming(
+            @Nonnull final Func0<? extends StreamingTask<T>> taskFactory,
+            @Nonnull final TaskKind kind,
+            final long timeout, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(timeout >= 0, "negative timeout");
+        return this.delegate.scheduleStreaming(taskFactory, kind, timeout, unit);
+    }
+
+    /**
+     * How many tasks this worker has run, how many are waiting, and how long
+     * they have spent waiting and running.
+     */
+    public @Nonnull TaskStatistics getTaskStatistics() {
+        return this.delegate.getTaskStatistics();
+    }
+
+    /**
+     * Notify the given listener, in addition to the
+     * {@link #getTaskStatistics() statistics}, of the progress of each
+     * {@link Task} scheduled on this worker from now on.
+     *
+     * @see DataBusWorker#addTaskListener(TaskListener)
+     */
+    public void addTaskListener(@Nonnull final TaskListener listener) {
+        this.delegate.addTaskListener(listener);
     }
 
     /**
@@ -93,6 +245,23 @@ public class SessionWorker {
         this.delegate.addPreShutdownHook(shutMeDown);
     }
 
+    /**
+     * Forget a listener previously
+     * {@link #addPreShutdownHook(Resource) added}. {@link Resource}s should
+     * call this method when they are shut down individually, so that a
+     * long-lived worker does not retain them.
+     */
+    public void removePreShutdownHook(@Nonnull final Resource<?> shutMeDown) {
+        this.delegate.removePreShutdownHook(shutMeDown);
+    }
+
+    /**
+     * For testing.
+     */
+    /*package*/ int getPreShutdownHookCount() {
+        return this.delegate.getPreShutdownHookCount();
+    }
+
     /**
      * {@link #scheduleHot(Task) Schedule} the given
      * task, then stop accepting any new tasks, and initiate
@@ -110,62 +279,86 @@ public class SessionWorker {
      *      {@link #addPreShutdownHook(Resource) pre-shutdown hooks}.
      *      (These hooks are shut down before the final task runs, but their
      *      errors are not allowed to hide any errors from that task.)</li>
-     *  <li>A {@link TimeoutException} if all scheduled tasks fail to complete
-     *      within the given duration.</li>
-     *  <li>An {@link InterruptedException} if the shutdown process is
-     *      interrupted from another thread.</li>
-     *  <li>{@link Observer#onCompleted()} once the termination is complete,
-     *      if no errors occurred.</li>
+     *  <li>{@link Observer#onCompleted()} once every task scheduled on this
+     *      worker has finished, if no errors occurred.</li>
      * </ol>
      * <p/>
+     * No thread waits for the termination: the last task to run on this
+     * worker signals it. Shutting down many workers at once therefore
+     * costs no more threads than running them did.
+     * <p/>
      * This method only operates once. Calling it additional times has no
-     * effect, and will return an {@link Observable} that emits
-     * {@link Observer#onCompleted()}.
+     * further effect, and will return an {@link Observable} that completes
+     * when the first shutdown does.
      *
      * @param finalTask The caller should perform any of its own cleanup in
      *                  this task, scheduled here to avoid race conditions.
+     *
+     * @see #shutdown(Task, long, TimeUnit)
      */
-    public Observable<Void> shutdown(
-            @Nonnull final Task<Void> finalTask,
-            final long waitDuration, @Nonnull final TimeUnit waitUnit) {
+    public Observable<Void> shutdown(@Nonnull final Task<Void> finalTask) {
         /* No need to explicitly check for repeated invocations, since our
          * WorkerDelegate helper does that for us, with respect to the
-         * pre-shutdown hooks and the final task. Shutting down an
-         * ExecutorService is idempotent.
+         * pre-shutdown hooks and the final task.
          *
          * ATTN: Shutting down the hooks will likely cause more tasks to
          * be scheduled on this delegate!
          */
         final Observable<Void> taskResults = this.delegate.shutdown(finalTask);
+        drain();
+        // Concat in the order described in the JavaDoc above:
+        return Observable.concat(taskResults, this.drained);
+    }
 
-        this.executor.shutdown();   // non-blocking
+    /**
+     * Like {@link #shutdown(Task)}, except that the resulting
+     * {@link Observable} will emit a {@link TimeoutException} if the
+     * scheduled tasks fail to finish within the given duration after the
+     * final task and the pre-shutdown hooks have completed. The timeout
+     * does not block any thread.
+     */
+    public Observable<Void> shutdown(
+            @Nonnull final Task<Void> finalTask,
+            final long waitDuration, @Nonnull final TimeUnit waitUnit) {
+        final Observable<Void> taskResults = this.delegate.shutdown(finalTask);
+        drain();
+        final Observable<Void> timedOut = Observable.error(new TimeoutException(
+                "Shutdown timed out after " + waitDuration + " " + waitUnit.toString().toLowerCase()));
+        return Observable.concat(
+                taskResults,
+                this.drained.timeout(waitDuration, waitUnit, timedOut));
+    }
 
-        final Observable<Void> await = Observable.create(new Observable.OnSubscribe<Void>() {
-            @Override
-            public void call(final Subscriber<? super Void> sub) {
-                try {
-                    final boolean completed = SessionWorker.this.executor.awaitTermination(waitDuration, waitUnit);
-                    if (completed) {
-                        sub.onCompleted();
-                    } else {
-                        sub.onError(new TimeoutException(
-                                "Shutdown timed out after " + waitDuration + " " + waitUnit.toString().toLowerCase()));
-                    }
-                } catch (final InterruptedException ix) {
-                    sub.onError(ix);
+    /**
+     * Queue a task behind all others that will complete {@link #drained},
+     * then shut down the executor, so that no other task can follow it.
+     * Only the first call has any effect.
+     */
+    private void drain() {
+        if (this.drainRequested.getAndSet(true)) {
+            return;
+        }
+        try {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SessionWorker.this.drained.onCompleted();
                 }
-            }
-        });
-
-        // Concat in the order described in the JavaDoc above:
-        return Observable.concat(taskResults, await);
+            });
+        } catch (final RejectedExecutionException rex) {
+            // Executor was already shut down, so we're as drained as we'll get:
+            this.drained.onCompleted();
+        }
+        this.executor.shutdown();   // non-blocking
     }
 
-    private SessionWorker() {
+    private SessionWorker(@Nonnull final ExecutorService executor) {
         /* Private to prevent subclassing. We could just make the class final,
          * but that would prevent mocking as well. Fortunately, Mockito can
          * call a private constructor reflectively.
          */
+        this.executor = Objects.requireNonNull(executor);
+        this.delegate = new WorkerDelegate(this.executor);
     }
 
 }
@@ -0,0 +1,106 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+
+import crud.core.DataBus;
+import crud.core.Session;
+
+
+/**
+ * Determines how a {@link DataBusWorker} shuts down its children -- its
+ * {@link Session}s -- when its {@link DataBus} is shut down: how many of
+ * them may be closing at once, and how long to wait for them all before
+ * giving up and running the DataBus's own final cleanup anyway.
+ *
+ * @see DataBusWorker#create(SessionExecutorFactory, int, ShutdownPolicy)
+ *
+ * @author Rick Warren
+ */
+@Immutable
+public final class ShutdownPolicy {
+
+    private static final ShutdownPolicy unbounded = new ShutdownPolicy(Integer.MAX_VALUE, 0L);
+
+    private final int maxConcurrentShutdowns;
+    /**
+     * Zero means no deadline.
+     */
+    private final long deadlineNanos;
+
+
+    /**
+     * Shut down all children at once, and wait for them as long as it takes.
+     * This is the default.
+     */
+    public static @Nonnull ShutdownPolicy unbounded() {
+        return unbounded;
+    }
+
+    /**
+     * Shut down no more than the given number of children at a time. Give
+     * up waiting for them after the given duration, whereupon the shutdown
+     * will fail with a {@link java.util.concurrent.TimeoutException}. Any
+     * children that have not yet begun to shut down by then will not be
+     * shut down individually; they are left to the final cleanup of the
+     * {@link DataBus} itself, such as the closing of its connection.
+     *
+     * @param deadline  Zero means no deadline.
+     *
+     * @throws IllegalArgumentException If the concurrency is not positive,
+     *              or if the deadline is negative.
+     */
+    public static @Nonnull ShutdownPolicy bounded(
+            final int maxConcurrentShutdowns,
+            final long deadline, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(maxConcurrentShutdowns > 0, "maxConcurrentShutdowns must be positive");
+        Preconditions.checkArgument(deadline >= 0, "negative deadline");
+        return new ShutdownPolicy(maxConcurrentShutdowns, unit.toNanos(deadline));
+    }
+
+    public int getMaxConcurrentShutdowns() {
+        return this.maxConcurrentShutdowns;
+    }
+
+    public boolean hasDeadline() {
+        return this.deadlineNanos > 0L;
+    }
+
+    /**
+     * @return  The deadline, or zero if there is none.
+     */
+    public long getDeadline(@Nonnull final TimeUnit unit) {
+        return unit.convert(this.deadlineNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "(maxConcurrentShutdowns=" + this.maxConcurrentShutdowns
+                + ", deadline=" + TimeUnit.NANOSECONDS.toMillis(this.deadlineNanos) + " ms)";
+    }
+
+    private ShutdownPolicy(final int maxConcurrentShutdowns, final long deadlineNanos) {
+        this.maxConcurrentShutdowns = maxConcurrentShutdowns;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+}
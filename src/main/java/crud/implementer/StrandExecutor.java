@@ -0,0 +1,204 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An {@link ExecutorService} that runs its tasks one at a time, in the order
+ * in which they were submitted, by borrowing threads from another,
+ * presumably shared, {@link Executor}. Many strands can share a small pool
+ * of threads, while each strand individually behaves as though it had a
+ * single thread of its own: no two of its tasks overlap, and each task sees
+ * the effects of those that came before it.
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+/*package*/ final class StrandExecutor extends AbstractExecutorService {
+
+    private static final Logger log = LoggerFactory.getLogger(StrandExecutor.class);
+
+    /**
+     * After running this many tasks in a row, a strand resubmits itself to
+     * the pool, so that busy strands don't starve the others.
+     */
+    private static final int MAX_TASKS_PER_TURN = 64;
+
+    /**
+     * Set in {@link #state} once {@link #shutdown()} has been called. The
+     * remaining bits count the tasks that have been accepted, but have not
+     * yet finished running.
+     */
+    private static final int SHUTDOWN_BIT = 1 << 31;
+    private static final int COUNT_MASK = ~SHUTDOWN_BIT;
+
+    private @Nonnull final Executor pool;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(0);
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final Runnable drainer = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+
+    public StrandExecutor(@Nonnull final Executor pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    @Override
+    public void execute(@Nonnull final Runnable command) {
+        Objects.requireNonNull(command);
+
+        int prevState;
+        do {
+            prevState = this.state.get();
+            if ((prevState & SHUTDOWN_BIT) != 0) {
+                throw new RejectedExecutionException("Strand already shut down");
+            }
+        } while (!this.state.compareAndSet(prevState, prevState + 1));
+
+        this.tasks.offer(command);
+        if ((prevState & COUNT_MASK) == 0) {
+            // We made the strand busy, so it's up to us to start it running:
+            try {
+                this.pool.execute(this.drainer);
+            } catch (final RejectedExecutionException rex) {
+                /* The shared pool is gone, so this strand can never run
+                 * anything again. Terminate it, so that no one waits on it
+                 * in vain.
+                 */
+                this.tasks.clear();
+                this.state.set(SHUTDOWN_BIT);
+                this.terminated.countDown();
+                throw rex;
+            }
+        }
+    }
+
+    /**
+     * Stop accepting new tasks. Those already accepted will still run.
+     */
+    @Override
+    public void shutdown() {
+        final int prevState = getAndSetShutdownBit();
+        if (prevState == 0) {
+            // Was idle and not yet shut down: no drainer will terminate us.
+            this.terminated.countDown();
+        }
+    }
+
+    /**
+     * Equivalent to {@link #shutdown()}: tasks that have already been
+     * accepted are not abandoned, so the returned list is always empty.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return (this.state.get() & SHUTDOWN_BIT) != 0;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit)
+    throws InterruptedException {
+        return this.terminated.await(timeout, unit);
+    }
+
+    private int getAndSetShutdownBit() {
+        int prevState;
+        do {
+            prevState = this.state.get();
+        } while (!this.state.compareAndSet(prevState, prevState | SHUTDOWN_BIT));
+        return prevState;
+    }
+
+    private void drain() {
+        int tasksThisTurn = 0;
+        while (true) {
+            final Runnable task = nextTask();
+            try {
+                task.run();
+            } catch (final RuntimeException rex) {
+                // Don't let one bad task kill the whole strand:
+                log.error("Uncaught exception in strand task", rex);
+            }
+
+            final int newState = this.state.decrementAndGet();
+            if ((newState & COUNT_MASK) == 0) {
+                if ((newState & SHUTDOWN_BIT) != 0) {
+                    this.terminated.countDown();
+                }
+                return;
+            }
+
+            if (++tasksThisTurn >= MAX_TASKS_PER_TURN) {
+                try {
+                    this.pool.execute(this.drainer);
+                    return;
+                } catch (final RejectedExecutionException rex) {
+                    /* The pool is shutting down, but we still owe the
+                     * tasks we've already accepted. Keep running them here.
+                     */
+                    tasksThisTurn = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * A task is counted in {@link #state} just before it is enqueued, so
+     * there is a brief window in which the count is positive but the queue
+     * is empty. Wait out that window.
+     */
+    private @Nonnull Runnable nextTask() {
+        Runnable task;
+        while ((task = this.tasks.poll()) == null) {
+            Thread.yield();
+        }
+        return task;
+    }
+
+}
@@ -0,0 +1,75 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import rx.Observer;
+import rx.Producer;
+
+
+/**
+ * A task that emits a stream of elements a few at a time, as its
+ * {@link rx.Subscriber} {@link Producer#request(long) requests} them,
+ * rather than all at once. The elements are pulled in "bursts": each
+ * burst is queued on the {@link SessionWorker} like any other
+ * {@link Task}, and emits no more elements than have been requested, so
+ * that other tasks of the same session may run between bursts, and a slow
+ * subscriber holds neither the worker thread nor an unbounded buffer.
+ * <p/>
+ * A new instance is created for each subscription. All methods but
+ * {@link #cancel()} are called in the worker thread, one at a time.
+ *
+ * @see SessionWorker#scheduleStreaming(rx.functions.Func0)
+ *
+ * @author Rick Warren
+ */
+public interface StreamingTask<T> {
+
+    /**
+     * Prepare to emit elements: for example, execute a query. Called once,
+     * in the first burst, subject to the task's deadline, if any.
+     */
+    void open() throws Exception;
+
+    /**
+     * Emit at most one element. Elements other than the last must be
+     * emitted one per call; the last may be emitted by the call that
+     * returns false. Do not call {@link Observer#onCompleted()} or
+     * {@link Observer#onError(Throwable)}; the worker will do so.
+     *
+     * @return  true if there may be more elements, or false if the stream
+     *          is exhausted.
+     */
+    boolean emitNext(Observer<? super T> observer) throws Exception;
+
+    /**
+     * Release whatever {@link #open()} acquired. Called once, in the worker
+     * thread, after the stream is exhausted, fails, or is abandoned by its
+     * subscriber -- if {@link #open()} was called.
+     */
+    void close() throws Exception;
+
+    /**
+     * Interrupt a call to {@link #open()} or {@link #emitNext(Observer)} in
+     * progress, because the subscriber has unsubscribed. As with
+     * {@link CancellableTask#cancel()}, this is called from the
+     * unsubscribing thread, so it must be thread-safe, and harmless if it
+     * races with the normal return of the method it means to interrupt.
+     * {@link #close()} will still be called afterward.
+     *
+     * @throws Exception    Exceptions will be logged and otherwise ignored.
+     */
+    void cancel() throws Exception;
+
+}
@@ -0,0 +1,330 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import crud.core.MiddlewareException;
+import rx.Observer;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+
+/**
+ * Drives a {@link StreamingTask} on behalf of a single {@link Subscriber},
+ * on the worker of a {@link WorkerDelegate}. Each time demand rises from
+ * zero, it queues a burst, which emits until the demand is met, or until
+ * it has emitted {@link #MAX_BURST_SIZE} elements, whereupon it queues
+ * another burst behind whatever else is waiting. Only one burst is ever
+ * queued or running at a time, except for one that closes the task after
+ * the subscriber leaves.
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+/*package*/ final class StreamingTaskProducer<T> implements Producer, Runnable, Observer<T> {
+
+    /**
+     * Even when demand is unbounded, let other tasks run after this many
+     * elements.
+     */
+    /*package*/ static final int MAX_BURST_SIZE = 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingTaskProducer.class);
+
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private @Nonnull final WorkerDelegate owner;
+    private @Nonnull final StreamingTask<T> task;
+    private @Nonnull final Subscriber<? super T> sub;
+    private @Nonnull final TaskKind kind;
+    private @Nullable final Deadline deadline;
+
+    /**
+     * Elements requested but not yet emitted. A burst is queued or running
+     * whenever this is non-zero.
+     */
+    private final AtomicLong requested = new AtomicLong(0L);
+    /**
+     * Whether the task is in one of its methods, and so might need to be
+     * {@link StreamingTask#cancel() cancelled}.
+     */
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    /**
+     * When the most recent burst was queued, according to
+     * {@link System#nanoTime()}.
+     */
+    private volatile long queuedNanos;
+
+    // Accessed only in the worker thread:
+    private boolean opened = false;
+    private boolean closed = false;
+    private long emittedInBurst = 0L;
+
+
+    public StreamingTaskProducer(
+            @Nonnull final WorkerDelegate owner,
+            @Nonnull final StreamingTask<T> task,
+            @Nonnull final Subscriber<? super T> sub,
+            @Nonnull final TaskKind kind,
+            @Nullable final Deadline deadline) {
+        this.owner = Objects.requireNonNull(owner);
+        this.task = Objects.requireNonNull(task);
+        this.sub = Objects.requireNonNull(sub);
+        this.kind = Objects.requireNonNull(kind);
+        this.deadline = deadline;
+    }
+
+    /**
+     * Connect this producer to its {@link Subscriber}, which will request
+     * the first elements.
+     */
+    public void start() {
+        this.sub.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                onUnsubscribe();
+            }
+        }));
+        this.sub.setProducer(this);
+    }
+
+    @Override
+    public void request(final long n) {
+        if (n <= 0L) {
+            return;
+        }
+        long current;
+        long next;
+        do {
+            current = this.requested.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            next = current + n;
+            if (next < 0L) {
+                next = Long.MAX_VALUE;
+            }
+        } while (!this.requested.compareAndSet(current, next));
+        if (current == 0L && !queueBurst()) {
+            this.sub.onError(new RejectedExecutionException("Session already shut down"));
+        }
+    }
+
+    /**
+     * Run a burst in the worker thread.
+     */
+    @Override
+    public void run() {
+        final TaskListener listener = this.owner.getTaskListener();
+        if (this.closed) {
+            // Every queued burst was counted, so must be uncounted:
+            listener.taskDropped(this.kind);
+            return;
+        }
+        if (this.owner.hasFinalTaskBeenRun()) {
+            listener.taskDropped(this.kind);
+            finish(new RejectedExecutionException("Session already shut down"));
+            return;
+        }
+        if (this.sub.isUnsubscribed()) {
+            listener.taskDropped(this.kind);
+            finish(null);
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        listener.taskStarted(this.kind, startNanos - this.queuedNanos);
+        boolean more = false;
+        Exception error = null;
+        try {
+            more = emitBurst();
+        } catch (final Exception ex) {
+            error = ex;
+        }
+        listener.taskFinished(this.kind, System.nanoTime() - startNanos, error == null);
+        if (error != null || !more) {
+            finish(error);
+        }
+    }
+
+    // --- Called by the Task: -----------------------------------------------
+
+    @Override
+    public void onNext(final T value) {
+        ++this.emittedInBurst;
+        this.sub.onNext(value);
+    }
+
+    @Override
+    public void onCompleted() {
+        // The worker does this, once the task has no more elements.
+    }
+
+    @Override
+    public void onError(final Throwable ex) {
+        // The worker does this, if the task throws.
+    }
+
+    // --- Private helpers: --------------------------------------------------
+
+    private boolean queueBurst() {
+        this.queuedNanos = System.nanoTime();
+        return this.owner.execute(this, this.kind);
+    }
+
+    /**
+     * @return  true if the stream may have more elements, or false if it is
+     *          exhausted, or the subscriber has left.
+     */
+    private boolean emitBurst() throws Exception {
+        if (!this.opened) {
+            if (this.deadline != null && this.deadline.isExpired()) {
+                throw new TimeoutException("Task timed out before it could run");
+            }
+            final Deadline previousDeadline = (this.deadline != null) ? Deadline.setCurrent(this.deadline) : null;
+            try {
+                if (!callInTask(true)) {
+                    return false;
+                }
+            } finally {
+                if (this.deadline != null) {
+                    Deadline.setCurrent(previousDeadline);
+                }
+            }
+        }
+
+        long demand = this.requested.get();
+        long emittedTotal = 0L;
+        while (true) {
+            this.emittedInBurst = 0L;
+            while (this.emittedInBurst < demand && emittedTotal + this.emittedInBurst < MAX_BURST_SIZE) {
+                if (this.sub.isUnsubscribed()) {
+                    return false;
+                }
+                if (!callInTask(false)) {
+                    return false;
+                }
+            }
+            emittedTotal += this.emittedInBurst;
+            if (demand != Long.MAX_VALUE) {
+                demand = this.requested.addAndGet(-this.emittedInBurst);
+                if (demand == 0L) {
+                    // Release the worker; the next request() will queue another burst.
+                    return true;
+                }
+            }
+            if (emittedTotal >= MAX_BURST_SIZE) {
+                // Demand remains, but let other tasks have a turn:
+                if (!queueBurst()) {
+                    throw new RejectedExecutionException("Session already shut down");
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Call {@link StreamingTask#open()} or
+     * {@link StreamingTask#emitNext(Observer)}, such that unsubscribing
+     * in the meantime will cancel it.
+     */
+    private boolean callInTask(final boolean open) throws Exception {
+        if (!this.state.compareAndSet(IDLE, RUNNING)) {
+            return false;   // already unsubscribed
+        }
+        try {
+            if (open) {
+                this.opened = true;
+                this.task.open();
+                return true;
+            } else {
+                return this.task.emitNext(this);
+            }
+        } finally {
+            this.state.compareAndSet(RUNNING, IDLE);
+        }
+    }
+
+    /**
+     * Close the task, if it was opened, and notify the subscriber, unless
+     * it has left.
+     */
+    private void finish(@Nullable final Exception maybeError) {
+        this.closed = true;
+        this.state.set(DONE);
+        Exception error = maybeError;
+        if (this.opened) {
+            try {
+                this.task.close();
+            } catch (final Exception ex) {
+                if (error == null) {
+                    error = ex;
+                } else {
+                    log.warn("Failed to close streaming task " + this.task, ex);
+                }
+            }
+        }
+        if (this.sub.isUnsubscribed()) {
+            return;
+        }
+        if (error == null) {
+            this.sub.onCompleted();
+        } else if (error instanceof MiddlewareException || error instanceof RejectedExecutionException
+                || error instanceof TimeoutException) {
+            this.sub.onError(error);
+        } else {
+            this.sub.onError(new MiddlewareException(error.getMessage(), error));
+        }
+    }
+
+    /**
+     * Called in the unsubscribing thread.
+     */
+    private void onUnsubscribe() {
+        final int previousState = this.state.getAndSet(DONE);
+        if (previousState == DONE) {
+            return;     // already finished
+        }
+        if (previousState == RUNNING) {
+            try {
+                this.task.cancel();
+            } catch (final Exception ex) {
+                log.warn("Failed to cancel streaming task " + this.task, ex);
+            }
+        }
+        /* A burst may or may not be pending to notice that the subscriber
+         * has left. Queue another to be sure that the task is closed; it
+         * will do nothing if the task already has been.
+         */
+        queueBurst();
+    }
+
+}
@@ -0,0 +1,79 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rx.Subscriber;
+import rx.Subscription;
+
+
+/**
+ * Added to the {@link Subscriber} of a {@link CancellableTask} by
+ * {@link WorkerDelegate#runTask(Task, Subscriber, TaskKind, boolean, Deadline, long)},
+ * so that unsubscribing while the task is running will
+ * {@link CancellableTask#cancel() cancel} it.
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+/*package*/ final class TaskCanceller implements Subscription {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskCanceller.class);
+
+    private static final int RUNNING = 0;
+    private static final int FINISHED = 1;
+    private static final int CANCELLED = 2;
+
+    private @Nonnull final CancellableTask<?> task;
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+
+    public TaskCanceller(@Nonnull final CancellableTask<?> task) {
+        this.task = Objects.requireNonNull(task);
+    }
+
+    /**
+     * Called in the worker thread once the task has returned, after which
+     * unsubscribing will have no effect.
+     */
+    public void taskFinished() {
+        this.state.compareAndSet(RUNNING, FINISHED);
+    }
+
+    @Override
+    public void unsubscribe() {
+        if (this.state.compareAndSet(RUNNING, CANCELLED)) {
+            try {
+                this.task.cancel();
+            } catch (final Exception ex) {
+                log.warn("Failed to cancel task " + this.task, ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+        return this.state.get() != RUNNING;
+    }
+
+}
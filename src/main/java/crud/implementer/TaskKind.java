@@ -0,0 +1,39 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+
+/**
+ * What a {@link Task} does, for the purposes of
+ * {@link TaskStatistics instrumentation}.
+ *
+ * @see SessionWorker#scheduleHot(Task, TaskKind)
+ * @see SessionWorker#scheduleCold(Task, TaskKind)
+ *
+ * @author Rick Warren
+ */
+public enum TaskKind {
+    /**
+     * The default for {@link SessionWorker#scheduleCold(Task)}.
+     */
+    READ,
+    /**
+     * The default for {@link SessionWorker#scheduleHot(Task)}.
+     */
+    WRITE,
+    COMMIT,
+    ROLLBACK,
+    SHUTDOWN
+}
@@ -0,0 +1,56 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Notified of the progress of each {@link Task} through a
+ * {@link SessionWorker}, for export to a metrics system. Every Task is
+ * first {@link #taskQueued(TaskKind) queued}, and then either
+ * {@link #taskDropped(TaskKind) dropped} without running -- because its
+ * subscriber went away, or its {@link Deadline} passed, or the worker shut
+ * down -- or {@link #taskStarted(TaskKind, long) started} and then
+ * {@link #taskFinished(TaskKind, long, boolean) finished}.
+ * <p/>
+ * Implementations are called synchronously, in the thread scheduling or
+ * running the Task, so they must be fast, thread-safe, and must not throw.
+ *
+ * @see SessionWorker#addTaskListener(TaskListener)
+ * @see DataBusWorker#addTaskListener(TaskListener)
+ * @see TaskStatistics
+ *
+ * @author Rick Warren
+ */
+public interface TaskListener {
+
+    void taskQueued(@Nonnull TaskKind kind);
+
+    /**
+     * @param queueWaitNanos    How long the task waited, from when it was
+     *                          queued until now.
+     */
+    void taskStarted(@Nonnull TaskKind kind, long queueWaitNanos);
+
+    /**
+     * @param executionNanos    How long the task ran.
+     * @param succeeded         False if the task threw an exception.
+     */
+    void taskFinished(@Nonnull TaskKind kind, long executionNanos, boolean succeeded);
+
+    void taskDropped(@Nonnull TaskKind kind);
+
+}
@@ -0,0 +1,132 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The built-in {@link TaskListener}, which every {@link SessionWorker}
+ * keeps for itself: how many tasks of each {@link TaskKind} it has run, how
+ * many are waiting now, and how long they have spent waiting and running.
+ * Distinguishing those last two tells whether a slow {@link crud.core.Session}
+ * is slow because of its middleware, or because too much work is queued
+ * behind it.
+ *
+ * @see SessionWorker#getTaskStatistics()
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class TaskStatistics implements TaskListener {
+
+    private static final int NUM_KINDS = TaskKind.values().length;
+
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+    private final AtomicLongArray finishedCounts = new AtomicLongArray(NUM_KINDS);
+    private final AtomicLongArray failedCounts = new AtomicLongArray(NUM_KINDS);
+    private final AtomicLongArray droppedCounts = new AtomicLongArray(NUM_KINDS);
+    private final LatencyHistogram queueWaitTimes = new LatencyHistogram();
+    private final LatencyHistogram executionTimes = new LatencyHistogram();
+
+
+    /**
+     * The number of tasks queued, but not yet started or dropped.
+     */
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    /**
+     * The number of tasks of the given kind that have run to completion,
+     * whether successfully or not.
+     */
+    public long getFinishedCount(@Nonnull final TaskKind kind) {
+        return this.finishedCounts.get(kind.ordinal());
+    }
+
+    /**
+     * The number of tasks of the given kind that ran, and threw an
+     * exception.
+     */
+    public long getFailedCount(@Nonnull final TaskKind kind) {
+        return this.failedCounts.get(kind.ordinal());
+    }
+
+    /**
+     * The number of tasks of the given kind that never ran: because their
+     * subscribers went away, or their {@link Deadline}s passed, or the
+     * worker shut down.
+     */
+    public long getDroppedCount(@Nonnull final TaskKind kind) {
+        return this.droppedCounts.get(kind.ordinal());
+    }
+
+    /**
+     * The time each task spent between being queued and starting to run.
+     */
+    public @Nonnull LatencyHistogram getQueueWaitTimes() {
+        return this.queueWaitTimes;
+    }
+
+    /**
+     * The time each task spent running.
+     */
+    public @Nonnull LatencyHistogram getExecutionTimes() {
+        return this.executionTimes;
+    }
+
+    @Override
+    public void taskQueued(final TaskKind kind) {
+        this.queueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void taskStarted(final TaskKind kind, final long queueWaitNanos) {
+        this.queueDepth.decrementAndGet();
+        this.queueWaitTimes.record(queueWaitNanos);
+    }
+
+    @Override
+    public void taskFinished(final TaskKind kind, final long executionNanos, final boolean succeeded) {
+        this.executionTimes.record(executionNanos);
+        this.finishedCounts.incrementAndGet(kind.ordinal());
+        if (!succeeded) {
+            this.failedCounts.incrementAndGet(kind.ordinal());
+        }
+    }
+
+    @Override
+    public void taskDropped(final TaskKind kind) {
+        this.queueDepth.decrementAndGet();
+        this.droppedCounts.incrementAndGet(kind.ordinal());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(getClass().getSimpleName());
+        buf.append("(queueDepth=").append(getQueueDepth());
+        for (final TaskKind kind : TaskKind.values()) {
+            buf.append(", ").append(kind.name().toLowerCase()).append('=').append(getFinishedCount(kind));
+        }
+        buf.append(')');
+        return buf.toString();
+    }
+
+}
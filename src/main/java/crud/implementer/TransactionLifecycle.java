@@ -64,7 +64,7 @@ public abstract class TransactionLifecycle {
      * {@link TransactedSession#commit()} implementation to this method.
      */
     public final Observable<Void> commit() {
-        return this.worker.scheduleHot(this.commitTask);
+        return this.worker.scheduleHot(this.commitTask, TaskKind.COMMIT);
     }
 
     /**
@@ -73,7 +73,7 @@ public abstract class TransactionLifecycle {
      * {@link TransactedSession#rollback()} implementation to this method.
      */
     public final Observable<Void> rollback() {
-        return this.worker.scheduleHot(this.rollbackTask);
+        return this.worker.scheduleHot(this.rollbackTask, TaskKind.ROLLBACK);
     }
 
     /**
@@ -0,0 +1,249 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import crud.core.AsyncCloseable;
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Resource;
+import crud.core.Session;
+import crud.core.WritableResource;
+import crud.core.WritableResourceSet;
+import rx.Observable;
+import rx.functions.Func1;
+
+
+/**
+ * An {@link crud.core.Session.Ordering#UNORDERED unordered} {@link Session}
+ * that does its work in parallel, on several "lanes". Each lane is itself an
+ * ordered Session, with its own worker and its own connection to the
+ * middleware. Successive operations on a {@link Resource} obtained from
+ * this Session are spread across those lanes, so independent reads and
+ * writes can run concurrently.
+ * <p/>
+ * {@link ReadableResourceSet} and {@link WritableResourceSet}
+ * implementations should recognize this class, and delegate their
+ * {@code get} methods to {@link #get(ReadableResourceSet, Object)} or
+ * {@link #get(WritableResourceSet, Object)} respectively. Those will call
+ * back to the ResourceSet once for each lane.
+ *
+ * @see AbstractDataBus#doStartUnorderedSession()
+ * @see DataBusWorker#create(SessionExecutorFactory, int)
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class UnorderedSession extends AbstractAsyncCloseable implements Session {
+
+    private @Nonnull final ImmutableList<Session> lanes;
+
+
+    /**
+     * @param lanes The ordered {@link Session}s across which work will be
+     *              spread. This new Session takes ownership of them, and
+     *              will shut them down when it is shut down.
+     *
+     * @throws IllegalArgumentException If there are no lanes.
+     */
+    public UnorderedSession(@Nonnull final List<? extends Session> lanes) {
+        this.lanes = ImmutableList.copyOf(lanes);
+        Preconditions.checkArgument(!this.lanes.isEmpty(), "no lanes");
+    }
+
+    @Override
+    public Session.Ordering getOrdering() {
+        return Session.Ordering.UNORDERED;
+    }
+
+    /**
+     * The ordered {@link Session}s that do the work of this one.
+     */
+    public @Nonnull List<Session> getLanes() {
+        return this.lanes;
+    }
+
+    /**
+     * Get a {@link ReadableResource} for the given key from each lane, and
+     * return a ReadableResource that spreads successive
+     * {@link ReadableResource#read() reads} among them.
+     */
+    public <KEY, RSRC> ReadableResource<RSRC> get(
+            @Nonnull final ReadableResourceSet<KEY, RSRC> rsrcSet,
+            @Nonnull final KEY key) {
+        return new RoundRobinReadableResource<>(getLaneResources(rsrcSet, key));
+    }
+
+    /**
+     * Get a {@link ReadableResource} for the given key from each lane, and
+     * return a ReadableResource whose {@link ReadableResource#read() reads}
+     * merge the elements read from all of them. This is appropriate when
+     * each lane observes different elements -- for example, competing
+     * consumers of a message queue -- rather than re-executing the same
+     * query.
+     */
+    public <KEY, RSRC> ReadableResource<RSRC> getMerged(
+            @Nonnull final ReadableResourceSet<KEY, RSRC> rsrcSet,
+            @Nonnull final KEY key) {
+        return new MergedReadableResource<>(getLaneResources(rsrcSet, key));
+    }
+
+    /**
+     * Get a {@link WritableResource} for the given key from each lane, and
+     * return a WritableResource that spreads successive
+     * {@link WritableResource#write(Object) writes} among them.
+     */
+    public <KEY, RSRC, RESPONSE> WritableResource<RSRC, RESPONSE> get(
+            @Nonnull final WritableResourceSet<KEY, RSRC, RESPONSE> rsrcSet,
+            @Nonnull final KEY key) {
+        return new RoundRobinWritableResource<>(getLaneResources(new Func1<Session, WritableResource<RSRC, RESPONSE>>() {
+            @Override
+            public WritableResource<RSRC, RESPONSE> call(final Session lane) {
+                return rsrcSet.get(key, lane);
+            }
+        }));
+    }
+
+    /**
+     * Create a {@link Resource} for each lane, with the given function.
+     * ResourceSets whose resources implement more than the
+     * {@link ReadableResource} or {@link WritableResource} interface can
+     * use this, along with {@link PerLaneResources}, to spread work across
+     * lanes without hiding that interface.
+     */
+    public <R extends Resource<?>> List<R> getLaneResources(
+            @Nonnull final Func1<? super Session, ? extends R> laneResourceFactory) {
+        final List<R> laneResources = new ArrayList<>(this.lanes.size());
+        for (final Session lane : this.lanes) {
+            laneResources.add(laneResourceFactory.call(lane));
+        }
+        return laneResources;
+    }
+
+    /**
+     * Shut down all lanes in parallel.
+     */
+    @Override
+    public Observable<Void> shutdown() {
+        return shutdownAll(this.lanes);
+    }
+
+    private static Observable<Void> shutdownAll(final List<? extends AsyncCloseable> closeables) {
+        // Each shutdown() is hot, so they all proceed at once:
+        final List<Observable<Void>> results = new ArrayList<>(closeables.size());
+        for (final AsyncCloseable closeMe : closeables) {
+            results.add(closeMe.shutdown());
+        }
+        return Observable.merge(results).ignoreElements();
+    }
+
+
+    private <KEY, RSRC> List<ReadableResource<RSRC>> getLaneResources(
+            final ReadableResourceSet<KEY, RSRC> rsrcSet,
+            final KEY key) {
+        return getLaneResources(new Func1<Session, ReadableResource<RSRC>>() {
+            @Override
+            public ReadableResource<RSRC> call(final Session lane) {
+                return rsrcSet.get(key, lane);
+            }
+        });
+    }
+
+
+    /**
+     * A fixed list of {@link Resource}s, one per lane, obtained from
+     * {@link UnorderedSession#getLaneResources(Func1)}. Subclasses pass
+     * each operation to the {@link #nextLane() next} of them in turn, and
+     * shut them all down together.
+     */
+    @ThreadSafe
+    public static abstract class PerLaneResources<R extends Resource<?>> {
+        private final List<R> laneResources;
+        private final AtomicInteger next = new AtomicInteger(0);
+
+        protected PerLaneResources(@Nonnull final List<R> laneResources) {
+            Preconditions.checkArgument(!laneResources.isEmpty(), "no lanes");
+            this.laneResources = ImmutableList.copyOf(laneResources);
+        }
+
+        protected final R nextLane() {
+            final int index = (this.next.getAndIncrement() & Integer.MAX_VALUE) % this.laneResources.size();
+            return this.laneResources.get(index);
+        }
+
+        public final Observable<Void> shutdown() {
+            return shutdownAll(this.laneResources);
+        }
+    }
+
+
+    private static final class RoundRobinReadableResource<RSRC>
+    extends PerLaneResources<ReadableResource<RSRC>>
+    implements ReadableResource<RSRC> {
+        public RoundRobinReadableResource(final List<ReadableResource<RSRC>> laneResources) {
+            super(laneResources);
+        }
+
+        @Override
+        public Observable<RSRC> read() {
+            return nextLane().read();
+        }
+    }
+
+
+    private static final class MergedReadableResource<RSRC>
+    extends PerLaneResources<ReadableResource<RSRC>>
+    implements ReadableResource<RSRC> {
+        private final Observable<RSRC> merged;
+
+        public MergedReadableResource(final List<ReadableResource<RSRC>> laneResources) {
+            super(laneResources);
+            final List<Observable<RSRC>> reads = new ArrayList<>(laneResources.size());
+            for (final ReadableResource<RSRC> laneResource : laneResources) {
+                reads.add(laneResource.read());
+            }
+            this.merged = Observable.merge(reads);
+        }
+
+        @Override
+        public Observable<RSRC> read() {
+            return this.merged;
+        }
+    }
+
+
+    private static final class RoundRobinWritableResource<RSRC, RESPONSE>
+    extends PerLaneResources<WritableResource<RSRC, RESPONSE>>
+    implements WritableResource<RSRC, RESPONSE> {
+        public RoundRobinWritableResource(final List<WritableResource<RSRC, RESPONSE>> laneResources) {
+            super(laneResources);
+        }
+
+        @Override
+        public Observable<RESPONSE> write(final RSRC newValue) {
+            return nextLane().write(newValue);
+        }
+    }
+
+}
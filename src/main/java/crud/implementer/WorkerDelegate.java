@@ -15,24 +15,30 @@
 package crud.implementer;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import crud.core.AsyncCloseable;
 import crud.core.MiddlewareException;
+import rx.Notification;
 import rx.Observable;
 import rx.Observer;
-import rx.Scheduler;
 import rx.Subscriber;
-import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
 
 
 /**
@@ -48,10 +54,20 @@ import rx.functions.Action1;
 @ThreadSafe
 /*package*/ final class WorkerDelegate {
 
+    private static final long NO_TIMEOUT = -1L;
+
     /**
-     * All {@link Task}s run here.
+     * All {@link Task}s run here, whether {@link #scheduleHot(Task, TaskKind)
+     * hot} or {@link #scheduleCold(Task, TaskKind) cold}.
      */
-    private final Scheduler scheduler;
+    private final Executor executor;
+
+    private final TaskStatistics statistics = new TaskStatistics();
+    /**
+     * The {@link #statistics}, plus any listeners
+     * {@link #addTaskListener(TaskListener) added} to them.
+     */
+    private volatile TaskListener listener = this.statistics;
 
     /**
      * The first phase of the shutdown process is to call the
@@ -68,7 +84,7 @@ import rx.functions.Action1;
      * to any {@link Observable}s created by {@link #scheduleCold(Task)},
      * there is an unavoidable race condition, wherein the application can
      * attempt to schedule more work after the final task ha been scheduled,
-     * but before the {@link #scheduler} is shut down. This flag is used to
+     * but before the {@link #executor} is shut down. This flag is used to
      * work around that condition.
      *
      * @see #hasShutdownBeenCalled
@@ -76,66 +92,288 @@ import rx.functions.Action1;
     private volatile boolean hasFinalTaskBeenRun = false;
     /**
      * All of these will be {@link AsyncCloseable#shutdown() shut down} first
-     * as part of this worker's {@link #shutdown(Task, long, TimeUnit)}
-     * process.
+     * as part of this worker's {@link #shutdown(Task)} process, unless they
+     * {@link #removePreShutdownHook(AsyncCloseable) remove} themselves
+     * first. Whoever removes a hook from this set is responsible for
+     * shutting it down, so no hook can be shut down twice.
      */
-    private final Set<AsyncCloseable> preShutdownHooks = new LinkedHashSet<>();
+    private final Set<AsyncCloseable> preShutdownHooks = Collections.newSetFromMap(
+            new ConcurrentHashMap<AsyncCloseable, Boolean>());
 
 
-    public WorkerDelegate(@Nonnull final Scheduler scheduler) {
-        this.scheduler = Objects.requireNonNull(scheduler);
+    public WorkerDelegate(@Nonnull final Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Wrap the given {@link Task} in an {@link Observable}, each
+     * subscription to which will run the task on the {@link Executor}
+     * encapsulated by this {@link SessionWorker worker}. This method only
+     * creates the {@link Observable}; it does not subscribe to it.
+     *
+     * @see #scheduleHot(Task, TaskKind)
+     */
+    public <T> Observable<T> scheduleCold(final Task<T> task, final TaskKind kind) {
+        return scheduleCold(task, kind, NO_TIMEOUT);
     }
 
     /**
-     * Wrap the given {@link Action1 action} in an {@link Observable} and
-     * schedule its subscription to run on the {@link Scheduler} encapsulated
-     * by this {@link SessionWorker worker}. This method only creates the
-     * {@link Observable}; it does not subscribe to it.
+     * Wrap the given {@link StreamingTask}s in an {@link Observable}. Each
+     * subscription will create a new task, and will pull elements from it
+     * on the {@link Executor} encapsulated by this worker only as they are
+     * {@link rx.Producer#request(long) requested}.
      *
-     * @see #scheduleHot(Task, boolean)
+     * @see StreamingTaskProducer
      */
-    public <T> Observable<T> scheduleCold(final Task<T> task, final boolean isFinalTask) {
+    public <T> Observable<T> scheduleStreaming(
+            final Func0<? extends StreamingTask<T>> taskFactory,
+            final TaskKind kind) {
+        return scheduleStreaming(taskFactory, kind, NO_TIMEOUT);
+    }
+
+    /**
+     * Like {@link #scheduleStreaming(Func0, TaskKind)}, but give each task
+     * the given amount of time to be {@link StreamingTask#open() opened},
+     * starting from its subscription.
+     *
+     * @see Deadline
+     */
+    public <T> Observable<T> scheduleStreaming(
+            final Func0<? extends StreamingTask<T>> taskFactory,
+            final TaskKind kind,
+            final long timeout,
+            final TimeUnit unit) {
+        return scheduleStreaming(taskFactory, kind, unit.toNanos(timeout));
+    }
+
+    private <T> Observable<T> scheduleStreaming(
+            final Func0<? extends StreamingTask<T>> taskFactory,
+            final TaskKind kind,
+            final long timeoutNanos) {
         final Observable.OnSubscribe<T> onSubscribe = new Observable.OnSubscribe<T>() {
             @Override
             public void call(final Subscriber<? super T> sub) {
-                if (isFinalTask) {
-                    WorkerDelegate.this.hasFinalTaskBeenRun = true;
-                } else if (WorkerDelegate.this.hasFinalTaskBeenRun) {
-                    throw new RejectedExecutionException("Session already shut down");
+                final Deadline deadline = (timeoutNanos == NO_TIMEOUT)
+                        ? null
+                        : Deadline.after(timeoutNanos, TimeUnit.NANOSECONDS);
+                final StreamingTaskProducer<T> producer = new StreamingTaskProducer<>(
+                        WorkerDelegate.this,
+                        taskFactory.call(),
+                        sub,
+                        kind,
+                        deadline);
+                producer.start();
+            }
+        };
+        return Observable.create(onSubscribe);
+    }
+
+    /**
+     * Like {@link #scheduleCold(Task, TaskKind)}, but give the task the
+     * given amount of time to complete, starting from each subscription.
+     *
+     * @see Deadline
+     */
+    public <T> Observable<T> scheduleCold(
+            final Task<T> task,
+            final TaskKind kind,
+            final long timeout,
+            final TimeUnit unit) {
+        return scheduleCold(task, kind, unit.toNanos(timeout));
+    }
+
+    /**
+     * Submit the given {@link Task} to run immediately on the
+     * {@link Executor} encapsulated by this {@link SessionWorker worker}, and
+     * return an {@link Observable} that will replay its results to every
+     * subscriber. This allows the task to begin immediately, but allows the
+     * caller to see every resulting value. Note that the retention of those
+     * results assumes that their number is relatively small.
+     *
+     * @see #scheduleCold(Task, TaskKind)
+     * @see HotTaskResult
+     */
+    public <T> Observable<T> scheduleHot(final Task<T> task, final TaskKind kind) {
+        return scheduleHot(task, kind, false, null);
+    }
+
+    /**
+     * Like {@link #scheduleHot(Task, TaskKind)}, but give the task the given
+     * amount of time to complete, starting now.
+     *
+     * @see Deadline
+     */
+    public <T> Observable<T> scheduleHot(
+            final Task<T> task,
+            final TaskKind kind,
+            final long timeout,
+            final TimeUnit unit) {
+        return scheduleHot(task, kind, false, Deadline.after(timeout, unit));
+    }
+
+    /**
+     * The built-in record of the {@link Task}s run by this delegate.
+     */
+    public @Nonnull TaskStatistics getTaskStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Notify the given listener, in addition to the
+     * {@link #getTaskStatistics() statistics}, of the progress of each
+     * {@link Task} scheduled from now on.
+     */
+    public synchronized void addTaskListener(@Nonnull final TaskListener newListener) {
+        this.listener = new CompositeTaskListener(this.listener, newListener);
+    }
+
+    /**
+     * Run the given {@link Task} in the calling thread, which should belong
+     * to this delegate's {@link Executor}, on behalf of both
+     * {@link #scheduleCold(Task, TaskKind)} and
+     * {@link #scheduleHot(Task, TaskKind)}.
+     * <p/>
+     * A task whose subscriber has already unsubscribed will not be run. A
+     * {@link CancellableTask} whose subscriber unsubscribes while it is
+     * running will be {@link CancellableTask#cancel() cancelled}. A task
+     * whose {@link Deadline} passes before it can run will fail with a
+     * {@link TimeoutException}; otherwise, the deadline will be
+     * {@link Deadline#current() current} while it runs.
+     *
+     * @param queuedNanos   The {@link System#nanoTime()} at which the task
+     *                      was queued.
+     */
+    /*package*/ <T> void runTask(
+            final Task<T> task,
+            final Subscriber<? super T> sub,
+            final TaskKind kind,
+            final boolean isFinalTask,
+            @Nullable final Deadline deadline,
+            final long queuedNanos) {
+        final TaskListener raceFreeListener = this.listener;
+        if (isFinalTask) {
+            this.hasFinalTaskBeenRun = true;
+        } else if (this.hasFinalTaskBeenRun) {
+            raceFreeListener.taskDropped(kind);
+            sub.onError(new RejectedExecutionException("Session already shut down"));
+            return;
+        }
+
+        if (sub.isUnsubscribed()) {
+            // Abandoned while it was queued; don't waste time running it:
+            raceFreeListener.taskDropped(kind);
+            return;
+        }
+        if (deadline != null && deadline.isExpired()) {
+            raceFreeListener.taskDropped(kind);
+            sub.onError(new TimeoutException("Task timed out before it could run"));
+            return;
+        }
+
+        final TaskCanceller canceller = (task instanceof CancellableTask)
+                ? new TaskCanceller((CancellableTask<T>) task)
+                : null;
+        if (canceller != null) {
+            sub.add(canceller);
+        }
+
+        final Deadline previousDeadline = (deadline != null) ? Deadline.setCurrent(deadline) : null;
+        final long startNanos = System.nanoTime();
+        raceFreeListener.taskStarted(kind, startNanos - queuedNanos);
+        boolean returned = false;
+        try {
+            try {
+                task.call(sub);
+                returned = true;
+            } finally {
+                /* Before onCompleted(), which may unsubscribe, and so would
+                 * otherwise cancel a task that has already finished.
+                 */
+                if (canceller != null) {
+                    canceller.taskFinished();
                 }
+                if (deadline != null) {
+                    Deadline.setCurrent(previousDeadline);
+                }
+                raceFreeListener.taskFinished(kind, System.nanoTime() - startNanos, returned);
+            }
+            sub.onCompleted();
+        } catch (final MiddlewareException mx) {
+            sub.onError(mx);
+        } catch (final Exception ex) {
+            sub.onError(new MiddlewareException(ex.getMessage(), ex));
+        }
+    }
+
+    /**
+     * Told of the tasks run by this worker, including the bursts of
+     * {@link StreamingTask}s.
+     */
+    /*package*/ @Nonnull TaskListener getTaskListener() {
+        return this.listener;
+    }
+
+    /**
+     * Tasks that would run after this returns true must instead fail.
+     */
+    /*package*/ boolean hasFinalTaskBeenRun() {
+        return this.hasFinalTaskBeenRun;
+    }
 
-                try {
-                    task.call(sub);
-                    sub.onCompleted();
-                } catch (final MiddlewareException mx) {
-                    sub.onError(mx);
-                } catch (final Exception ex) {
-                    sub.onError(new MiddlewareException(ex.getMessage(), ex));
+    /**
+     * @param timeoutNanos  {@link #NO_TIMEOUT} if there is none.
+     */
+    private <T> Observable<T> scheduleCold(
+            final Task<T> task,
+            final TaskKind kind,
+            final long timeoutNanos) {
+        final Observable.OnSubscribe<T> onSubscribe = new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> sub) {
+                // Start the clocks in the subscribing thread, before queuing:
+                final long queuedNanos = System.nanoTime();
+                final Deadline deadline = (timeoutNanos == NO_TIMEOUT)
+                        ? null
+                        : Deadline.after(timeoutNanos, TimeUnit.NANOSECONDS);
+                final Runnable runTask = new Runnable() {
+                    @Override
+                    public void run() {
+                        runTask(task, sub, kind, false, deadline, queuedNanos);
+                    }
+                };
+                if (!execute(runTask, kind)) {
+                    sub.onError(new RejectedExecutionException("Session already shut down"));
                 }
             }
         };
-        return Observable.create(onSubscribe).subscribeOn(this.scheduler);
+        return Observable.create(onSubscribe);
+    }
+
+    private <T> Observable<T> scheduleHot(
+            final Task<T> task,
+            final TaskKind kind,
+            final boolean isFinalTask,
+            @Nullable final Deadline deadline) {
+        final HotTaskResult<T> result = new HotTaskResult<>(this, task, kind, isFinalTask, deadline);
+        if (!execute(result, kind)) {
+            result.onError(new RejectedExecutionException("Session already shut down"));
+        }
+        return result.asObservable();
     }
 
     /**
-     * Wrap the given {@link Action1 action} in an {@link Observable} and
-     * schedule its subscription to run on the {@link Scheduler} encapsulated
-     * by this {@link SessionWorker worker}. Then
-     * {@link Observable#cache() cache} the result, and begin the
-     * subscription. This allows the subscription action to begin immediately,
-     * but allows the caller to see every resulting value. Note that the use
-     * of cache() assumes that the number of those results is relatively
-     * small.
-     *
-     * @see #scheduleCold(Task, boolean)
+     * @return  False if the {@link #executor} rejected the task.
      */
-    public <T> Observable<T> scheduleHot(final Task<T> task, final boolean isFinalTask) {
-        final Observable<T> obs = scheduleCold(task, isFinalTask).cache();
-        /* The no-argument subscribe() does not handle errors, so
-         * materialize() so that it won't see any.
-         */
-        obs.materialize().subscribe();
-        return obs;
+    /*package*/ boolean execute(final Runnable runTask, final TaskKind kind) {
+        final TaskListener raceFreeListener = this.listener;
+        raceFreeListener.taskQueued(kind);
+        try {
+            this.executor.execute(runTask);
+            return true;
+        } catch (final RejectedExecutionException rex) {
+            raceFreeListener.taskDropped(kind);
+            return false;
+        }
     }
 
     /**
@@ -147,30 +385,39 @@ import rx.functions.Action1;
      *              {@link #shutdown(Task)} itself.
      */
     public void addPreShutdownHook(@Nonnull final AsyncCloseable shutMeDown) {
-        /* Ugly lock double checking with the following rationale:
-         *  1. If shutdown() was called before this method, fail fast with the
-         *     first check of hasShutdownBeenCalled.
-         *  2. ...But that alone would have a race condition, if shutdown()
-         *     were called after the check but before (or worse, during) the
-         *     call to add(). Therefore, serialize access to the preShutdownHooks, and
-         *     check hasShutdownBeenCalled again. If this method won the serialization
-         *     race, shutdown() won't visit any preShutdownHooks until the new one has
-         *     been added. But if shutdown() won the race, then the previous
-         *     preShutdownHooks have already been shut down; don't add a new one.
+        if (this.hasShutdownBeenCalled.get()) {
+            throw new IllegalStateException("already shut down");
+        }
+        this.preShutdownHooks.add(shutMeDown);
+        /* If shutdown() was called concurrently, it may or may not have seen
+         * the new hook: each of us writes first, and reads second, so at
+         * least one of us sees what the other wrote. If we can still remove
+         * the hook, shutdown() didn't claim it, so fail. Otherwise,
+         * shutdown() has claimed it, and will shut it down.
          */
-        if (!this.hasShutdownBeenCalled.get()) {
-            synchronized (this.preShutdownHooks) {
-                if (!this.hasShutdownBeenCalled.get()) {
-                    this.preShutdownHooks.add(shutMeDown);
-                } else {
-                    throw new IllegalStateException("already shut down");
-                }
-            }
-        } else {
+        if (this.hasShutdownBeenCalled.get() && this.preShutdownHooks.remove(shutMeDown)) {
             throw new IllegalStateException("already shut down");
         }
     }
 
+    /**
+     * Forget a listener previously
+     * {@link #addPreShutdownHook(AsyncCloseable) added}, typically because
+     * it is shutting down on its own. Otherwise, a long-lived worker would
+     * retain every short-lived child ever registered with it. If the
+     * listener is not registered, do nothing.
+     */
+    public void removePreShutdownHook(@Nonnull final AsyncCloseable shutMeDown) {
+        this.preShutdownHooks.remove(shutMeDown);
+    }
+
+    /**
+     * For testing.
+     */
+    /*package*/ int getPreShutdownHookCount() {
+        return this.preShutdownHooks.size();
+    }
+
     /**
      * {@link #scheduleHot(Task, boolean) Schedule} the given
      * task after shutting down the
@@ -212,7 +459,9 @@ import rx.functions.Action1;
             final Observable<Void> shutdownHookResults = runPreShutdownHooks();
             final Observable<Void> taskResult = scheduleHot(
                     finalTask,
-                    true /*it's the final task*/);
+                    TaskKind.SHUTDOWN,
+                    true /*it's the final task*/,
+                    null);
 
             /* Concat in the order described in the JavaDoc above.
              * Per our conventions, no Observable<Void> should ever emit any
@@ -228,21 +477,166 @@ import rx.functions.Action1;
         }
     }
 
+    /**
+     * Like {@link #shutdown(Task)}, except that the
+     * {@link #addPreShutdownHook(AsyncCloseable) pre-shutdown hooks} are shut
+     * down according to the given {@link ShutdownPolicy}, and the final task
+     * does not run until they have all finished -- successfully or not -- or
+     * until the policy's deadline has passed. That's appropriate when the
+     * final task releases something the hooks depend on, like a connection,
+     * and the hooks run elsewhere than this delegate's own {@link Executor}.
+     */
+    public Observable<Void> shutdown(
+            @Nonnull final Task<Void> finalTask,
+            @Nonnull final ShutdownPolicy policy) {
+        if (!this.hasShutdownBeenCalled.getAndSet(true)) {
+            final Observable<Void> shutdownHookResults = runPreShutdownHooks(policy).cache();
+            final Observable<Void> taskResult = Observable.concat(
+                    // Run the final task regardless of how the hooks fared:
+                    shutdownHookResults.onErrorResumeNext(Observable.<Void>empty()),
+                    Observable.defer(new Func0<Observable<Void>>() {
+                        @Override
+                        public Observable<Void> call() {
+                            return scheduleHot(
+                                    finalTask,
+                                    TaskKind.SHUTDOWN,
+                                    true /*it's the final task*/,
+                                    null);
+                        }
+                    })).cache();
+            /* Make it hot, as the contract of shutdown() requires. The
+             * no-argument subscribe() does not handle errors, so
+             * materialize() so that it won't see any.
+             */
+            taskResult.materialize().subscribe();
+
+            // Concat in the order described in the JavaDoc of shutdown(Task):
+            return Observable.concat(taskResult, shutdownHookResults).ignoreElements();
+        } else {
+            return Observable.empty(); // do nothing
+        }
+    }
+
+    /**
+     * Shut down the hooks, no more than
+     * {@link ShutdownPolicy#getMaxConcurrentShutdowns()} at a time, and
+     * report the first error from any of them once all have finished, or a
+     * {@link TimeoutException} if the policy's deadline passes first.
+     */
+    private Observable<Void> runPreShutdownHooks(final ShutdownPolicy policy) {
+        final List<AsyncCloseable> hooks = claimPreShutdownHooks();
+
+        final Observable<Observable<Notification<Void>>> shutdowns = Observable.from(hooks).map(
+                new Func1<AsyncCloseable, Observable<Notification<Void>>>() {
+                    @Override
+                    public Observable<Notification<Void>> call(final AsyncCloseable shutMeDown) {
+                        /* Defer, so that the merge below can limit how many
+                         * shutdowns are under way at once. Materialize, so
+                         * that one failure doesn't stop the others.
+                         */
+                        return Observable.defer(new Func0<Observable<Void>>() {
+                            @Override
+                            public Observable<Void> call() {
+                                return shutMeDown.shutdown();
+                            }
+                        }).ignoreElements().materialize();
+                    }
+                });
+        /* The bounded merge allocates a buffer of the given size, so don't
+         * use it for an unbounded policy.
+         */
+        final int maxConcurrentShutdowns = policy.getMaxConcurrentShutdowns();
+        final Observable<Notification<Void>> merged = (maxConcurrentShutdowns < hooks.size())
+                ? Observable.merge(shutdowns, maxConcurrentShutdowns)
+                : Observable.merge(shutdowns);
+        final Observable<Void> firstError = merged
+                .reduce(
+                        Notification.<Void>createOnCompleted(),
+                        new Func2<Notification<Void>, Notification<Void>, Notification<Void>>() {
+                            @Override
+                            public Notification<Void> call(
+                                    final Notification<Void> firstSoFar,
+                                    final Notification<Void> next) {
+                                return firstSoFar.isOnError() ? firstSoFar : next;
+                            }
+                        })
+                .dematerialize();
+
+        if (policy.hasDeadline()) {
+            // Don't truncate sub-millisecond deadlines to zero:
+            final long deadlineNanos = policy.getDeadline(TimeUnit.NANOSECONDS);
+            return firstError.timeout(
+                    deadlineNanos,
+                    TimeUnit.NANOSECONDS,
+                    Observable.<Void>error(new TimeoutException(
+                            "Pre-shutdown hooks timed out after "
+                            + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + " ms")));
+        } else {
+            return firstError;
+        }
+    }
+
     private Observable<Void> runPreShutdownHooks() {
         final List<Observable<Void>> results = new ArrayList<>();
-        /* Synchronize to avoid clobbering the collection while a new
-         * member is being added.
-         */
-        synchronized (this.preShutdownHooks) {
-            for (final AsyncCloseable shutMeDown : this.preShutdownHooks) {
-                /* Per the contract of shutdown(), these result Observables
-                 * are hot. We don't need to subscribe to them here to make
-                 * the shutdowns happen.
-                 */
-                results.add(shutMeDown.shutdown());
-            }
+        for (final AsyncCloseable shutMeDown : claimPreShutdownHooks()) {
+            /* Per the contract of shutdown(), these result Observables
+             * are hot. We don't need to subscribe to them here to make
+             * the shutdowns happen.
+             */
+            results.add(shutMeDown.shutdown());
         }
         return Observable.concat(Observable.from(results));
     }
 
+    /**
+     * Remove all of the {@link #preShutdownHooks} that haven't yet removed
+     * themselves, and return them, to be shut down by the caller. Call only
+     * after setting {@link #hasShutdownBeenCalled}.
+     */
+    private List<AsyncCloseable> claimPreShutdownHooks() {
+        assert this.hasShutdownBeenCalled.get();
+        final List<AsyncCloseable> claimed = new ArrayList<>(this.preShutdownHooks.size());
+        for (final AsyncCloseable hook : this.preShutdownHooks) {
+            if (this.preShutdownHooks.remove(hook)) {
+                claimed.add(hook);
+            }
+        }
+        return claimed;
+    }
+
+
+    private static final class CompositeTaskListener implements TaskListener {
+        private final TaskListener first;
+        private final TaskListener second;
+
+        public CompositeTaskListener(final TaskListener first, final TaskListener second) {
+            this.first = Objects.requireNonNull(first);
+            this.second = Objects.requireNonNull(second);
+        }
+
+        @Override
+        public void taskQueued(final TaskKind kind) {
+            this.first.taskQueued(kind);
+            this.second.taskQueued(kind);
+        }
+
+        @Override
+        public void taskStarted(final TaskKind kind, final long queueWaitNanos) {
+            this.first.taskStarted(kind, queueWaitNanos);
+            this.second.taskStarted(kind, queueWaitNanos);
+        }
+
+        @Override
+        public void taskFinished(final TaskKind kind, final long executionNanos, final boolean succeeded) {
+            this.first.taskFinished(kind, executionNanos, succeeded);
+            this.second.taskFinished(kind, executionNanos, succeeded);
+        }
+
+        @Override
+        public void taskDropped(final TaskKind kind) {
+            this.first.taskDropped(kind);
+            this.second.taskDropped(kind);
+        }
+    }
+
 }
@@ -0,0 +1,288 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
+
+import crud.implementer.SessionWorker;
+import crud.implementer.StreamingTask;
+import crud.implementer.Task;
+import crud.implementer.TaskKind;
+import rx.Observable;
+import rx.Observer;
+import rx.Subscriber;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+
+/**
+ * The base of the {@link BulkWritableResource}s of a {@link JdbcSession}.
+ * Subclasses implement {@link #write(Object)}; this class implements the
+ * bulk writes, and notifies the session's {@link TableWriteListener}.
+ *
+ * @author Rick Warren
+ */
+/*package*/ abstract class AbstractUpdateResource
+extends StatementProvider<StatementParameters>
+implements BulkWritableResource {
+
+    private @Nonnull final TableWriteListener tableWriteListener;
+    private @Nonnull final Optional<String> writtenTable;
+
+
+    protected AbstractUpdateResource(
+            @Nonnull final StatementCache statements,
+            @Nonnull final StatementTemplate statementTemplate,
+            @Nonnull final SessionWorker worker,
+            @Nonnull final TableWriteListener tableWriteListener) {
+        super(statements, statementTemplate, worker);
+        this.tableWriteListener = Objects.requireNonNull(tableWriteListener);
+        this.writtenTable = TableNames.writtenTable(statementTemplate.getSql());
+    }
+
+    @Override
+    public Observable<Long> writeAll(@Nonnull final Observable<StatementParameters> params) {
+        Objects.requireNonNull(params, "null parameters");
+        final int batchRows = getBulkBatchRows();
+        return Observable.defer(new Func0<Observable<Long>>() {
+            @Override
+            public Observable<Long> call() {
+                final IteratorWrite bulk = new IteratorWrite(batchRows);
+                return params.buffer(batchRows).concatMap(new Func1<List<StatementParameters>, Observable<Long>>() {
+                    @Override
+                    public Observable<Long> call(final List<StatementParameters> batch) {
+                        return scheduleHot(new Task<Long>() {
+                            @Override
+                            public void call(final Subscriber<? super Long> sub) throws SQLException {
+                                bulk.setRows(batch.iterator());
+                                sub.onNext(bulk.executeBatch());
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public Observable<Long> writeAll(@Nonnull final Iterable<StatementParameters> params) {
+        Objects.requireNonNull(params, "null parameters");
+        final int batchRows = getBulkBatchRows();
+        return scheduleStreaming(new Func0<StreamingTask<Long>>() {
+            @Override
+            public StreamingTask<Long> call() {
+                return new IteratorWrite(batchRows) {
+                    @Override
+                    public void open() {
+                        setRows(params.iterator());
+                    }
+                };
+            }
+        }, TaskKind.WRITE);
+    }
+
+    @Override
+    public Observable<Long> writeAll(@Nonnull final ParameterBuffer.Source params) {
+        Objects.requireNonNull(params, "null parameters");
+        final int batchRows = getBulkBatchRows();
+        return scheduleStreaming(new Func0<StreamingTask<Long>>() {
+            @Override
+            public StreamingTask<Long> call() {
+                return new SourceWrite(params, batchRows);
+            }
+        }, TaskKind.WRITE);
+    }
+
+    /**
+     * Execute any writes that this resource is still holding, so that a
+     * bulk write follows them. Called in the worker thread, before each
+     * batch of a bulk write.
+     */
+    protected void executePendingWrites() throws SQLException {
+        // nothing held by default
+    }
+
+    /**
+     * Tell the session's {@link TableWriteListener} that this resource has
+     * written to its table. Call this in the worker thread.
+     */
+    protected final void tableWritten() {
+        this.tableWriteListener.tableWritten(this.writtenTable);
+    }
+
+    private int getBulkBatchRows() {
+        final int templateRows = getStatementTemplate().getWriteBatchRows();
+        return (templateRows > 0) ? templateRows : DEFAULT_BULK_BATCH_ROWS;
+    }
+
+
+    /**
+     * The progress of a single subscription to a bulk write, which
+     * executes one batch per burst of demand. Accessed only in the worker
+     * thread, except for {@link #cancel()}.
+     */
+    private abstract class BulkWrite implements StreamingTask<Long> {
+        private final int batchRows;
+        /**
+         * Exposes the statement, while a batch executes, to
+         * {@link #cancel()} in whatever thread unsubscribes.
+         */
+        private final StatementCanceller canceller = new StatementCanceller();
+        private long writeCount = 0L;
+        private boolean exhausted = false;
+
+        protected BulkWrite(final int batchRows) {
+            this.batchRows = batchRows;
+        }
+
+        /**
+         * Set the parameters of the next write on the given statement.
+         *
+         * @return  true if there was another write, or false if not.
+         */
+        protected abstract boolean bindNext(@Nonnull PreparedStatement statement) throws SQLException;
+
+        /**
+         * Whether there may be more writes. Subclasses that can tell
+         * without binding the next write should override this, to avoid
+         * a final, empty burst.
+         */
+        protected boolean hasMore() {
+            return !this.exhausted;
+        }
+
+        /**
+         * Execute up to a batch's worth of writes as a single JDBC batch.
+         *
+         * @return  The total number of writes executed so far.
+         */
+        public final long executeBatch() throws SQLException {
+            executePendingWrites();
+            final PreparedStatement statement = borrowStatement();
+            int batchedCount = 0;
+            try {
+                while (batchedCount < this.batchRows) {
+                    if (!bindNext(statement)) {
+                        this.exhausted = true;
+                        break;
+                    }
+                    statement.addBatch();
+                    ++batchedCount;
+                }
+                if (batchedCount > 0) {
+                    applyQueryTimeout(statement);
+                    this.canceller.startExecution(statement);
+                    statement.executeBatch();
+                }
+            } catch (final SQLException | RuntimeException ex) {
+                statement.clearBatch();
+                throw ex;
+            } finally {
+                releaseStatement(getStatementTemplate(), statement, this.canceller);
+                if (batchedCount > 0) {
+                    // Even if the batch failed, some of it may have been written:
+                    tableWritten();
+                }
+            }
+            this.writeCount += batchedCount;
+            return this.writeCount;
+        }
+
+        @Override
+        public void open() {
+            // nothing to prepare by default
+        }
+
+        @Override
+        public final boolean emitNext(final Observer<? super Long> observer) throws SQLException {
+            final long previousCount = this.writeCount;
+            final long newCount = executeBatch();
+            if (newCount > previousCount) {
+                observer.onNext(newCount);
+            }
+            return hasMore();
+        }
+
+        @Override
+        public final void close() {
+            // Each batch releases its statement.
+        }
+
+        @Override
+        public final void cancel() throws SQLException {
+            this.canceller.cancel();
+        }
+    }
+
+
+    private class IteratorWrite extends BulkWrite {
+        private @Nullable Iterator<StatementParameters> rows = null;
+
+        public IteratorWrite(final int batchRows) {
+            super(batchRows);
+        }
+
+        public final void setRows(@Nonnull final Iterator<StatementParameters> newRows) {
+            this.rows = newRows;
+        }
+
+        @Override
+        protected final boolean bindNext(final PreparedStatement statement) throws SQLException {
+            if (!this.rows.hasNext()) {
+                return false;
+            }
+            this.rows.next().substituteAll(statement);
+            return true;
+        }
+
+        @Override
+        protected final boolean hasMore() {
+            return this.rows.hasNext();
+        }
+    }
+
+
+    /**
+     * Fills a single {@link ParameterBuffer} for each write.
+     */
+    private final class SourceWrite extends BulkWrite {
+        private @Nonnull final ParameterBuffer.Source source;
+        private @Nonnull final ParameterBuffer buffer = new ParameterBuffer();
+
+        public SourceWrite(@Nonnull final ParameterBuffer.Source source, final int batchRows) {
+            super(batchRows);
+            this.source = source;
+        }
+
+        @Override
+        protected boolean bindNext(final PreparedStatement statement) throws SQLException {
+            if (!this.source.fill(this.buffer)) {
+                return false;
+            }
+            this.buffer.substituteAll(statement);
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,405 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+import crud.core.MiddlewareException;
+import crud.implementer.SessionWorker;
+import crud.implementer.Task;
+import rx.Observable;
+import rx.Observer;
+import rx.Subscriber;
+import rx.functions.Action1;
+import rx.subjects.AsyncSubject;
+
+
+/**
+ * An {@link UpdateResource} alternative, which accumulates writes in a
+ * JDBC batch, and executes them together. Alternatively, it may hold the
+ * parameters of INSERTs, and execute them as multi-row INSERTs.
+ *
+ * @see StatementTemplate#withWriteBatching(int, long, TimeUnit)
+ * @see StatementTemplate#withMultiRowInserts()
+ *
+ * @author Rick Warren
+ */
+/*package*/ final class BatchedUpdateResource extends AbstractUpdateResource {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchedUpdateResource.class);
+
+    private @Nonnull final JdbcSession session;
+    /**
+     * Present if writes are combined into multi-row INSERTs, rather than
+     * JDBC batches.
+     */
+    private @Nonnull final Optional<MultiRowInsert> multiRowInsert;
+    /**
+     * The templates of the multi-row INSERTs, indexed by the base-2
+     * logarithm of their numbers of rows. Created as needed, in the worker
+     * thread.
+     */
+    private @Nonnull final StatementTemplate[] multiRowTemplates;
+
+    // Accessed only in the worker thread:
+    private @Nullable PreparedStatement batchStmt = null;
+    private final List<AsyncSubject<Integer>> waitingWrites = new ArrayList<>();
+    /**
+     * The parameters of the waiting writes, if they're to be combined into
+     * multi-row INSERTs; otherwise, they're already in the batch.
+     */
+    private final List<StatementParameters> waitingRows = new ArrayList<>();
+    /**
+     * Incremented each time a batch is executed or discarded, so that a
+     * timer set for an earlier batch doesn't execute a later one early.
+     */
+    private long batchNumber = 0L;
+
+
+    public BatchedUpdateResource(
+            @Nonnull final StatementCache statements,
+            @Nonnull final StatementTemplate statementTemplate,
+            @Nonnull final SessionWorker worker,
+            @Nonnull final TableWriteListener tableWriteListener,
+            @Nonnull final JdbcSession session) {
+        super(statements, statementTemplate, worker, tableWriteListener);
+        this.session = Objects.requireNonNull(session);
+        this.multiRowInsert = statementTemplate.isMultiRowInsert()
+                ? MultiRowInsert.parse(statementTemplate.getSql())
+                : Optional.<MultiRowInsert>absent();
+        this.multiRowTemplates = new StatementTemplate[Integer.SIZE];
+    }
+
+    /**
+     * Add the write to the current batch, and return an Observable that
+     * completes when the batch is executed.
+     */
+    @Override
+    public Observable<Integer> write(@Nonnull final StatementParameters params) {
+        Objects.requireNonNull(params, "null parameters");
+        final AsyncSubject<Integer> result = AsyncSubject.create();
+        scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws SQLException {
+                addToBatch(params, result);
+            }
+        }).subscribe(new Observer<Void>() {
+            @Override
+            public void onNext(final Void ignored) {
+                // nothing emitted
+            }
+
+            @Override
+            public void onCompleted() {
+                // The result completes when the batch is executed.
+            }
+
+            @Override
+            public void onError(final Throwable ex) {
+                // Failed to add the write to the batch, or timed out first:
+                result.onError(ex);
+            }
+        });
+        return result.asObservable();
+    }
+
+    /**
+     * Execute the current batch, if there is one. Call this in the worker
+     * thread.
+     *
+     * @throws SQLException If any of the batch's writes failed, after
+     *          failing them. Others may have taken effect nonetheless.
+     */
+    /*package*/ void executeBatch() throws SQLException {
+        if (this.waitingWrites.isEmpty()) {
+            return;
+        }
+        final List<AsyncSubject<Integer>> batch = new ArrayList<>(this.waitingWrites);
+        this.waitingWrites.clear();
+        ++this.batchNumber;
+        if (this.multiRowInsert.isPresent()) {
+            final List<StatementParameters> rows = new ArrayList<>(this.waitingRows);
+            this.waitingRows.clear();
+            executeMultiRowInserts(this.multiRowInsert.get(), batch, rows);
+            return;
+        }
+        final PreparedStatement statement = this.batchStmt;
+        this.batchStmt = null;
+
+        int[] updateCounts;
+        SQLException failure = null;
+        try {
+            applyQueryTimeout(statement);
+            updateCounts = statement.executeBatch();
+        } catch (final BatchUpdateException ex) {
+            updateCounts = (ex.getUpdateCounts() != null) ? ex.getUpdateCounts() : new int[0];
+            failure = ex;
+        } catch (final SQLException ex) {
+            updateCounts = new int[0];
+            failure = ex;
+        }
+        try {
+            /* Even a failed batch may have written some rows, and in
+             * auto-commit mode they're visible already:
+             */
+            tableWritten();
+            if (failure != null) {
+                statement.clearBatch();
+            }
+        } finally {
+            releaseStatement(statement);
+            completeWrites(batch, updateCounts, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Abandon the current batch, if there is one, failing its writes with
+     * the given exception. Call this in the worker thread.
+     */
+    /*package*/ void discardBatch(@Nonnull final Exception cause) throws SQLException {
+        if (this.waitingWrites.isEmpty()) {
+            return;
+        }
+        final List<AsyncSubject<Integer>> batch = new ArrayList<>(this.waitingWrites);
+        this.waitingWrites.clear();
+        this.waitingRows.clear();
+        ++this.batchNumber;
+        final PreparedStatement statement = this.batchStmt;
+        this.batchStmt = null;
+        try {
+            if (statement != null) {
+                try {
+                    statement.clearBatch();
+                } finally {
+                    releaseStatement(statement);
+                }
+            }
+        } finally {
+            failWrites(batch, cause);
+        }
+    }
+
+    /**
+     * Execute the current batch before any bulk write, so that the writes
+     * are executed in the order in which they were requested.
+     */
+    @Override
+    protected void executePendingWrites() throws SQLException {
+        executeBatch();
+    }
+
+    /**
+     * Execute any writes that are still waiting.
+     */
+    @Override
+    protected void doShutdown() throws SQLException {
+        this.session.removeBatchedUpdate(this);
+        executeBatch();
+    }
+
+    private void addToBatch(
+            @Nonnull final StatementParameters params,
+            @Nonnull final AsyncSubject<Integer> result) throws SQLException {
+        if (this.multiRowInsert.isPresent()) {
+            final int expectedParams = this.multiRowInsert.get().getParametersPerRow();
+            if (params.size() != expectedParams) {
+                throw new SQLException("Expected " + expectedParams + " parameters, not " + params.size());
+            }
+            this.waitingRows.add(params);
+        } else {
+            if (this.batchStmt == null) {
+                this.batchStmt = borrowStatement();
+            }
+            params.substituteAll(this.batchStmt);
+            this.batchStmt.addBatch();
+        }
+        this.waitingWrites.add(result);
+
+        if (this.waitingWrites.size() >= getStatementTemplate().getWriteBatchRows()) {
+            executeBatch();
+        } else if (this.waitingWrites.size() == 1) {
+            startTimer(this.batchNumber);
+        }
+    }
+
+    /**
+     * Execute the given batch after the template's delay, unless it has
+     * been executed by then.
+     */
+    private void startTimer(final long timedBatchNumber) {
+        Observable.timer(getStatementTemplate().getWriteBatchDelayNanos(), TimeUnit.NANOSECONDS)
+            .subscribe(new Action1<Long>() {
+                @Override
+                public void call(final Long ignored) {
+                    scheduleHot(new Task<Void>() {
+                        @Override
+                        public void call(final Subscriber<? super Void> sub) throws SQLException {
+                            if (BatchedUpdateResource.this.batchNumber == timedBatchNumber) {
+                                executeBatch();
+                            }
+                        }
+                    }).subscribe(new Action1<Void>() {
+                        @Override
+                        public void call(final Void ignored) {
+                            // nothing emitted
+                        }
+                    }, new Action1<Throwable>() {
+                        @Override
+                        public void call(final Throwable ex) {
+                            // The batch's writes have been told already.
+                            log.debug("Timed execution of write batch failed", ex);
+                        }
+                    });
+                }
+            });
+    }
+
+    /**
+     * Insert the given rows with as few statements as the bucketed sizes
+     * allow. Each statement succeeds or fails by itself.
+     *
+     * @throws SQLException The first failure, once every statement has
+     *          been tried.
+     */
+    private void executeMultiRowInserts(
+            @Nonnull final MultiRowInsert insert,
+            @Nonnull final List<AsyncSubject<Integer>> batch,
+            @Nonnull final List<StatementParameters> rows) throws SQLException {
+        final int parametersPerRow = insert.getParametersPerRow();
+        final int maxRows = getStatementTemplate().getWriteBatchRows();
+        boolean anyInserted = false;
+        SQLException firstFailure = null;
+        int offset = 0;
+        while (offset < rows.size()) {
+            final int rowCount = insert.rowsInNextStatement(rows.size() - offset, maxRows);
+            final StatementTemplate template = multiRowTemplate(insert, rowCount);
+            final List<AsyncSubject<Integer>> writes = batch.subList(offset, offset + rowCount);
+            int insertedCount = -1;
+            SQLException failure = null;
+            final PreparedStatement statement;
+            try {
+                statement = borrowStatement(template);
+            } catch (final SQLException ex) {
+                failWrites(batch.subList(offset, batch.size()), ex);
+                if (anyInserted) {
+                    tableWritten();
+                }
+                throw ex;
+            }
+            try {
+                for (int i = 0; i < rowCount; ++i) {
+                    rows.get(offset + i).substituteAll(statement, i * parametersPerRow);
+                }
+                applyQueryTimeout(statement);
+                insertedCount = statement.executeUpdate();
+                anyInserted = true;
+            } catch (final SQLException ex) {
+                failure = ex;
+                if (firstFailure == null) {
+                    firstFailure = ex;
+                }
+            } finally {
+                try {
+                    releaseStatement(template, statement);
+                } finally {
+                    if (failure != null) {
+                        failWrites(writes, failure);
+                    } else {
+                        final int perWriteCount = (insertedCount == rowCount) ? 1 : Statement.SUCCESS_NO_INFO;
+                        for (final AsyncSubject<Integer> write : writes) {
+                            write.onNext(perWriteCount);
+                            write.onCompleted();
+                        }
+                    }
+                }
+            }
+            offset += rowCount;
+        }
+        if (anyInserted) {
+            tableWritten();
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    private @Nonnull StatementTemplate multiRowTemplate(
+            @Nonnull final MultiRowInsert insert,
+            final int rowCount) {
+        final int bucket = Integer.numberOfTrailingZeros(rowCount);
+        StatementTemplate template = this.multiRowTemplates[bucket];
+        if (template == null) {
+            template = getStatementTemplate().withSql(insert.sqlForRows(rowCount));
+            this.multiRowTemplates[bucket] = template;
+        }
+        return template;
+    }
+
+    private static void failWrites(
+            @Nonnull final List<AsyncSubject<Integer>> writes,
+            @Nonnull final Exception cause) {
+        final MiddlewareException error = toMiddlewareException(cause);
+        for (final AsyncSubject<Integer> write : writes) {
+            write.onError(error);
+        }
+    }
+
+    private static void completeWrites(
+            @Nonnull final List<AsyncSubject<Integer>> batch,
+            @Nonnull final int[] updateCounts,
+            @Nullable final SQLException failure) {
+        for (int i = 0; i < batch.size(); ++i) {
+            final AsyncSubject<Integer> write = batch.get(i);
+            if (i < updateCounts.length && updateCounts[i] != Statement.EXECUTE_FAILED) {
+                write.onNext(updateCounts[i]);
+                write.onCompleted();
+            } else {
+                write.onError(toMiddlewareException((failure != null)
+                        ? failure
+                        : new SQLException("No update count reported for write " + i + " of batch")));
+            }
+        }
+    }
+
+    /**
+     * Fail batched writes as {@link UpdateResource} writes fail, when
+     * {@link crud.implementer.SessionWorker} wraps their exceptions, so that
+     * batching doesn't change what callers must handle.
+     */
+    private static @Nonnull MiddlewareException toMiddlewareException(@Nonnull final Exception cause) {
+        return (cause instanceof MiddlewareException)
+                ? (MiddlewareException) cause
+                : new MiddlewareException(cause.getMessage(), cause);
+    }
+
+}
@@ -0,0 +1,76 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import javax.annotation.Nonnull;
+
+import crud.core.WritableResource;
+import rx.Observable;
+
+
+/**
+ * A {@link WritableResource} that can also execute many writes with a
+ * single {@link crud.core.Session} task per JDBC batch, rather than one
+ * task per write. The resources of a {@link JdbcDataBus}'s
+ * {@link crud.core.WritableResourceSet}s implement this interface.
+ * <p/>
+ * Unlike {@link #write(Object)}, the bulk writes are cold: each
+ * subscription executes all of the writes again. They are executed in
+ * order, after any writes previously requested of the same resource, in
+ * batches of {@link StatementTemplate#withWriteBatching(int, long,
+ * java.util.concurrent.TimeUnit) the template's batch size}, if it has
+ * one, or else of {@link #DEFAULT_BULK_BATCH_ROWS}. After each batch, the
+ * resulting Observable emits the total number of writes executed so far.
+ * If a batch fails, the Observable fails, and subsequent batches are not
+ * executed; whether the failed batch's earlier writes took effect depends
+ * on the driver, as with {@link java.sql.Statement#executeBatch()}.
+ *
+ * @author Rick Warren
+ */
+public interface BulkWritableResource extends WritableResource<StatementParameters, Integer> {
+
+    /**
+     * The number of writes executed together, if the template doesn't
+     * specify a batch size.
+     */
+    public static final int DEFAULT_BULK_BATCH_ROWS = 1000;
+
+    /**
+     * Execute a write for each set of parameters emitted by the given
+     * Observable. It is subscribed on subscription to the result, and its
+     * elements are collected into batches in whatever thread emits them.
+     */
+    public abstract Observable<Long> writeAll(@Nonnull Observable<StatementParameters> params);
+
+    /**
+     * Execute a write for each set of parameters in the given Iterable. It
+     * is iterated in the {@link crud.core.Session}'s worker thread, one
+     * batch at a time, as the subscriber {@link rx.Producer#request(long)
+     * requests} progress; other work of the same Session may proceed
+     * between batches.
+     */
+    public abstract Observable<Long> writeAll(@Nonnull Iterable<StatementParameters> params);
+
+    /**
+     * Execute a write for each time the given {@link ParameterBuffer.Source}
+     * fills a buffer. As with {@link #writeAll(Iterable)}, it is called in
+     * the {@link crud.core.Session}'s worker thread, one batch at a time,
+     * as the subscriber requests progress. A single buffer is reused for
+     * all of the writes, so a large number of writes allocate no
+     * {@link StatementParameters}.
+     */
+    public abstract Observable<Long> writeAll(@Nonnull ParameterBuffer.Source params);
+
+}
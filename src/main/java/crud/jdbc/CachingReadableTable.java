@@ -0,0 +1,370 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+
+/**
+ * A {@link ReadableResourceSet} that remembers the results of the queries
+ * read through another, so that repeated reads of the same
+ * {@link StatementTemplate} don't return to the database. This suits
+ * reference data, which is read often and modified seldom.
+ * <p/>
+ * Results are held as {@link RowSnapshot}s, since {@link ResultSetRow}s
+ * are not valid after the query completes. Each result is tagged with the
+ * tables its query reads. Whenever a {@link crud.core.WritableResourceSet} of the
+ * same {@link JdbcDataBus} modifies one of those tables, the result is
+ * forgotten: immediately in auto-commit mode, or when the transaction
+ * commits. Results are also forgotten when they reach their
+ * {@link Builder#timeToLive(long, TimeUnit) time to live}, which bounds
+ * the staleness caused by modifications made by other means; and when
+ * there are too many of them, least-recently-used first.
+ * <p/>
+ * Reads that find their results cached deliver them immediately, in the
+ * subscribing thread. Reads in a {@link crud.core.TransactedSession}
+ * bypass the cache altogether, since they may see uncommitted changes.
+ * <p/>
+ * The cache listens to its DataBus's writes until it is {@link #close()}d.
+ *
+ * @see JdbcDataBus
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class CachingReadableTable implements ReadableResourceSet<StatementTemplate, RowSnapshot> {
+
+    /**
+     * @see Builder#maximumSize(long)
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024L;
+
+    private @Nonnull final ReadableResourceSet<StatementTemplate, RowSnapshot> delegate;
+    private @Nonnull final Func1<? super StatementTemplate, ? extends Iterable<String>> tablesRead;
+    private @Nonnull final Cache<StatementTemplate, CachedResult> cache;
+    private @Nonnull final JdbcDataBus dataBus;
+    private @Nonnull final TableWriteListener writeListener = new TableWriteListener() {
+        @Override
+        public void tableWritten(final Optional<String> table) {
+            invalidate(table);
+        }
+    };
+    /**
+     * Incremented by every invalidation, so that reads that were under way
+     * at the time don't cache what may be out-of-date results.
+     */
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+
+    /**
+     * @param delegate  The {@link ReadableResourceSet}, obtained from the
+     *                  given {@link JdbcDataBus}, the results of which to
+     *                  cache.
+     * @param dataBus   The DataBus, writes through which invalidate cached
+     *                  results for as long as it runs.
+     */
+    public static @Nonnull Builder builder(
+            @Nonnull final ReadableResourceSet<StatementTemplate, RowSnapshot> delegate,
+            @Nonnull final JdbcDataBus dataBus) {
+        return new Builder(delegate, dataBus);
+    }
+
+    @Override
+    public ReadableResource<RowSnapshot> get(final StatementTemplate query, final Session session) {
+        final ReadableResource<RowSnapshot> resource = this.delegate.get(query, session);
+        if (this.closed || session.getOrdering() == Session.Ordering.TRANSACTED) {
+            return resource;
+        }
+        return new CachingResource(query, resource);
+    }
+
+    /**
+     * Forget all cached results.
+     */
+    public void invalidateAll() {
+        this.invalidationCount.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * @return  The number of results cached now.
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    public @Nonnull CacheStats getStatistics() {
+        return this.cache.stats();
+    }
+
+    /**
+     * Stop listening to the DataBus's writes, and forget all cached
+     * results. Reads through this table afterward go straight to the
+     * delegate. Closing more than once has no further effect.
+     */
+    public void close() {
+        this.dataBus.removeTableWriteListener(this.writeListener);
+        this.closed = true;
+        invalidateAll();
+    }
+
+    private CachingReadableTable(@Nonnull final Builder builder) {
+        this.delegate = builder.delegate;
+        this.tablesRead = builder.tablesRead;
+        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .ticker(builder.ticker)
+                .recordStats();
+        if (builder.timeToLiveNanos > 0L) {
+            cacheBuilder.expireAfterWrite(builder.timeToLiveNanos, TimeUnit.NANOSECONDS);
+        }
+        this.cache = cacheBuilder.build();
+        this.dataBus = builder.dataBus;
+        this.dataBus.addTableWriteListener(this.writeListener);
+    }
+
+    private Observable<RowSnapshot> read(
+            @Nonnull final StatementTemplate query,
+            @Nonnull final ReadableResource<RowSnapshot> resource) {
+        final CachedResult cached = this.cache.getIfPresent(query);
+        if (cached != null) {
+            return Observable.from(cached.rows);
+        }
+
+        final long invalidationsBefore = this.invalidationCount.get();
+        return resource.read().toList().concatMap(new Func1<List<RowSnapshot>, Observable<RowSnapshot>>() {
+            @Override
+            public Observable<RowSnapshot> call(final List<RowSnapshot> rows) {
+                final ImmutableList<RowSnapshot> result = ImmutableList.copyOf(rows);
+                store(query, result, invalidationsBefore);
+                return Observable.from(result);
+            }
+        });
+    }
+
+    private void store(
+            @Nonnull final StatementTemplate query,
+            @Nonnull final ImmutableList<RowSnapshot> rows,
+            final long invalidationsBefore) {
+        if (this.closed || this.invalidationCount.get() != invalidationsBefore) {
+            return;
+        }
+        final Iterable<String> tables = this.tablesRead.call(query);
+        this.cache.put(query, new CachedResult(rows, normalize(tables)));
+        // Did we race with an invalidation? If so, undo:
+        if (this.invalidationCount.get() != invalidationsBefore) {
+            this.cache.invalidate(query);
+        }
+    }
+
+    private void invalidate(@Nonnull final Optional<String> table) {
+        if (!table.isPresent()) {
+            invalidateAll();
+            return;
+        }
+        this.invalidationCount.incrementAndGet();
+        for (final Map.Entry<StatementTemplate, CachedResult> entry : this.cache.asMap().entrySet()) {
+            if (entry.getValue().reads(table.get())) {
+                this.cache.invalidate(entry.getKey());
+            }
+        }
+    }
+
+    private static @Nullable ImmutableSet<String> normalize(@Nullable final Iterable<String> tables) {
+        if (tables == null) {
+            return null;
+        }
+        final ImmutableSet.Builder<String> normalized = ImmutableSet.builder();
+        for (final String table : tables) {
+            normalized.add(TableNames.normalize(table));
+        }
+        return normalized.build();
+    }
+
+
+    /**
+     * Configures a {@link CachingReadableTable}.
+     */
+    @NotThreadSafe
+    public static final class Builder {
+        private @Nonnull final ReadableResourceSet<StatementTemplate, RowSnapshot> delegate;
+        private @Nonnull final JdbcDataBus dataBus;
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long timeToLiveNanos = 0L;
+        private @Nonnull Func1<? super StatementTemplate, ? extends Iterable<String>> tablesRead = allTables;
+        private @Nonnull Ticker ticker = Ticker.systemTicker();
+
+        /**
+         * Cache up to the given number of results. The default is
+         * {@link CachingReadableTable#DEFAULT_MAXIMUM_SIZE}.
+         *
+         * @throws IllegalArgumentException If the size is negative.
+         */
+        public @Nonnull Builder maximumSize(final long results) {
+            Preconditions.checkArgument(results >= 0L, "negative size");
+            this.maximumSize = results;
+            return this;
+        }
+
+        /**
+         * Forget each result the given time after it was read. Zero, the
+         * default, means to keep results until they are invalidated or
+         * evicted.
+         *
+         * @throws IllegalArgumentException If the time is negative.
+         */
+        public @Nonnull Builder timeToLive(final long duration, @Nonnull final TimeUnit unit) {
+            Preconditions.checkArgument(duration >= 0L, "negative time to live");
+            this.timeToLiveNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Declare that every query read through the cache reads from the
+         * given tables, and so must be invalidated when any of them is
+         * modified.
+         */
+        public @Nonnull Builder tablesRead(@Nonnull final String... tables) {
+            final ImmutableList<String> tableList = ImmutableList.copyOf(tables);
+            return tablesRead(new Func1<StatementTemplate, Iterable<String>>() {
+                @Override
+                public Iterable<String> call(final StatementTemplate query) {
+                    return tableList;
+                }
+            });
+        }
+
+        /**
+         * Determine the tables read by each query with the given function.
+         * It may return null to indicate that the query's tables aren't
+         * known, in which case its result is invalidated by a write to any
+         * table. That is the default.
+         */
+        public @Nonnull Builder tablesRead(
+                @Nonnull final Func1<? super StatementTemplate, ? extends Iterable<String>> tables) {
+            this.tablesRead = Objects.requireNonNull(tables);
+            return this;
+        }
+
+        /**
+         * For testing.
+         */
+        /*package*/ @Nonnull Builder ticker(@Nonnull final Ticker newTicker) {
+            this.ticker = Objects.requireNonNull(newTicker);
+            return this;
+        }
+
+        public @Nonnull CachingReadableTable build() {
+            return new CachingReadableTable(this);
+        }
+
+        private Builder(
+                @Nonnull final ReadableResourceSet<StatementTemplate, RowSnapshot> delegate,
+                @Nonnull final JdbcDataBus dataBus) {
+            this.delegate = Objects.requireNonNull(delegate);
+            this.dataBus = Objects.requireNonNull(dataBus);
+        }
+
+        private static final Func1<StatementTemplate, Iterable<String>> allTables =
+                new Func1<StatementTemplate, Iterable<String>>() {
+            @Override
+            public Iterable<String> call(final StatementTemplate query) {
+                return null;
+            }
+        };
+    }
+
+
+    @Immutable
+    private static final class CachedResult {
+        public @Nonnull final ImmutableList<RowSnapshot> rows;
+        /**
+         * Null if not known, in which case any write invalidates it.
+         */
+        public @Nullable final ImmutableSet<String> tables;
+
+        public CachedResult(
+                @Nonnull final ImmutableList<RowSnapshot> rows,
+                @Nullable final ImmutableSet<String> tables) {
+            this.rows = rows;
+            this.tables = tables;
+        }
+
+        public boolean reads(@Nonnull final String table) {
+            return this.tables == null || this.tables.contains(table);
+        }
+    }
+
+
+    private final class CachingResource implements ReadableResource<RowSnapshot> {
+        private @Nonnull final StatementTemplate query;
+        private @Nonnull final ReadableResource<RowSnapshot> resource;
+        private @Nonnull final Observable<RowSnapshot> reads;
+
+        public CachingResource(
+                @Nonnull final StatementTemplate query,
+                @Nonnull final ReadableResource<RowSnapshot> resource) {
+            this.query = query;
+            this.resource = resource;
+            this.reads = Observable.defer(new Func0<Observable<RowSnapshot>>() {
+                @Override
+                public Observable<RowSnapshot> call() {
+                    return CachingReadableTable.this.read(CachingResource.this.query, CachingResource.this.resource);
+                }
+            });
+        }
+
+        /**
+         * Each subscription looks in the cache anew.
+         */
+        @Override
+        public Observable<RowSnapshot> read() {
+            return this.reads;
+        }
+
+        @Override
+        public Observable<Void> shutdown() {
+            return this.resource.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,620 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import rx.Observer;
+
+
+/**
+ * A column-oriented batch of consecutive rows from a query result. Reading
+ * a large result as ColumnBatches rather than as {@link ResultSetRow}s or
+ * {@link RowSnapshot}s costs one element, and a handful of arrays, per
+ * {@link StatementTemplate#withBatchSize(int) batch} rather than per row.
+ * <p/>
+ * Each column is stored as a vector, the type of which depends on the SQL
+ * type of the column; see {@link VectorType}. Numeric and boolean columns
+ * are stored unboxed; short character columns are dictionary-encoded, so
+ * that each distinct string is stored once per batch; and other values,
+ * including large objects read fully into memory, are stored as objects.
+ * SQL {@code NULL}s are tracked in a separate bitmap per column, which is
+ * only allocated for columns that contain them.
+ * <p/>
+ * As in JDBC, columns are numbered from 1. Rows are numbered from 0 to
+ * {@link #getRowCount()} - 1. Batches are immutable, and so may be handed to
+ * other threads.
+ *
+ * @see JdbcDataBus
+ *
+ * @author Rick Warren
+ */
+@Immutable
+public final class ColumnBatch {
+
+    /**
+     * How the values of a column are stored, and so which accessors are
+     * most efficient for it.
+     */
+    public static enum VectorType {
+        /**
+         * {@code BIT} and {@code BOOLEAN} columns.
+         *
+         * @see ColumnBatch#getBoolean(int, int)
+         */
+        BOOLEAN,
+        /**
+         * {@code TINYINT}, {@code SMALLINT}, and {@code INTEGER} columns.
+         *
+         * @see ColumnBatch#getInt(int, int)
+         * @see ColumnBatch#copyInts(int, int[], int)
+         */
+        INT,
+        /**
+         * {@code BIGINT} columns.
+         *
+         * @see ColumnBatch#getLong(int, int)
+         * @see ColumnBatch#copyLongs(int, long[], int)
+         */
+        LONG,
+        /**
+         * {@code REAL}, {@code FLOAT}, and {@code DOUBLE} columns.
+         *
+         * @see ColumnBatch#getDouble(int, int)
+         * @see ColumnBatch#copyDoubles(int, double[], int)
+         */
+        DOUBLE,
+        /**
+         * {@code CHAR}, {@code VARCHAR}, {@code NCHAR}, and {@code NVARCHAR}
+         * columns, which are dictionary-encoded.
+         *
+         * @see ColumnBatch#getString(int, int)
+         * @see ColumnBatch#getDictionary(int)
+         * @see ColumnBatch#getDictionaryCode(int, int)
+         */
+        STRING,
+        /**
+         * All other columns.
+         *
+         * @see ColumnBatch#getObject(int, int)
+         */
+        OBJECT;
+
+        /*package*/ static @Nonnull VectorType forSqlType(final int sqlType) {
+            switch (sqlType) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return BOOLEAN;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    return INT;
+                case Types.BIGINT:
+                    return LONG;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return DOUBLE;
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                    return STRING;
+                default:
+                    return OBJECT;
+            }
+        }
+    }
+
+
+    private static final RowReader.Factory<ColumnBatch> readerFactory = new RowReader.Factory<ColumnBatch>() {
+        @Override
+        public RowReader<ColumnBatch> newRowReader(final StatementTemplate query, final ResultSet results)
+                throws SQLException {
+            return new Builder(new ColumnMetaData(results.getMetaData()), query.getBatchSize());
+        }
+    };
+
+    private @Nonnull final ColumnMetaData metaData;
+    private @Nonnull final VectorType[] types;
+    private final int rowCount;
+    /**
+     * One per column: a boolean[], int[], long[], or double[]; an int[] of
+     * dictionary codes; or an Object[]. Each may be longer than
+     * {@link #rowCount}.
+     */
+    private @Nonnull final Object[] vectors;
+    /**
+     * One per column: null for columns other than {@link VectorType#STRING}.
+     */
+    private @Nonnull final ImmutableList<String>[] dictionaries;
+    /**
+     * One per column: a bitmap of the rows that are SQL {@code NULL}, or
+     * null if there are none.
+     */
+    private @Nonnull final long[][] nulls;
+
+
+    /**
+     * Creates the {@link RowReader}s that {@link QueryResource}s use to
+     * accumulate rows into ColumnBatches.
+     */
+    /*package*/ static @Nonnull RowReader.Factory<ColumnBatch> rowReaderFactory() {
+        return readerFactory;
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.types.length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException    If there is no such column.
+     */
+    public @Nonnull String getColumnLabel(final int columnIndex) {
+        return this.metaData.labels[checkColumn(columnIndex)];
+    }
+
+    /**
+     * Labels are matched without regard to case.
+     *
+     * @throws IllegalArgumentException If there is no such column.
+     */
+    public int findColumn(@Nonnull final String columnLabel) {
+        final int index = this.metaData.indexOf(columnLabel);
+        Preconditions.checkArgument(index > 0, "No column %s", columnLabel);
+        return index;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException    If there is no such column.
+     */
+    public @Nonnull VectorType getVectorType(final int columnIndex) {
+        return this.types[checkColumn(columnIndex)];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException    If there is no such column or
+     *                                      row.
+     */
+    public boolean isNull(final int columnIndex, final int row) {
+        return isNullAt(checkColumn(columnIndex), checkRow(row));
+    }
+
+    /**
+     * @return  The value of the given {@link VectorType#BOOLEAN} column, or
+     *          false if it is NULL.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     */
+    public boolean getBoolean(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        return ((boolean[]) vector(column, VectorType.BOOLEAN))[checkRow(row)];
+    }
+
+    /**
+     * @return  The value of the given {@link VectorType#INT} column, or zero
+     *          if it is NULL.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     */
+    public int getInt(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        return ((int[]) vector(column, VectorType.INT))[checkRow(row)];
+    }
+
+    /**
+     * @return  The value of the given {@link VectorType#LONG} or
+     *          {@link VectorType#INT} column, or zero if it is NULL.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     */
+    public long getLong(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        checkRow(row);
+        if (this.types[column] == VectorType.INT) {
+            return ((int[]) this.vectors[column])[row];
+        }
+        return ((long[]) vector(column, VectorType.LONG))[row];
+    }
+
+    /**
+     * @return  The value of the given {@link VectorType#DOUBLE},
+     *          {@link VectorType#LONG}, or {@link VectorType#INT} column,
+     *          or zero if it is NULL.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     */
+    public double getDouble(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        checkRow(row);
+        switch (this.types[column]) {
+            case INT:
+                return ((int[]) this.vectors[column])[row];
+            case LONG:
+                return ((long[]) this.vectors[column])[row];
+            default:
+                return ((double[]) vector(column, VectorType.DOUBLE))[row];
+        }
+    }
+
+    /**
+     * @return  The value of the given column as a string, or null if it is
+     *          NULL. This is most efficient for {@link VectorType#STRING}
+     *          columns; others are converted.
+     */
+    public @Nullable String getString(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        checkRow(row);
+        if (this.types[column] == VectorType.STRING) {
+            final int code = ((int[]) this.vectors[column])[row];
+            return (code < 0) ? null : this.dictionaries[column].get(code);
+        }
+        final Object value = getObjectAt(column, row);
+        return (value == null) ? null : value.toString();
+    }
+
+    /**
+     * @return  The distinct strings in the given {@link VectorType#STRING}
+     *          column of this batch, in order of first appearance.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     *
+     * @see #getDictionaryCode(int, int)
+     */
+    public @Nonnull List<String> getDictionary(final int columnIndex) {
+        final int column = checkColumn(columnIndex);
+        checkType(column, VectorType.STRING);
+        return this.dictionaries[column];
+    }
+
+    /**
+     * @return  The index of the value of the given
+     *          {@link VectorType#STRING} column in its
+     *          {@link #getDictionary(int) dictionary}, or -1 if the value
+     *          is NULL.
+     *
+     * @throws IllegalStateException    If the column is of another type.
+     */
+    public int getDictionaryCode(final int columnIndex, final int row) {
+        final int column = checkColumn(columnIndex);
+        return ((int[]) vector(column, VectorType.STRING))[checkRow(row)];
+    }
+
+    /**
+     * @return  The value of the given column, boxed if necessary, or null if
+     *          it is NULL. Mutable values, such as arrays and dates, are
+     *          copied.
+     */
+    public @Nullable Object getObject(final int columnIndex, final int row) {
+        return getObjectAt(checkColumn(columnIndex), checkRow(row));
+    }
+
+    /**
+     * Copy all of the values of the given {@link VectorType#INT} column
+     * into the given array, starting at the given position. NULLs are
+     * copied as zero.
+     *
+     * @throws IllegalStateException        If the column is of another type.
+     * @throws IndexOutOfBoundsException    If the array is too small.
+     */
+    public void copyInts(final int columnIndex, @Nonnull final int[] dest, final int destPos) {
+        final int column = checkColumn(columnIndex);
+        System.arraycopy(vector(column, VectorType.INT), 0, dest, destPos, this.rowCount);
+    }
+
+    /**
+     * Copy all of the values of the given {@link VectorType#LONG} column
+     * into the given array, starting at the given position. NULLs are
+     * copied as zero.
+     *
+     * @throws IllegalStateException        If the column is of another type.
+     * @throws IndexOutOfBoundsException    If the array is too small.
+     */
+    public void copyLongs(final int columnIndex, @Nonnull final long[] dest, final int destPos) {
+        final int column = checkColumn(columnIndex);
+        System.arraycopy(vector(column, VectorType.LONG), 0, dest, destPos, this.rowCount);
+    }
+
+    /**
+     * Copy all of the values of the given {@link VectorType#DOUBLE} column
+     * into the given array, starting at the given position. NULLs are
+     * copied as zero.
+     *
+     * @throws IllegalStateException        If the column is of another type.
+     * @throws IndexOutOfBoundsException    If the array is too small.
+     */
+    public void copyDoubles(final int columnIndex, @Nonnull final double[] dest, final int destPos) {
+        final int column = checkColumn(columnIndex);
+        System.arraycopy(vector(column, VectorType.DOUBLE), 0, dest, destPos, this.rowCount);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "(columns=" + Arrays.toString(this.metaData.labels)
+                + ", rows=" + this.rowCount + ')';
+    }
+
+    private ColumnBatch(
+            @Nonnull final ColumnMetaData metaData,
+            @Nonnull final VectorType[] types,
+            final int rowCount,
+            @Nonnull final Object[] vectors,
+            @Nonnull final ImmutableList<String>[] dictionaries,
+            @Nonnull final long[][] nulls) {
+        this.metaData = metaData;
+        this.types = types;
+        this.rowCount = rowCount;
+        this.vectors = vectors;
+        this.dictionaries = dictionaries;
+        this.nulls = nulls;
+    }
+
+    /**
+     * @return  the zero-based index of the given column.
+     */
+    private int checkColumn(final int columnIndex) {
+        if (!this.metaData.isValidIndex(columnIndex)) {
+            throw new IndexOutOfBoundsException("No column " + columnIndex + "; there are " + this.types.length);
+        }
+        return columnIndex - 1;
+    }
+
+    private int checkRow(final int row) {
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException("No row " + row + "; there are " + this.rowCount);
+        }
+        return row;
+    }
+
+    private void checkType(final int column, final VectorType expected) {
+        if (this.types[column] != expected) {
+            throw new IllegalStateException(
+                    "Column " + this.metaData.labels[column] + " is " + this.types[column] + ", not " + expected);
+        }
+    }
+
+    private Object vector(final int column, final VectorType expected) {
+        checkType(column, expected);
+        return this.vectors[column];
+    }
+
+    private boolean isNullAt(final int column, final int row) {
+        final long[] bitmap = this.nulls[column];
+        return bitmap != null && (bitmap[row >>> 6] & (1L << row)) != 0L;
+    }
+
+    private @Nullable Object getObjectAt(final int column, final int row) {
+        if (isNullAt(column, row)) {
+            return null;
+        }
+        final Object vector = this.vectors[column];
+        switch (this.types[column]) {
+            case BOOLEAN:
+                return ((boolean[]) vector)[row];
+            case INT:
+                return ((int[]) vector)[row];
+            case LONG:
+                return ((long[]) vector)[row];
+            case DOUBLE:
+                if (this.metaData.sqlTypes[column] == Types.REAL) {
+                    return (float) ((double[]) vector)[row];
+                } else {
+                    return ((double[]) vector)[row];
+                }
+            case STRING:
+                return this.dictionaries[column].get(((int[]) vector)[row]);
+            default:
+                return ColumnMetaData.copyIfMutable(((Object[]) vector)[row]);
+        }
+    }
+
+    /**
+     * Accumulates the rows of a single query result, in the worker thread,
+     * and emits them a batch at a time. The arrays of each batch start small
+     * and grow up to the batch size, so that a large batch size costs
+     * nothing for a small result.
+     */
+    private static final class Builder implements RowReader<ColumnBatch> {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final ColumnMetaData metaData;
+        private final VectorType[] types;
+        private final int batchSize;
+
+        private int capacity;
+        private int rowCount;
+        private Object[] vectors;
+        private List<Map<String, Integer>> dictionaryIndices;
+        private List<List<String>> dictionaries;
+        private long[][] nulls;
+
+        public Builder(@Nonnull final ColumnMetaData metaData, final int batchSize) {
+            this.metaData = metaData;
+            this.batchSize = batchSize;
+            this.types = new VectorType[metaData.getColumnCount()];
+            for (int i = 0; i < this.types.length; ++i) {
+                this.types[i] = VectorType.forSqlType(metaData.sqlTypes[i]);
+            }
+            startBatch();
+        }
+
+        @Override
+        public void readRow(final ResultSet results, final Observer<? super ColumnBatch> sub) throws SQLException {
+            if (this.rowCount == this.capacity) {
+                grow();
+            }
+            final int row = this.rowCount;
+            for (int i = 0; i < this.types.length; ++i) {
+                final int columnIndex = i + 1;
+                final boolean isNull;
+                switch (this.types[i]) {
+                    case BOOLEAN:
+                        ((boolean[]) this.vectors[i])[row] = results.getBoolean(columnIndex);
+                        isNull = results.wasNull();
+                        break;
+                    case INT:
+                        ((int[]) this.vectors[i])[row] = results.getInt(columnIndex);
+                        isNull = results.wasNull();
+                        break;
+                    case LONG:
+                        ((long[]) this.vectors[i])[row] = results.getLong(columnIndex);
+                        isNull = results.wasNull();
+                        break;
+                    case DOUBLE:
+                        ((double[]) this.vectors[i])[row] = results.getDouble(columnIndex);
+                        isNull = results.wasNull();
+                        break;
+                    case STRING:
+                        final String str = (String) ColumnMetaData.readDetachedObject(
+                                results, columnIndex, this.metaData.sqlTypes[i]);
+                        ((int[]) this.vectors[i])[row] = encode(i, str);
+                        isNull = (str == null);
+                        break;
+                    default:
+                        final Object value = ColumnMetaData.readDetachedObject(
+                                results, columnIndex, this.metaData.sqlTypes[i]);
+                        ((Object[]) this.vectors[i])[row] = value;
+                        isNull = (value == null);
+                        break;
+                }
+                if (isNull) {
+                    setNull(i, row);
+                }
+            }
+            ++this.rowCount;
+            if (this.rowCount == this.batchSize) {
+                sub.onNext(finishBatch());
+                startBatch();
+            }
+        }
+
+        @Override
+        public void endOfResults(final Observer<? super ColumnBatch> sub) {
+            if (this.rowCount > 0) {
+                sub.onNext(finishBatch());
+            }
+        }
+
+        private void startBatch() {
+            this.capacity = Math.min(INITIAL_CAPACITY, this.batchSize);
+            this.rowCount = 0;
+            this.vectors = new Object[this.types.length];
+            this.dictionaryIndices = new ArrayList<>(this.types.length);
+            this.dictionaries = new ArrayList<>(this.types.length);
+            this.nulls = new long[this.types.length][];
+            for (int i = 0; i < this.types.length; ++i) {
+                this.vectors[i] = newVector(this.types[i], this.capacity);
+                final boolean isString = this.types[i] == VectorType.STRING;
+                this.dictionaryIndices.add(isString ? new HashMap<String, Integer>() : null);
+                this.dictionaries.add(isString ? new ArrayList<String>() : null);
+            }
+        }
+
+        private void grow() {
+            final int newCapacity = (int) Math.min((long) this.capacity * 2, this.batchSize);
+            for (int i = 0; i < this.types.length; ++i) {
+                final Object oldVector = this.vectors[i];
+                final Object newVector = newVector(this.types[i], newCapacity);
+                System.arraycopy(oldVector, 0, newVector, 0, this.rowCount);
+                this.vectors[i] = newVector;
+                if (this.nulls[i] != null) {
+                    this.nulls[i] = Arrays.copyOf(this.nulls[i], bitmapLength(newCapacity));
+                }
+            }
+            this.capacity = newCapacity;
+        }
+
+        private int encode(final int column, @Nullable final String str) {
+            if (str == null) {
+                return -1;
+            }
+            final Map<String, Integer> indices = this.dictionaryIndices.get(column);
+            final Integer existing = indices.get(str);
+            if (existing != null) {
+                return existing;
+            }
+            final List<String> dictionary = this.dictionaries.get(column);
+            final int code = dictionary.size();
+            dictionary.add(str);
+            indices.put(str, code);
+            return code;
+        }
+
+        private void setNull(final int column, final int row) {
+            if (this.nulls[column] == null) {
+                this.nulls[column] = new long[bitmapLength(this.capacity)];
+            }
+            this.nulls[column][row >>> 6] |= 1L << row;
+        }
+
+        private ColumnBatch finishBatch() {
+            @SuppressWarnings({ "rawtypes", "unchecked" }) // generic array creation
+            final ImmutableList<String>[] frozenDictionaries = new ImmutableList[this.types.length];
+            for (int i = 0; i < this.types.length; ++i) {
+                final List<String> dictionary = this.dictionaries.get(i);
+                if (dictionary != null) {
+                    frozenDictionaries[i] = ImmutableList.copyOf(dictionary);
+                }
+            }
+            return new ColumnBatch(
+                    this.metaData,
+                    this.types,
+                    this.rowCount,
+                    this.vectors,
+                    frozenDictionaries,
+                    this.nulls);
+        }
+
+        private static int bitmapLength(final int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+
+        private static Object newVector(final VectorType type, final int capacity) {
+            switch (type) {
+                case BOOLEAN:
+                    return new boolean[capacity];
+                case INT:
+                case STRING:
+                    return new int[capacity];
+                case LONG:
+                    return new long[capacity];
+                case DOUBLE:
+                    return new double[capacity];
+                default:
+                    return new Object[capacity];
+            }
+        }
+    }
+
+}
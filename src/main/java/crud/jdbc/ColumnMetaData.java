@@ -0,0 +1,181 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+
+/**
+ * The labels and types of the columns of a query result, captured once per
+ * execution, and shared by the detached rows or batches read from it.
+ * Columns are numbered from 1, as in JDBC.
+ *
+ * @see RowSnapshot
+ * @see ColumnBatch
+ *
+ * @author Rick Warren
+ */
+@Immutable
+/*package*/ final class ColumnMetaData {
+
+    /**
+     * Do not modify.
+     */
+    public final String[] labels;
+    /**
+     * The {@link Types} of the columns. Do not modify.
+     */
+    public final int[] sqlTypes;
+    /**
+     * Most lookups use the label exactly as the database reports it;
+     * fall back to a case-insensitive search only when that fails.
+     */
+    private final ImmutableMap<String, Integer> indicesByExactLabel;
+    private final ImmutableSortedMap<String, Integer> indicesByAnyCaseLabel;
+
+
+    public ColumnMetaData(@Nonnull final ResultSetMetaData metaData) throws SQLException {
+        final int columnCount = metaData.getColumnCount();
+        this.labels = new String[columnCount];
+        this.sqlTypes = new int[columnCount];
+        final Map<String, Integer> exact = new HashMap<>();
+        final Map<String, Integer> anyCase = new HashMap<>();
+        for (int i = 0; i < columnCount; ++i) {
+            this.labels[i] = metaData.getColumnLabel(i + 1);
+            this.sqlTypes[i] = metaData.getColumnType(i + 1);
+            // As in JDBC, the first of several columns of the same name wins:
+            if (!exact.containsKey(this.labels[i])) {
+                exact.put(this.labels[i], i + 1);
+            }
+            final String upperCase = this.labels[i].toUpperCase(Locale.ROOT);
+            if (!anyCase.containsKey(upperCase)) {
+                anyCase.put(upperCase, i + 1);
+            }
+        }
+        this.indicesByExactLabel = ImmutableMap.copyOf(exact);
+        this.indicesByAnyCaseLabel = ImmutableSortedMap.copyOf(anyCase, String.CASE_INSENSITIVE_ORDER);
+    }
+
+    public int getColumnCount() {
+        return this.labels.length;
+    }
+
+    public boolean isValidIndex(final int columnIndex) {
+        return columnIndex >= 1 && columnIndex <= this.labels.length;
+    }
+
+    /**
+     * @return  The index of the first column with the given label, or zero
+     *          if there is none.
+     */
+    public int indexOf(@Nonnull final String columnLabel) {
+        Integer index = this.indicesByExactLabel.get(columnLabel);
+        if (index == null) {
+            index = this.indicesByAnyCaseLabel.get(columnLabel);
+        }
+        return (index == null) ? 0 : index;
+    }
+
+    public boolean sameShapeAs(@Nonnull final ColumnMetaData other) {
+        return this == other
+                || (Arrays.equals(this.labels, other.labels) && Arrays.equals(this.sqlTypes, other.sqlTypes));
+    }
+
+    /**
+     * Copy values of those types that {@link #readDetachedObject} may
+     * return that are mutable, so that they may be returned to
+     * applications without compromising immutability.
+     */
+    public static @Nullable Object copyIfMutable(@Nullable final Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof Object[]) {
+            return ((Object[]) value).clone();
+        } else if (value instanceof Timestamp) {
+            final Timestamp original = (Timestamp) value;
+            final Timestamp copy = new Timestamp(original.getTime());
+            copy.setNanos(original.getNanos());
+            return copy;
+        } else if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).clone();
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Read a non-primitive value such that it remains valid after the
+     * cursor moves, and after the connection is closed: large objects are
+     * read fully into memory.
+     */
+    public static @Nullable Object readDetachedObject(
+            @Nonnull final ResultSet results,
+            final int columnIndex,
+            final int sqlType) throws SQLException {
+        switch (sqlType) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return results.getBytes(columnIndex);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+            case Types.SQLXML:
+                return results.getString(columnIndex);
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.NCLOB:
+                return results.getNString(columnIndex);
+            case Types.DATE:
+                return results.getDate(columnIndex);
+            case Types.TIME:
+                return results.getTime(columnIndex);
+            case Types.TIMESTAMP:
+                return results.getTimestamp(columnIndex);
+            case Types.ARRAY:
+                final Array array = results.getArray(columnIndex);
+                if (array == null) {
+                    return null;
+                }
+                try {
+                    return array.getArray();
+                } finally {
+                    array.free();
+                }
+            default:
+                return results.getObject(columnIndex);
+        }
+    }
+
+}
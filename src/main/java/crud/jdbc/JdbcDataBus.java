@@ -18,8 +18,10 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
 import javax.sql.DataSource;
@@ -44,11 +46,30 @@ import crud.implementer.DataBusWorker;
  * It supports {@link TransactedSession}s by means of the usual JDBC
  * transactions. It also supports ordered {@link Session}s by means of
  * {@link Connection#setAutoCommit(boolean) auto-commit}.
+ * <p/>
+ * Its {@link ReadableResourceSet}s are keyed either by
+ * {@link StatementTemplate}, or by SQL {@link String}; the resources of
+ * the latter are {@link ParameterizedReadableResource}s, which take their
+ * parameters with each read. Their elements may be either {@link ResultSetRow}s, which are views of
+ * the live cursor, and must be consumed before the next row is read; or
+ * {@link RowSnapshot}s, which are detached copies that may be kept, or
+ * handed to other threads; or {@link ColumnBatch}es, which hold many rows
+ * in column-oriented form, for scanning large results. The results of
+ * RowSnapshot queries may be cached with a {@link CachingReadableTable}.
+ * <p/>
+ * Its {@link WritableResourceSet}s are keyed by {@link StatementTemplate};
+ * their resources are {@link BulkWritableResource}s, which can also
+ * execute many writes in batches.
  *
  * @author Rick Warren
  */
 public class JdbcDataBus extends AbstractDataBus {
 
+    /**
+     * @see #setStatementCacheSize(int)
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
     private static final Logger log = LoggerFactory.getLogger(JdbcDataBus.class);
 
     private static final Set<Session.Ordering> supportedOrderings = Collections.unmodifiableSet(
@@ -57,24 +78,54 @@ public class JdbcDataBus extends AbstractDataBus {
     private @Nonnull final DataSource dataSource;
     private final Optional<String> username;
     private final Optional<String> password;
+    private final StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
+    private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private final TableWriteListeners tableWriteListeners = new TableWriteListeners();
 
 
     public JdbcDataBus(@Nonnull final DataSource dataSource) {
-        this(dataSource, Optional.<String>absent(), Optional.<String>absent());
+        this(dataSource, DataBusWorker.create());
+    }
+
+    /**
+     * @param worker    Determines how the {@link Session}s of this
+     *                  {@link DataBus} are run: for example, on a shared
+     *                  pool of threads, or on virtual threads; see
+     *                  {@link DataBusWorker#create(crud.implementer.SessionExecutorFactory)}.
+     */
+    public JdbcDataBus(
+            @Nonnull final DataSource dataSource,
+            @Nonnull final DataBusWorker worker) {
+        this(dataSource, Optional.<String>absent(), Optional.<String>absent(), worker);
     }
 
     public JdbcDataBus(
             @Nonnull final DataSource dataSource,
             @Nonnull final String username,
             @Nonnull final String password) {
-        this(dataSource, Optional.of(username), Optional.of(password));
+        this(dataSource, username, password, DataBusWorker.create());
+    }
+
+    /**
+     * @param worker    Determines how the {@link Session}s of this
+     *                  {@link DataBus} are run: for example, on a shared
+     *                  pool of threads, or on virtual threads; see
+     *                  {@link DataBusWorker#create(crud.implementer.SessionExecutorFactory)}.
+     */
+    public JdbcDataBus(
+            @Nonnull final DataSource dataSource,
+            @Nonnull final String username,
+            @Nonnull final String password,
+            @Nonnull final DataBusWorker worker) {
+        this(dataSource, Optional.of(username), Optional.of(password), worker);
     }
 
     private JdbcDataBus(
             @Nonnull final DataSource dataSource,
             final Optional<String> username,
-            final Optional<String> password) {
-        super(DataBusWorker.create());
+            final Optional<String> password,
+            @Nonnull final DataBusWorker worker) {
+        super(worker);
         this.dataSource = Objects.requireNonNull(dataSource);
         this.username = Objects.requireNonNull(username);
         this.password = Objects.requireNonNull(password);
@@ -83,6 +134,31 @@ public class JdbcDataBus extends AbstractDataBus {
                 "Either both username and password must be present, or neither");
     }
 
+    /**
+     * Each {@link Session} keeps up to the given number of idle
+     * {@link java.sql.PreparedStatement}s, so that resources with the same
+     * SQL -- even with different parameters -- don't prepare it again.
+     * Zero disables this caching. This setting applies to Sessions started
+     * after it is changed. The default is
+     * {@link #DEFAULT_STATEMENT_CACHE_SIZE}.
+     *
+     * @throws IllegalArgumentException If the size is negative.
+     *
+     * @see #getStatementCacheStatistics()
+     */
+    public void setStatementCacheSize(final int maxStatementsPerSession) {
+        Preconditions.checkArgument(maxStatementsPerSession >= 0, "negative cache size");
+        this.statementCacheSize = maxStatementsPerSession;
+    }
+
+    /**
+     * How effective the {@link #setStatementCacheSize(int) statement
+     * caches} of all of this DataBus's {@link Session}s have been.
+     */
+    public @Nonnull StatementCacheStatistics getStatementCacheStatistics() {
+        return this.statementCacheStatistics;
+    }
+
     @Override
     public Set<Session.Ordering> getSupportedSessionOrderings() {
         return supportedOrderings;
@@ -93,7 +169,7 @@ public class JdbcDataBus extends AbstractDataBus {
     protected Session doStartOrderedSession() throws SQLException {
         final Connection connection = getConnection();
         connection.setAutoCommit(true);
-        return new JdbcSession(getWorker(), connection);
+        return new JdbcSession(getWorker(), newStatementCache(connection), this.tableWriteListeners);
     }
 
     @Override
@@ -101,17 +177,21 @@ public class JdbcDataBus extends AbstractDataBus {
     protected TransactedSession doStartTransactedSession() throws SQLException {
         final Connection connection = getConnection();
         connection.setAutoCommit(false);
-        return new JdbcTransactedSession(getWorker(), connection);
+        return new JdbcTransactedSession(getWorker(), newStatementCache(connection), this.tableWriteListeners);
     }
 
     @Override
     protected boolean isResourceSetAvailable(final ReadableResourceSet.Id<?, ?> id) {
-        if (StatementTemplate.class != id.getKeyType()) {
-            log.warn("JDBC ResourceSets have key type StatementTemplate, not {}", id.getKeyType().getName());
+        if (StatementTemplate.class != id.getKeyType() && String.class != id.getKeyType()) {
+            log.warn("JDBC readable ResourceSets have key type StatementTemplate or String, not {}", id.getKeyType().getName());
             return false;
         }
-        if (ResultSetRow.class != id.getResourceType()) {
-            log.warn("JDBC readable ResourceSets have element type ResultSetRow, not {}", id.getResourceType().getName());
+        if (ResultSetRow.class != id.getResourceType()
+                && RowSnapshot.class != id.getResourceType()
+                && ColumnBatch.class != id.getResourceType()) {
+            log.warn(
+                    "JDBC readable ResourceSets have element type ResultSetRow, RowSnapshot, or ColumnBatch, not {}",
+                    id.getResourceType().getName());
             return false;
         }
         return true;
@@ -119,9 +199,22 @@ public class JdbcDataBus extends AbstractDataBus {
 
     @Override
     protected ReadableResourceSet<?, ?> resolveResourceSet(final ReadableResourceSet.Id<?, ?> id) {
+        if (String.class == id.getKeyType()) {
+            return resolveParameterizedResourceSet(id);
+        }
+        if (RowSnapshot.class == id.getResourceType()) {
+            @SuppressWarnings("unchecked")
+            final ReadableResourceSet.Id<StatementTemplate, RowSnapshot> resultId = (ReadableResourceSet.Id<StatementTemplate, RowSnapshot>) id;
+            return new ReadableTable<>(resultId, RowSnapshot.rowReaderFactory());
+        }
+        if (ColumnBatch.class == id.getResourceType()) {
+            @SuppressWarnings("unchecked")
+            final ReadableResourceSet.Id<StatementTemplate, ColumnBatch> resultId = (ReadableResourceSet.Id<StatementTemplate, ColumnBatch>) id;
+            return new ReadableTable<>(resultId, ColumnBatch.rowReaderFactory());
+        }
         @SuppressWarnings("unchecked")
         final ReadableResourceSet.Id<StatementTemplate, ResultSetRow> resultId = (ReadableResourceSet.Id<StatementTemplate, ResultSetRow>) id;
-        return new ReadableTable(resultId);
+        return new ReadableTable<>(resultId, ResultSetRow.rowReaderFactory());
     }
 
     @Override
@@ -148,10 +241,64 @@ public class JdbcDataBus extends AbstractDataBus {
         return new WritableTable(resultId);
     }
 
+    private static ReadableResourceSet<?, ?> resolveParameterizedResourceSet(final ReadableResourceSet.Id<?, ?> id) {
+        if (RowSnapshot.class == id.getResourceType()) {
+            @SuppressWarnings("unchecked")
+            final ReadableResourceSet.Id<String, RowSnapshot> resultId = (ReadableResourceSet.Id<String, RowSnapshot>) id;
+            return new ParameterizedReadableTable<>(resultId, RowSnapshot.rowReaderFactory());
+        }
+        if (ColumnBatch.class == id.getResourceType()) {
+            @SuppressWarnings("unchecked")
+            final ReadableResourceSet.Id<String, ColumnBatch> resultId = (ReadableResourceSet.Id<String, ColumnBatch>) id;
+            return new ParameterizedReadableTable<>(resultId, ColumnBatch.rowReaderFactory());
+        }
+        @SuppressWarnings("unchecked")
+        final ReadableResourceSet.Id<String, ResultSetRow> resultId = (ReadableResourceSet.Id<String, ResultSetRow>) id;
+        return new ParameterizedReadableTable<>(resultId, ResultSetRow.rowReaderFactory());
+    }
+
+    /**
+     * Tell the given listener of every write made through this DataBus's
+     * {@link WritableResourceSet}s, from now on.
+     *
+     * @see CachingReadableTable
+     */
+    /*package*/ void addTableWriteListener(@Nonnull final TableWriteListener listener) {
+        this.tableWriteListeners.listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Stop telling the given listener of writes.
+     *
+     * @see #addTableWriteListener(TableWriteListener)
+     */
+    /*package*/ void removeTableWriteListener(@Nonnull final TableWriteListener listener) {
+        this.tableWriteListeners.listeners.remove(Objects.requireNonNull(listener));
+    }
+
+    private StatementCache newStatementCache(final Connection connection) {
+        return new StatementCache(connection, this.statementCacheSize, this.statementCacheStatistics);
+    }
+
     private Connection getConnection() throws SQLException {
         return this.username.isPresent()
             ? this.dataSource.getConnection(this.username.get(), this.password.get())
             : this.dataSource.getConnection();
     }
 
+
+    /**
+     * Shared by all {@link Session}s, which tell it of their writes.
+     */
+    private static final class TableWriteListeners implements TableWriteListener {
+        public final List<TableWriteListener> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void tableWritten(final Optional<String> table) {
+            for (final TableWriteListener listener : this.listeners) {
+                listener.tableWritten(table);
+            }
+        }
+    }
+
 }
@@ -16,45 +16,126 @@ package crud.jdbc;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
 
-import crud.core.ReadableResource;
 import crud.core.Session;
-import crud.core.WritableResource;
 import crud.implementer.AbstractSession;
 import crud.implementer.DataBusWorker;
-import crud.implementer.SessionWorker;
 
 
 /*package*/ class JdbcSession extends AbstractSession {
 
-    private @Nonnull final Connection connection;
+    private @Nonnull final StatementCache statements;
+    private @Nonnull final TableWriteListener tableWriteListener;
+    /**
+     * Modified in any thread, as resources are created, but read in the
+     * worker thread.
+     */
+    private final List<BatchedUpdateResource> batchedUpdates = new CopyOnWriteArrayList<>();
 
 
+    /**
+     * @param statements    The cache of statements prepared on this
+     *                      session's connection. This session takes
+     *                      ownership of both.
+     * @param tableWriteListener    Told of each write made by this
+     *                              session, once it's visible to others.
+     */
     public JdbcSession(
             @Nonnull final DataBusWorker dataBusWorker,
-            @Nonnull final Connection connection) {
-        super(dataBusWorker, SessionWorker.create(), Session.Ordering.ORDERED);
-        this.connection = Objects.requireNonNull(connection);
+            @Nonnull final StatementCache statements,
+            @Nonnull final TableWriteListener tableWriteListener) {
+        super(dataBusWorker, dataBusWorker.createSessionWorker(), Session.Ordering.ORDERED);
+        this.statements = Objects.requireNonNull(statements);
+        this.tableWriteListener = Objects.requireNonNull(tableWriteListener);
     }
 
     protected final @Nonnull Connection getConnection() {
-        return this.connection;
+        return this.statements.getConnection();
+    }
+
+    /**
+     * Writes made in auto-commit mode are visible as soon as they're made,
+     * so tell the DataBus's listener about them right away.
+     */
+    protected @Nonnull TableWriteListener getTableWriteListener() {
+        return this.tableWriteListener;
     }
 
     @Override
     protected void doShutdown() throws SQLException {
-        this.connection.close();
+        try {
+            this.statements.close();
+        } finally {
+            this.statements.getConnection().close();
+        }
+    }
+
+    /*package*/ final @Nonnull <ROW> ParameterizedReadableResource<ROW> readableResource(
+            final StatementTemplate query,
+            final RowReader.Factory<ROW> rowReaderFactory) {
+        return new QueryResource<>(this.statements, query, rowReaderFactory, getWorker());
+    }
+
+    /*package*/ final @Nonnull BulkWritableResource writableResource(final StatementTemplate update) {
+        if (update.getWriteBatchRows() > 0) {
+            final BatchedUpdateResource batched = new BatchedUpdateResource(
+                    this.statements,
+                    update,
+                    getWorker(),
+                    getTableWriteListener(),
+                    this);
+            this.batchedUpdates.add(batched);
+            return batched;
+        }
+        return new UpdateResource(this.statements, update, getWorker(), getTableWriteListener());
+    }
+
+    /**
+     * Execute the writes that have been batched by this session's
+     * resources, and not yet executed. Call this in the worker thread.
+     *
+     * @throws SQLException The first failure of any batch, once every
+     *          batch has been executed, so that a transaction is not
+     *          committed with some of its writes missing.
+     *
+     * @see StatementTemplate#withWriteBatching(int, long, java.util.concurrent.TimeUnit)
+     */
+    protected final void executeBatchedUpdates() throws SQLException {
+        SQLException failure = null;
+        for (final BatchedUpdateResource batched : this.batchedUpdates) {
+            try {
+                batched.executeBatch();
+            } catch (final SQLException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
-    /*package*/ final @Nonnull ReadableResource<ResultSetRow> readableResource(final StatementTemplate query) {
-        return new QueryResource(this.connection, query, getWorker());
+    /**
+     * Discard the writes that have been batched by this session's resources,
+     * and not yet executed, failing them with the given exception. Call
+     * this in the worker thread.
+     */
+    protected final void discardBatchedUpdates(@Nonnull final Exception cause) throws SQLException {
+        for (final BatchedUpdateResource batched : this.batchedUpdates) {
+            batched.discardBatch(cause);
+        }
     }
 
-    /*package*/ final @Nonnull WritableResource<StatementParameters, Integer> writableResource(final StatementTemplate update) {
-        return new UpdateResource(this.connection, update, getWorker());
+    /*package*/ final void removeBatchedUpdate(@Nonnull final BatchedUpdateResource batched) {
+        this.batchedUpdates.remove(batched);
     }
 
 }
@@ -14,9 +14,14 @@
  */
 package crud.jdbc;
 
-import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Optional;
 
 import crud.core.Session;
 import crud.core.TransactedSession;
@@ -28,21 +33,28 @@ import rx.Observable;
 /*package*/ final class JdbcTransactedSession extends JdbcSession implements TransactedSession {
 
     private final TransactionLifecycle tx;
+    private final PendingTableWrites pendingWrites;
 
 
     public JdbcTransactedSession(
             @Nonnull final DataBusWorker dataBusWorker,
-            @Nonnull final Connection connection) {
-        super(dataBusWorker, connection);
+            @Nonnull final StatementCache statements,
+            @Nonnull final TableWriteListener tableWriteListener) {
+        super(dataBusWorker, statements, tableWriteListener);
+        this.pendingWrites = new PendingTableWrites(tableWriteListener);
         this.tx = new TransactionLifecycle(getWorker()) {
             @Override
             protected void doCommit() throws Exception {
+                executeBatchedUpdates();
                 getConnection().commit();
+                pendingWrites.publish();
             }
 
             @Override
             protected void doRollback() throws Exception {
+                discardBatchedUpdates(new SQLException("Transaction rolled back before batched write was executed"));
                 getConnection().rollback();
+                pendingWrites.discard();
             }
         };
     }
@@ -62,4 +74,44 @@ import rx.Observable;
         return this.tx.rollback();
     }
 
+    /**
+     * Writes made in a transaction aren't visible to other sessions until
+     * it commits, so hold them until then.
+     */
+    @Override
+    protected TableWriteListener getTableWriteListener() {
+        return this.pendingWrites;
+    }
+
+
+    /**
+     * Used only in the session's worker thread: by updates, and by commit
+     * and rollback.
+     */
+    @NotThreadSafe
+    private static final class PendingTableWrites implements TableWriteListener {
+        private final TableWriteListener committedWriteListener;
+        private final Set<Optional<String>> tables = new LinkedHashSet<>();
+
+        public PendingTableWrites(final TableWriteListener committedWriteListener) {
+            this.committedWriteListener = committedWriteListener;
+        }
+
+        @Override
+        public void tableWritten(final Optional<String> table) {
+            this.tables.add(table);
+        }
+
+        public void publish() {
+            for (final Optional<String> table : this.tables) {
+                this.committedWriteListener.tableWritten(table);
+            }
+            this.tables.clear();
+        }
+
+        public void discard() {
+            this.tables.clear();
+        }
+    }
+
 }
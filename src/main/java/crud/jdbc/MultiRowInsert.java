@@ -0,0 +1,112 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Rewrites a single-row {@code INSERT ... VALUES (?, ...)} statement to
+ * insert several rows at once: {@code INSERT ... VALUES (?, ...), (?, ...)}.
+ * The number of rows in each statement is a power of two, so that a few
+ * prepared statements serve batches of any size.
+ *
+ * @see StatementTemplate#withMultiRowInserts()
+ *
+ * @author Rick Warren
+ */
+@Immutable
+/*package*/ final class MultiRowInsert {
+
+    /**
+     * Some databases limit the number of parameters in a statement: SQL
+     * Server, for example, allows 2100.
+     */
+    public static final int MAX_PARAMETERS_PER_STATEMENT = 2000;
+
+    private static final Pattern singleRowInsertPattern = Pattern.compile(
+            "^(\\s*INSERT\\s+INTO\\s+.+?\\s+VALUES\\s*)(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private @Nonnull final String prefix;
+    private @Nonnull final String rowPlaceholders;
+    private final int parametersPerRow;
+    private final int maxRowsPerStatement;
+
+
+    /**
+     * @return  A rewriter for the given SQL, or absent if it isn't a
+     *          single-row INSERT, all of the values of which are
+     *          placeholders.
+     */
+    public static @Nonnull Optional<MultiRowInsert> parse(@Nonnull final String sql) {
+        final Matcher matcher = singleRowInsertPattern.matcher(sql);
+        return matcher.matches()
+                ? Optional.of(new MultiRowInsert(matcher.group(1), matcher.group(2)))
+                : Optional.<MultiRowInsert>absent();
+    }
+
+    public int getParametersPerRow() {
+        return this.parametersPerRow;
+    }
+
+    /**
+     * @return  The number of rows to insert in the next statement, when the
+     *          given number remain: the largest power of two no greater
+     *          than either that number, or the given limit, or the number
+     *          allowed by {@link #MAX_PARAMETERS_PER_STATEMENT}.
+     */
+    public int rowsInNextStatement(final int remainingRows, final int maxRows) {
+        Preconditions.checkArgument(remainingRows > 0, "no rows remaining");
+        final int limit = Math.min(remainingRows, Math.min(maxRows, this.maxRowsPerStatement));
+        return Integer.highestOneBit(Math.max(1, limit));
+    }
+
+    public @Nonnull String sqlForRows(final int rows) {
+        final StringBuilder buf = new StringBuilder(
+                this.prefix.length() + rows * (this.rowPlaceholders.length() + 2));
+        buf.append(this.prefix).append(this.rowPlaceholders);
+        for (int i = 1; i < rows; ++i) {
+            buf.append(", ").append(this.rowPlaceholders);
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + this.prefix + this.rowPlaceholders + ')';
+    }
+
+    private MultiRowInsert(@Nonnull final String prefix, @Nonnull final String rowPlaceholders) {
+        this.prefix = prefix;
+        this.rowPlaceholders = rowPlaceholders;
+        int count = 0;
+        for (int i = 0; i < rowPlaceholders.length(); ++i) {
+            if (rowPlaceholders.charAt(i) == '?') {
+                ++count;
+            }
+        }
+        this.parametersPerRow = count;
+        this.maxRowsPerStatement = Math.max(1, MAX_PARAMETERS_PER_STATEMENT / count);
+    }
+
+}
@@ -0,0 +1,227 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A mutable, reusable set of parameters for a JDBC SQL statement, for
+ * high-rate writes that shouldn't allocate a {@link StatementParameters}
+ * for each row. Primitive values are held unboxed, and are bound with the
+ * corresponding typed setter, as in {@link StatementParameter}.
+ * <p/>
+ * A {@link BulkWritableResource} fills a single buffer from a
+ * {@link Source} for each of its writes, in its
+ * {@link crud.core.Session}'s worker thread, and binds it directly to the
+ * statement. As with {@link PreparedStatement}, indexes start at 1, and a
+ * parameter keeps its value until it is set again, or the buffer is
+ * {@link #clear() cleared}.
+ *
+ * @see BulkWritableResource#writeAll(Source)
+ *
+ * @author Rick Warren
+ */
+@NotThreadSafe
+public final class ParameterBuffer {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The type of each parameter, or null if it hasn't been set.
+     */
+    private @Nonnull StatementParameter.Type[] types;
+    /**
+     * The values of the parameters not held unboxed.
+     */
+    private @Nonnull Object[] values;
+    /**
+     * The values of the parameters held unboxed.
+     *
+     * @see StatementParameter#bindUnboxed(PreparedStatement, int, StatementParameter.Type, long)
+     */
+    private @Nonnull long[] unboxedBits;
+    private @Nonnull boolean[] unboxed;
+    /**
+     * One more than the highest index set.
+     */
+    private int size = 0;
+
+
+    public ParameterBuffer() {
+        this.types = new StatementParameter.Type[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.unboxedBits = new long[INITIAL_CAPACITY];
+        this.unboxed = new boolean[INITIAL_CAPACITY];
+    }
+
+    public @Nonnull ParameterBuffer setInt(final int index, final int value) {
+        return setUnboxed(index, value, StatementParameter.Type.INTEGER);
+    }
+
+    public @Nonnull ParameterBuffer setLong(final int index, final long value) {
+        return setUnboxed(index, value, StatementParameter.Type.LONG);
+    }
+
+    public @Nonnull ParameterBuffer setDouble(final int index, final double value) {
+        return setUnboxed(index, Double.doubleToLongBits(value), StatementParameter.Type.DOUBLE);
+    }
+
+    public @Nonnull ParameterBuffer setBoolean(final int index, final boolean value) {
+        return setUnboxed(index, value ? 1L : 0L, StatementParameter.Type.BOOLEAN);
+    }
+
+    public @Nonnull ParameterBuffer setString(final int index, @Nullable final String value) {
+        return setObject(index, value, StatementParameter.Type.VARCHAR);
+    }
+
+    public @Nonnull ParameterBuffer setNull(final int index, @Nonnull final StatementParameter.Type type) {
+        return setObject(index, null, type);
+    }
+
+    /**
+     * Set a value of any type, to be bound with
+     * {@link PreparedStatement#setObject(int, Object, int)}, or
+     * {@link PreparedStatement#setNull(int, int)} if it is null.
+     */
+    public @Nonnull ParameterBuffer setObject(
+            final int index,
+            @Nullable final Object value,
+            @Nonnull final StatementParameter.Type type) {
+        Objects.requireNonNull(type, "null type");
+        final int slot = slot(index);
+        this.types[slot] = type;
+        this.values[slot] = value;
+        this.unboxed[slot] = false;
+        return this;
+    }
+
+    /**
+     * Unset all parameters.
+     */
+    public @Nonnull ParameterBuffer clear() {
+        Arrays.fill(this.types, 0, this.size, null);
+        Arrays.fill(this.values, 0, this.size, null);
+        this.size = 0;
+        return this;
+    }
+
+    /**
+     * Copy the current parameters, for a single
+     * {@link crud.core.WritableResource#write(Object) write}.
+     *
+     * @throws IllegalStateException    If any parameter below the highest
+     *              one set has not been set.
+     */
+    public @Nonnull StatementParameters toParameters() {
+        final StatementParameters.Builder builder = StatementParameters.builder();
+        for (int slot = 0; slot < this.size; ++slot) {
+            final StatementParameter.Type type = checkSet(slot);
+            if (this.unboxed[slot]) {
+                builder.append(StatementParameter.ofUnboxed(this.unboxedBits[slot], type));
+            } else {
+                builder.append(StatementParameter.ofValue(this.values[slot]).ofType(type));
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '[' + this.size + " parameters]";
+    }
+
+    /**
+     * Set the current parameters on the given {@link PreparedStatement}.
+     *
+     * @throws IllegalStateException    If any parameter below the highest
+     *              one set has not been set.
+     */
+    /*package*/ void substituteAll(@Nonnull final PreparedStatement statement) throws SQLException {
+        for (int slot = 0; slot < this.size; ++slot) {
+            final StatementParameter.Type type = checkSet(slot);
+            if (this.unboxed[slot]) {
+                StatementParameter.bindUnboxed(statement, slot + 1, type, this.unboxedBits[slot]);
+            } else {
+                StatementParameter.bind(statement, slot + 1, type, this.values[slot]);
+            }
+        }
+    }
+
+    private @Nonnull ParameterBuffer setUnboxed(
+            final int index,
+            final long bits,
+            @Nonnull final StatementParameter.Type type) {
+        final int slot = slot(index);
+        this.types[slot] = type;
+        this.values[slot] = null;
+        this.unboxedBits[slot] = bits;
+        this.unboxed[slot] = true;
+        return this;
+    }
+
+    /**
+     * Convert the given 1-based index to a 0-based slot, growing the arrays
+     * if necessary.
+     */
+    private int slot(final int index) {
+        Preconditions.checkArgument(index >= 1, "Indexes start at 1");
+        final int slot = index - 1;
+        if (slot >= this.types.length) {
+            final int newCapacity = Math.max(index, 2 * this.types.length);
+            this.types = Arrays.copyOf(this.types, newCapacity);
+            this.values = Arrays.copyOf(this.values, newCapacity);
+            this.unboxedBits = Arrays.copyOf(this.unboxedBits, newCapacity);
+            this.unboxed = Arrays.copyOf(this.unboxed, newCapacity);
+        }
+        this.size = Math.max(this.size, index);
+        return slot;
+    }
+
+    private @Nonnull StatementParameter.Type checkSet(final int slot) {
+        final StatementParameter.Type type = this.types[slot];
+        if (type == null) {
+            throw new IllegalStateException("Parameter " + (slot + 1) + " not set");
+        }
+        return type;
+    }
+
+
+    /**
+     * Supplies the parameters of a sequence of writes, by filling a
+     * {@link ParameterBuffer} for each one.
+     */
+    public static interface Source {
+        /**
+         * Set the parameters of the next write in the given buffer, which
+         * still holds those of the previous write, if any. Called in the
+         * {@link crud.core.Session}'s worker thread.
+         *
+         * @return  true if the buffer holds the parameters of another
+         *          write, or false if there are no more writes.
+         */
+        public abstract boolean fill(@Nonnull ParameterBuffer buffer);
+    }
+
+}
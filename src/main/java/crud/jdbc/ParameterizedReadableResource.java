@@ -0,0 +1,48 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import javax.annotation.Nonnull;
+
+import crud.core.ReadableResource;
+import rx.Observable;
+
+
+/**
+ * A {@link ReadableResource} for a query with placeholders, the
+ * parameters of which are supplied with each read, rather than fixed when
+ * the resource is obtained. The resources of a {@link JdbcDataBus}'s
+ * {@link crud.core.ReadableResourceSet}s keyed by SQL {@link String}
+ * implement this interface. Reads with different parameters share a
+ * single {@link java.sql.PreparedStatement} per
+ * {@link crud.core.Session}, so a query that is run with many different
+ * parameters needs only one resource, and is prepared only once.
+ *
+ * @param <ROW> The type of the elements read: {@link ResultSetRow},
+ *              {@link RowSnapshot}, or {@link ColumnBatch}.
+ *
+ * @author Rick Warren
+ */
+public interface ParameterizedReadableResource<ROW> extends ReadableResource<ROW> {
+
+    /**
+     * Execute the query with the given parameters bound to its
+     * placeholders, as {@link #read()} does with none.
+     *
+     * @see StatementTemplate#withParameters(StatementParameters)
+     */
+    public abstract Observable<ROW> read(@Nonnull StatementParameters params);
+
+}
@@ -0,0 +1,87 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import crud.implementer.AbstractReadableResourceSet;
+import crud.implementer.UnorderedSession;
+import rx.Observable;
+import rx.functions.Func1;
+
+
+/**
+ * A {@link ReadableResourceSet} keyed by SQL alone, the resources of which
+ * are {@link ParameterizedReadableResource}s.
+ *
+ * @author Rick Warren
+ */
+/*package*/ final class ParameterizedReadableTable<ROW> extends AbstractReadableResourceSet<String, ROW> {
+
+    private @Nonnull final RowReader.Factory<ROW> rowReaderFactory;
+
+
+    public ParameterizedReadableTable(
+            @Nonnull final ReadableResourceSet.Id<String, ROW> id,
+            @Nonnull final RowReader.Factory<ROW> rowReaderFactory) {
+        super(id);
+        this.rowReaderFactory = Objects.requireNonNull(rowReaderFactory);
+    }
+
+    /**
+     * {@link UnorderedSession#get(ReadableResourceSet, Object)} would hide
+     * the {@link ParameterizedReadableResource} interface of the lanes'
+     * resources, so spread reads across the lanes here instead.
+     */
+    @Override
+    public ParameterizedReadableResource<ROW> get(final String sql, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return new RoundRobinResource<>(((UnorderedSession) session).getLaneResources(
+                    new Func1<Session, ParameterizedReadableResource<ROW>>() {
+                        @Override
+                        public ParameterizedReadableResource<ROW> call(final Session lane) {
+                            return get(sql, lane);
+                        }
+                    }));
+        }
+        final JdbcSession jdbcSession = (JdbcSession) session;
+        return jdbcSession.readableResource(new StatementTemplate(sql), this.rowReaderFactory);
+    }
+
+
+    private static final class RoundRobinResource<ROW>
+    extends UnorderedSession.PerLaneResources<ParameterizedReadableResource<ROW>>
+    implements ParameterizedReadableResource<ROW> {
+        public RoundRobinResource(final List<ParameterizedReadableResource<ROW>> laneResources) {
+            super(laneResources);
+        }
+
+        @Override
+        public Observable<ROW> read() {
+            return nextLane().read();
+        }
+
+        @Override
+        public Observable<ROW> read(final StatementParameters params) {
+            return nextLane().read(params);
+        }
+    }
+
+}
@@ -14,47 +14,134 @@
  */
 package crud.jdbc;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Objects;
 
 import javax.annotation.Nonnull;
 
-import crud.core.ReadableResource;
 import crud.implementer.SessionWorker;
-import crud.implementer.Task;
+import crud.implementer.StreamingTask;
 import rx.Observable;
-import rx.Subscriber;
+import rx.Observer;
+import rx.functions.Func0;
 
 
-/*package*/ final class QueryResource
-extends StatementProvider<ResultSetRow>
-implements ReadableResource<ResultSetRow> {
+/*package*/ final class QueryResource<ROW>
+extends StatementProvider<ROW>
+implements ParameterizedReadableResource<ROW> {
+
+    private @Nonnull final RowReader.Factory<ROW> rowReaderFactory;
+    private final Func0<QueryStream> queryFactory = new Func0<QueryStream>() {
+        @Override
+        public QueryStream call() {
+            return new QueryStream(getStatementTemplate());
+        }
+    };
+
 
     public QueryResource(
-            @Nonnull final Connection connection,
+            @Nonnull final StatementCache statements,
             @Nonnull final StatementTemplate statementTemplate,
+            @Nonnull final RowReader.Factory<ROW> rowReaderFactory,
             @Nonnull final SessionWorker worker) {
-        super(connection, statementTemplate, worker);
+        super(statements, statementTemplate, worker);
+        this.rowReaderFactory = Objects.requireNonNull(rowReaderFactory);
+    }
+
+    /**
+     * Each subscription executes the query anew, and reads rows from the
+     * cursor only as the subscriber {@link rx.Producer#request(long)
+     * requests} them. Between requests, other work in the same
+     * {@link crud.core.Session} may proceed, while the cursor remains
+     * open. Note that, in auto-commit mode, that other work may commit,
+     * and so close the cursor, unless it is
+     * {@link StatementTemplate#withHoldability(int) held over commits}.
+     */
+    @Override
+    public Observable<ROW> read() {
+        return scheduleStreaming(this.queryFactory);
     }
 
+    /**
+     * Read as {@link #read()} does, but with the given parameters in place
+     * of the template's. The template's SQL and options are unchanged, so
+     * the {@link StatementCache} rebinds the same statement rather than
+     * preparing another.
+     */
     @Override
-    public Observable<ResultSetRow> read() {
-        return getWorker().scheduleCold(new Task<ResultSetRow>() {
+    public Observable<ROW> read(@Nonnull final StatementParameters params) {
+        final StatementTemplate boundTemplate = getStatementTemplate().withParameters(params);
+        return scheduleStreaming(new Func0<QueryStream>() {
             @Override
-            public void call(final Subscriber<? super ResultSetRow> sub) throws SQLException {
-                @SuppressWarnings("resource")
-                final PreparedStatement queryStmt = getStatement();
-                try (ResultSet results = queryStmt.executeQuery()) {
-                    while (results.next()) {
-                        @SuppressWarnings("resource")
-                        final ResultSetRow currentRow = new ResultSetRow(results);
-                        sub.onNext(currentRow);
-                    }
-                }
+            public QueryStream call() {
+                return new QueryStream(boundTemplate);
             }
         });
     }
 
+
+    /**
+     * Executes the query once per subscription to {@link QueryResource#read()}
+     * or {@link QueryResource#read(StatementParameters)}.
+     * If the subscriber goes away, stop reading rows, and ask the database
+     * to stop executing the query.
+     */
+    private final class QueryStream implements StreamingTask<ROW> {
+        private @Nonnull final StatementTemplate template;
+        /**
+         * Exposes the statement, while the query is open, to
+         * {@link #cancel()} in whatever thread unsubscribes.
+         */
+        private final StatementCanceller canceller = new StatementCanceller();
+
+        // Accessed only in the worker thread:
+        private PreparedStatement queryStmt = null;
+        private ResultSet results = null;
+        private RowReader<ROW> rowReader = null;
+
+        public QueryStream(@Nonnull final StatementTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        public void open() throws SQLException {
+            this.queryStmt = borrowStatement(this.template);
+            applyQueryTimeout(this.queryStmt);
+            this.canceller.startExecution(this.queryStmt);
+            this.results = this.queryStmt.executeQuery();
+            this.rowReader = QueryResource.this.rowReaderFactory.newRowReader(this.template, this.results);
+        }
+
+        @Override
+        public boolean emitNext(final Observer<? super ROW> observer) throws SQLException {
+            if (this.results.next()) {
+                this.rowReader.readRow(this.results, observer);
+                return true;
+            } else {
+                this.rowReader.endOfResults(observer);
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (this.results != null) {
+                    this.results.close();
+                }
+            } finally {
+                if (this.queryStmt != null) {
+                    releaseStatement(this.template, this.queryStmt, this.canceller);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() throws SQLException {
+            this.canceller.cancel();
+        }
+    }
+
 }
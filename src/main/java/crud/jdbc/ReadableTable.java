@@ -14,22 +14,36 @@
  */
 package crud.jdbc;
 
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
 import crud.core.ReadableResource;
 import crud.core.ReadableResourceSet;
 import crud.core.Session;
 import crud.implementer.AbstractReadableResourceSet;
+import crud.implementer.UnorderedSession;
+
+
+/*package*/ final class ReadableTable<ROW> extends AbstractReadableResourceSet<StatementTemplate, ROW> {
 
+    private @Nonnull final RowReader.Factory<ROW> rowReaderFactory;
 
-/*package*/ final class ReadableTable extends AbstractReadableResourceSet<StatementTemplate, ResultSetRow> {
 
-    public ReadableTable(final ReadableResourceSet.Id<StatementTemplate, ResultSetRow> id) {
+    public ReadableTable(
+            @Nonnull final ReadableResourceSet.Id<StatementTemplate, ROW> id,
+            @Nonnull final RowReader.Factory<ROW> rowReaderFactory) {
         super(id);
+        this.rowReaderFactory = Objects.requireNonNull(rowReaderFactory);
     }
 
     @Override
-    public ReadableResource<ResultSetRow> get(final StatementTemplate query, final Session session) {
+    public ReadableResource<ROW> get(final StatementTemplate query, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return ((UnorderedSession) session).get(this, query);
+        }
         final JdbcSession jdbcSession = (JdbcSession) session;
-        return jdbcSession.readableResource(query);
+        return jdbcSession.readableResource(query, this.rowReaderFactory);
     }
 
 }
@@ -39,6 +39,10 @@ import java.util.Map;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import rx.Observer;
 
 
 /**
@@ -47,14 +51,41 @@ import javax.annotation.Nonnull;
  * but it does not prevent that cursor to be advanced underneath. Clients that
  * wish to keep a reference to state exposed by a row should get it out before
  * relinquishing control.
+ * <p/>
+ * Column labels are resolved to indices once per query, not by the driver
+ * for every value read. To avoid even that look-up, read through a
+ * {@link Column}.
  *
  * @author Rick Warren
  */
 public class ResultSetRow implements ResultSet {
 
+    private static final RowReader.Factory<ResultSetRow> readerFactory = new RowReader.Factory<ResultSetRow>() {
+        @Override
+        public RowReader<ResultSetRow> newRowReader(final StatementTemplate query, final ResultSet results) {
+            final LabelIndex labels = new LabelIndex(results);
+            final ResultSetRow sharedRow = query.isRowReused() ? new ResultSetRow(results, labels) : null;
+            return new LiveRowReader(labels, sharedRow);
+        }
+    };
+
     private @Nonnull final ResultSet delegate;
+    private @Nonnull final LabelIndex labels;
 
 
+    /**
+     * Resolve the given label to a {@link Column}, which can read that
+     * column from this row, and from every later row of the same query,
+     * by index. Reading by label, even with the cached look-up this class
+     * provides, involves hashing the label for every value read; reading
+     * through a Column does not.
+     *
+     * @throws SQLException If there is no column with the given label.
+     */
+    public @Nonnull Column column(@Nonnull final String columnLabel) throws SQLException {
+        return new Column(indexOf(columnLabel), columnLabel);
+    }
+
     @Override
     public boolean wasNull() throws SQLException {
         return this.delegate.wasNull();
@@ -144,84 +175,84 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public String getString(final String columnLabel) throws SQLException {
-        return this.delegate.getString(columnLabel);
+        return this.delegate.getString(indexOf(columnLabel));
     }
 
     @Override
     public boolean getBoolean(final String columnLabel) throws SQLException {
-        return this.delegate.getBoolean(columnLabel);
+        return this.delegate.getBoolean(indexOf(columnLabel));
     }
 
     @Override
     public byte getByte(final String columnLabel) throws SQLException {
-        return this.delegate.getByte(columnLabel);
+        return this.delegate.getByte(indexOf(columnLabel));
     }
 
     @Override
     public short getShort(final String columnLabel) throws SQLException {
-        return this.delegate.getShort(columnLabel);
+        return this.delegate.getShort(indexOf(columnLabel));
     }
 
     @Override
     public int getInt(final String columnLabel) throws SQLException {
-        return this.delegate.getInt(columnLabel);
+        return this.delegate.getInt(indexOf(columnLabel));
     }
 
     @Override
     public long getLong(final String columnLabel) throws SQLException {
-        return this.delegate.getLong(columnLabel);
+        return this.delegate.getLong(indexOf(columnLabel));
     }
 
     @Override
     public float getFloat(final String columnLabel) throws SQLException {
-        return this.delegate.getFloat(columnLabel);
+        return this.delegate.getFloat(indexOf(columnLabel));
     }
 
     @Override
     public double getDouble(final String columnLabel) throws SQLException {
-        return this.delegate.getDouble(columnLabel);
+        return this.delegate.getDouble(indexOf(columnLabel));
     }
 
     @Override
     @Deprecated
     public BigDecimal getBigDecimal(final String columnLabel, final int scale) throws SQLException {
-        return this.delegate.getBigDecimal(columnLabel, scale);
+        return this.delegate.getBigDecimal(indexOf(columnLabel), scale);
     }
 
     @Override
     public byte[] getBytes(final String columnLabel) throws SQLException {
-        return this.delegate.getBytes(columnLabel);
+        return this.delegate.getBytes(indexOf(columnLabel));
     }
 
     @Override
     public Date getDate(final String columnLabel) throws SQLException {
-        return this.delegate.getDate(columnLabel);
+        return this.delegate.getDate(indexOf(columnLabel));
     }
 
     @Override
     public Time getTime(final String columnLabel) throws SQLException {
-        return this.delegate.getTime(columnLabel);
+        return this.delegate.getTime(indexOf(columnLabel));
     }
 
     @Override
     public Timestamp getTimestamp(final String columnLabel) throws SQLException {
-        return this.delegate.getTimestamp(columnLabel);
+        return this.delegate.getTimestamp(indexOf(columnLabel));
     }
 
     @Override
     public InputStream getAsciiStream(final String columnLabel) throws SQLException {
-        return this.delegate.getAsciiStream(columnLabel);
+        return this.delegate.getAsciiStream(indexOf(columnLabel));
     }
 
     @Override
     @Deprecated
     public InputStream getUnicodeStream(final String columnLabel) throws SQLException {
-        return this.delegate.getUnicodeStream(columnLabel);
+        return this.delegate.getUnicodeStream(indexOf(columnLabel));
     }
 
     @Override
     public InputStream getBinaryStream(final String columnLabel) throws SQLException {
-        return this.delegate.getBinaryStream(columnLabel);
+        return this.delegate.getBinaryStream(indexOf(columnLabel));
     }
 
     @Override
@@ -251,12 +282,12 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Object getObject(final String columnLabel) throws SQLException {
-        return this.delegate.getObject(columnLabel);
+        return this.delegate.getObject(indexOf(columnLabel));
     }
 
     @Override
     public int findColumn(final String columnLabel) throws SQLException {
-        return this.delegate.findColumn(columnLabel);
+        return indexOf(columnLabel);
     }
 
     @Override
@@ -266,7 +297,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Reader getCharacterStream(final String columnLabel) throws SQLException {
-        return this.delegate.getCharacterStream(columnLabel);
+        return this.delegate.getCharacterStream(indexOf(columnLabel));
     }
 
     @Override
@@ -276,7 +307,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(final String columnLabel) throws SQLException {
-        return this.delegate.getBigDecimal(columnLabel);
+        return this.delegate.getBigDecimal(indexOf(columnLabel));
     }
 
     @Override
@@ -336,27 +367,27 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Object getObject(final String columnLabel, final Map<String, Class<?>> map) throws SQLException {
-        return this.delegate.getObject(columnLabel, map);
+        return this.delegate.getObject(indexOf(columnLabel), map);
     }
 
     @Override
     public Ref getRef(final String columnLabel) throws SQLException {
-        return this.delegate.getRef(columnLabel);
+        return this.delegate.getRef(indexOf(columnLabel));
     }
 
     @Override
     public Blob getBlob(final String columnLabel) throws SQLException {
-        return this.delegate.getBlob(columnLabel);
+        return this.delegate.getBlob(indexOf(columnLabel));
     }
 
     @Override
     public Clob getClob(final String columnLabel) throws SQLException {
-        return this.delegate.getClob(columnLabel);
+        return this.delegate.getClob(indexOf(columnLabel));
     }
 
     @Override
     public Array getArray(final String columnLabel) throws SQLException {
-        return this.delegate.getArray(columnLabel);
+        return this.delegate.getArray(indexOf(columnLabel));
     }
 
     @Override
@@ -366,7 +397,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Date getDate(final String columnLabel, final Calendar cal) throws SQLException {
-        return this.delegate.getDate(columnLabel, cal);
+        return this.delegate.getDate(indexOf(columnLabel), cal);
     }
 
     @Override
@@ -376,7 +407,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Time getTime(final String columnLabel, final Calendar cal) throws SQLException {
-        return this.delegate.getTime(columnLabel, cal);
+        return this.delegate.getTime(indexOf(columnLabel), cal);
     }
 
     @Override
@@ -386,7 +417,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Timestamp getTimestamp(final String columnLabel, final Calendar cal) throws SQLException {
-        return this.delegate.getTimestamp(columnLabel, cal);
+        return this.delegate.getTimestamp(indexOf(columnLabel), cal);
     }
 
     @Override
@@ -396,7 +427,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public URL getURL(final String columnLabel) throws SQLException {
-        return this.delegate.getURL(columnLabel);
+        return this.delegate.getURL(indexOf(columnLabel));
     }
 
     @Override
@@ -406,7 +437,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public RowId getRowId(final String columnLabel) throws SQLException {
-        return this.delegate.getRowId(columnLabel);
+        return this.delegate.getRowId(indexOf(columnLabel));
     }
 
     @Override
@@ -426,7 +457,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public NClob getNClob(final String columnLabel) throws SQLException {
-        return this.delegate.getNClob(columnLabel);
+        return this.delegate.getNClob(indexOf(columnLabel));
     }
 
     @Override
@@ -436,7 +467,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public SQLXML getSQLXML(final String columnLabel) throws SQLException {
-        return this.delegate.getSQLXML(columnLabel);
+        return this.delegate.getSQLXML(indexOf(columnLabel));
     }
 
     @Override
@@ -451,7 +482,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public String getNString(final String columnLabel) throws SQLException {
-        return this.delegate.getNString(columnLabel);
+        return this.delegate.getNString(indexOf(columnLabel));
     }
 
     @Override
@@ -461,7 +492,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public Reader getNCharacterStream(final String columnLabel) throws SQLException {
-        return this.delegate.getNCharacterStream(columnLabel);
+        return this.delegate.getNCharacterStream(indexOf(columnLabel));
     }
 
     @Override
@@ -471,7 +502,7 @@ public class ResultSetRow implements ResultSet {
 
     @Override
     public <T> T getObject(final String columnLabel, final Class<T> type) throws SQLException {
-        return this.delegate.getObject(columnLabel, type);
+        return this.delegate.getObject(indexOf(columnLabel), type);
     }
 
 
@@ -1634,8 +1665,164 @@ public class ResultSetRow implements ResultSet {
 
     // --- Non-public implementation: ----------------------------------------
 
+    /**
+     * Creates the {@link RowReader}s that {@link QueryResource}s use to wrap
+     * their cursors in ResultSetRows.
+     */
+    /*package*/ static @Nonnull RowReader.Factory<ResultSetRow> rowReaderFactory() {
+        return readerFactory;
+    }
+
     /*package*/ ResultSetRow(@Nonnull final ResultSet delegate) {
+        this(delegate, new LabelIndex(delegate));
+    }
+
+    private ResultSetRow(@Nonnull final ResultSet delegate, @Nonnull final LabelIndex labels) {
         this.delegate = Objects.requireNonNull(delegate);
+        this.labels = Objects.requireNonNull(labels);
+    }
+
+    /**
+     * Find the index of the given label in the {@link LabelIndex} shared by
+     * all rows of this query. If it isn't there, ask the driver, so that
+     * the failure is reported as the driver would report it.
+     */
+    private int indexOf(@Nonnull final String columnLabel) throws SQLException {
+        final int index = this.labels.get().indexOf(columnLabel);
+        return (index > 0) ? index : this.delegate.findColumn(columnLabel);
+    }
+
+
+    /**
+     * A column of a query result, bound to its index. Obtain one from
+     * {@link ResultSetRow#column(String)} when reading the first row, and
+     * use it to read each row of the same query, without resolving the
+     * label again.
+     */
+    @Immutable
+    public static final class Column {
+        private final int index;
+        private @Nonnull final String label;
+
+        private Column(final int index, @Nonnull final String label) {
+            this.index = index;
+            this.label = label;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public @Nonnull String getLabel() {
+            return this.label;
+        }
+
+        public String getString(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getString(this.index);
+        }
+
+        public boolean getBoolean(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getBoolean(this.index);
+        }
+
+        public int getInt(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getInt(this.index);
+        }
+
+        public long getLong(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getLong(this.index);
+        }
+
+        public double getDouble(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getDouble(this.index);
+        }
+
+        public BigDecimal getBigDecimal(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getBigDecimal(this.index);
+        }
+
+        public byte[] getBytes(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getBytes(this.index);
+        }
+
+        public Date getDate(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getDate(this.index);
+        }
+
+        public Time getTime(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getTime(this.index);
+        }
+
+        public Timestamp getTimestamp(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getTimestamp(this.index);
+        }
+
+        public Object getObject(@Nonnull final ResultSetRow row) throws SQLException {
+            return row.delegate.getObject(this.index);
+        }
+
+        public <T> T getObject(@Nonnull final ResultSetRow row, @Nonnull final Class<T> type)
+        throws SQLException {
+            return row.delegate.getObject(this.index, type);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + '(' + this.index + ", " + this.label + ')';
+        }
+    }
+
+
+    /**
+     * The column labels of one query's result, shared by all of its rows.
+     * The {@link ResultSetMetaData} is read the first time a label is
+     * looked up, if ever, so that rows read only by index pay nothing.
+     * Rows are read in one thread at a time, but not necessarily always
+     * the same one. {@link ColumnMetaData} is immutable, so at worst, two
+     * threads might each build it, with the same result.
+     */
+    private static final class LabelIndex {
+        private @Nonnull final ResultSet results;
+        private @Nullable ColumnMetaData columns = null;
+
+        public LabelIndex(@Nonnull final ResultSet results) {
+            this.results = results;
+        }
+
+        public @Nonnull ColumnMetaData get() throws SQLException {
+            ColumnMetaData result = this.columns;
+            if (result == null) {
+                result = new ColumnMetaData(this.results.getMetaData());
+                this.columns = result;
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * Wraps each row in a new ResultSetRow, unless the query
+     * {@link StatementTemplate#withReusedRows() reuses} a single one.
+     */
+    private static final class LiveRowReader implements RowReader<ResultSetRow> {
+        private @Nonnull final LabelIndex labels;
+        private @Nullable final ResultSetRow sharedRow;
+
+        public LiveRowReader(@Nonnull final LabelIndex labels, @Nullable final ResultSetRow sharedRow) {
+            this.labels = labels;
+            this.sharedRow = sharedRow;
+        }
+
+        @Override
+        @SuppressWarnings("resource")
+        public void readRow(final ResultSet results, final Observer<? super ResultSetRow> sub) {
+            sub.onNext((this.sharedRow != null) ? this.sharedRow : new ResultSetRow(results, this.labels));
+        }
+
+        @Override
+        public void endOfResults(final Observer<? super ResultSetRow> sub) {
+            // nothing held back
+        }
     }
 
 }
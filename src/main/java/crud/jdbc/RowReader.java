@@ -0,0 +1,61 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.annotation.Nonnull;
+
+import rx.Observer;
+
+
+/**
+ * Converts the rows of a {@link ResultSet} into the elements that a
+ * {@link QueryResource} emits. One RowReader is created per execution of a
+ * query, in the worker thread, so it may cache whatever it learns from the
+ * first row, or accumulate several rows into a single element.
+ *
+ * @author Rick Warren
+ */
+/*package*/ interface RowReader<ROW> {
+
+    /**
+     * Called once for each row, after the cursor has been advanced to it.
+     * Emit any number of elements, including none, to the observer.
+     */
+    void readRow(@Nonnull ResultSet results, @Nonnull Observer<? super ROW> observer) throws SQLException;
+
+    /**
+     * Called after the last row has been read, unless the subscriber
+     * unsubscribed first. Emit whatever has been held back.
+     */
+    void endOfResults(@Nonnull Observer<? super ROW> observer);
+
+
+    /**
+     * Creates a {@link RowReader} for each execution of a query.
+     */
+    interface Factory<ROW> {
+        /**
+         * Called after the query has been executed, and before the cursor
+         * has been advanced to the first row.
+         */
+        @Nonnull RowReader<ROW> newRowReader(
+                @Nonnull StatementTemplate query,
+                @Nonnull ResultSet results) throws SQLException;
+    }
+
+}
@@ -0,0 +1,660 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import rx.Observer;
+
+
+/**
+ * A detached copy of a single row of a query result. Unlike a
+ * {@link ResultSetRow}, which is only valid until the cursor beneath it
+ * moves, a RowSnapshot is immutable, and so may be buffered, passed to
+ * other threads -- e.g. with {@link rx.Observable#observeOn(rx.Scheduler)}
+ * -- or kept indefinitely.
+ * <p/>
+ * Each row is copied once, in the worker thread. Boolean, integral, and
+ * floating-point columns are stored unboxed, in a single {@code long[]};
+ * other values are stored in an {@code Object[]}. Large objects are read
+ * fully into memory: {@link java.sql.Blob}s as {@code byte[]}, and
+ * {@link java.sql.Clob}s as {@link String}s. The column labels, and the
+ * index to look them up, are shared among all of the rows of a query.
+ * <p/>
+ * The accessors resemble those of {@link ResultSet}, and convert among
+ * types in similar ways. Columns are numbered from 1, and labels are
+ * matched without regard to case. A SQL {@code NULL} is reported as
+ * {@code null}, {@code 0}, or {@code false}, as appropriate; because this
+ * class has no mutable state, {@link #isNull(int)} takes the place of
+ * {@link ResultSet#wasNull()}.
+ *
+ * @see JdbcDataBus
+ *
+ * @author Rick Warren
+ */
+@Immutable
+public final class RowSnapshot {
+
+    private static final RowReader.Factory<RowSnapshot> readerFactory = new RowReader.Factory<RowSnapshot>() {
+        @Override
+        public RowReader<RowSnapshot> newRowReader(final StatementTemplate query, final ResultSet results)
+                throws SQLException {
+            return new Columns(new ColumnMetaData(results.getMetaData()));
+        }
+    };
+
+    private @Nonnull final Columns columns;
+    /**
+     * The values of the {@link ColumnKind#isPrimitive() primitive} columns:
+     * booleans as 0 or 1, and doubles as their raw bits.
+     */
+    private @Nonnull final long[] primitives;
+    private @Nonnull final Object[] objects;
+    /**
+     * The primitive columns that were NULL, by column index; or null if
+     * there were none, as is usual.
+     */
+    private @Nullable final BitSet nullPrimitives;
+
+
+    /**
+     * Creates the {@link RowReader}s that {@link QueryResource}s use to copy
+     * rows into RowSnapshots.
+     */
+    /*package*/ static @Nonnull RowReader.Factory<RowSnapshot> rowReaderFactory() {
+        return readerFactory;
+    }
+
+    public int getColumnCount() {
+        return this.columns.labels.length;
+    }
+
+    /**
+     * @throws SQLException If there is no such column.
+     */
+    public @Nonnull String getColumnLabel(final int columnIndex) throws SQLException {
+        return this.columns.labels[this.columns.checkIndex(columnIndex) - 1];
+    }
+
+    /**
+     * @see ResultSet#findColumn(String)
+     *
+     * @throws SQLException If there is no such column.
+     */
+    public int findColumn(@Nonnull final String columnLabel) throws SQLException {
+        return this.columns.findColumn(columnLabel);
+    }
+
+    /**
+     * @return  true if the value in the given column was SQL {@code NULL}.
+     *
+     * @throws SQLException If there is no such column.
+     */
+    public boolean isNull(final int columnIndex) throws SQLException {
+        return isNullAt(this.columns.checkIndex(columnIndex) - 1);
+    }
+
+    /**
+     * @see #isNull(int)
+     */
+    public boolean isNull(@Nonnull final String columnLabel) throws SQLException {
+        return isNull(findColumn(columnLabel));
+    }
+
+    public @Nullable String getString(final int columnIndex) throws SQLException {
+        final int i = this.columns.checkIndex(columnIndex) - 1;
+        if (isNullAt(i)) {
+            return null;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+                return Boolean.toString(primitiveAt(i) != 0L);
+            case LONG:
+                return Long.toString(primitiveAt(i));
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(primitiveAt(i)));
+            default:
+                return this.objects[this.columns.slots[i]].toString();
+        }
+    }
+
+    public @Nullable String getString(@Nonnull final String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    public boolean getBoolean(final int columnIndex) throws SQLException {
+        final int i = this.columns.checkIndex(columnIndex) - 1;
+        if (isNullAt(i)) {
+            return false;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+            case LONG:
+                return primitiveAt(i) != 0L;
+            case DOUBLE:
+                return Double.longBitsToDouble(primitiveAt(i)) != 0.0;
+            default:
+                final Object value = this.objects[this.columns.slots[i]];
+                if (value instanceof Boolean) {
+                    return (Boolean) value;
+                } else if (value instanceof Number) {
+                    return ((Number) value).doubleValue() != 0.0;
+                } else if (value instanceof String) {
+                    final String str = ((String) value).trim();
+                    return "1".equals(str) || Boolean.parseBoolean(str);
+                } else {
+                    throw cannotConvert(i, boolean.class);
+                }
+        }
+    }
+
+    public boolean getBoolean(@Nonnull final String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    public byte getByte(final int columnIndex) throws SQLException {
+        return (byte) getLong(columnIndex);
+    }
+
+    public byte getByte(@Nonnull final String columnLabel) throws SQLException {
+        return getByte(findColumn(columnLabel));
+    }
+
+    public short getShort(final int columnIndex) throws SQLException {
+        return (short) getLong(columnIndex);
+    }
+
+    public short getShort(@Nonnull final String columnLabel) throws SQLException {
+        return getShort(findColumn(columnLabel));
+    }
+
+    public int getInt(final int columnIndex) throws SQLException {
+        return (int) getLong(columnIndex);
+    }
+
+    public int getInt(@Nonnull final String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    public long getLong(final int columnIndex) throws SQLException {
+        final int i = this.columns.checkIndex(columnIndex) - 1;
+        if (isNullAt(i)) {
+            return 0L;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+            case LONG:
+                return primitiveAt(i);
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(primitiveAt(i));
+            default:
+                final Object value = this.objects[this.columns.slots[i]];
+                if (value instanceof Number) {
+                    return ((Number) value).longValue();
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value) ? 1L : 0L;
+                } else if (value instanceof String) {
+                    try {
+                        return Long.parseLong(((String) value).trim());
+                    } catch (final NumberFormatException ex) {
+                        throw new SQLException(cannotConvert(i, long.class).getMessage(), ex);
+                    }
+                } else {
+                    throw cannotConvert(i, long.class);
+                }
+        }
+    }
+
+    public long getLong(@Nonnull final String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    public float getFloat(final int columnIndex) throws SQLException {
+        return (float) getDouble(columnIndex);
+    }
+
+    public float getFloat(@Nonnull final String columnLabel) throws SQLException {
+        return getFloat(findColumn(columnLabel));
+    }
+
+    public double getDouble(final int columnIndex) throws SQLException {
+        final int i = this.columns.checkIndex(columnIndex) - 1;
+        if (isNullAt(i)) {
+            return 0.0;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+            case LONG:
+                return primitiveAt(i);
+            case DOUBLE:
+                return Double.longBitsToDouble(primitiveAt(i));
+            default:
+                final Object value = this.objects[this.columns.slots[i]];
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value) ? 1.0 : 0.0;
+                } else if (value instanceof String) {
+                    try {
+                        return Double.parseDouble(((String) value).trim());
+                    } catch (final NumberFormatException ex) {
+                        throw new SQLException(cannotConvert(i, double.class).getMessage(), ex);
+                    }
+                } else {
+                    throw cannotConvert(i, double.class);
+                }
+        }
+    }
+
+    public double getDouble(@Nonnull final String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    public @Nullable BigDecimal getBigDecimal(final int columnIndex) throws SQLException {
+        final int i = this.columns.checkIndex(columnIndex) - 1;
+        if (isNullAt(i)) {
+            return null;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+            case LONG:
+                return BigDecimal.valueOf(primitiveAt(i));
+            case DOUBLE:
+                return BigDecimal.valueOf(Double.longBitsToDouble(primitiveAt(i)));
+            default:
+                final Object value = this.objects[this.columns.slots[i]];
+                if (value instanceof BigDecimal) {
+                    return (BigDecimal) value;
+                } else if (value instanceof Number || value instanceof String) {
+                    try {
+                        return new BigDecimal(value.toString().trim());
+                    } catch (final NumberFormatException ex) {
+                        throw new SQLException(cannotConvert(i, BigDecimal.class).getMessage(), ex);
+                    }
+                } else {
+                    throw cannotConvert(i, BigDecimal.class);
+                }
+        }
+    }
+
+    public @Nullable BigDecimal getBigDecimal(@Nonnull final String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    /**
+     * @return  a copy of the bytes in the given column, which the caller
+     *          may modify.
+     */
+    public @Nullable byte[] getBytes(final int columnIndex) throws SQLException {
+        final Object value = getObjectAt(this.columns.checkIndex(columnIndex) - 1);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        } else {
+            throw cannotConvert(columnIndex - 1, byte[].class);
+        }
+    }
+
+    /**
+     * @see #getBytes(int)
+     */
+    public @Nullable byte[] getBytes(@Nonnull final String columnLabel) throws SQLException {
+        return getBytes(findColumn(columnLabel));
+    }
+
+    public @Nullable Date getDate(final int columnIndex) throws SQLException {
+        final Object value = getObjectAt(this.columns.checkIndex(columnIndex) - 1);
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        } else if (value instanceof java.util.Date) {
+            return new Date(((java.util.Date) value).getTime());
+        } else {
+            throw cannotConvert(columnIndex - 1, Date.class);
+        }
+    }
+
+    public @Nullable Date getDate(@Nonnull final String columnLabel) throws SQLException {
+        return getDate(findColumn(columnLabel));
+    }
+
+    public @Nullable Time getTime(final int columnIndex) throws SQLException {
+        final Object value = getObjectAt(this.columns.checkIndex(columnIndex) - 1);
+        if (value == null || value instanceof Time) {
+            return (Time) value;
+        } else if (value instanceof java.util.Date) {
+            return new Time(((java.util.Date) value).getTime());
+        } else {
+            throw cannotConvert(columnIndex - 1, Time.class);
+        }
+    }
+
+    public @Nullable Time getTime(@Nonnull final String columnLabel) throws SQLException {
+        return getTime(findColumn(columnLabel));
+    }
+
+    public @Nullable Timestamp getTimestamp(final int columnIndex) throws SQLException {
+        final Object value = getObjectAt(this.columns.checkIndex(columnIndex) - 1);
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        } else if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        } else {
+            throw cannotConvert(columnIndex - 1, Timestamp.class);
+        }
+    }
+
+    public @Nullable Timestamp getTimestamp(@Nonnull final String columnLabel) throws SQLException {
+        return getTimestamp(findColumn(columnLabel));
+    }
+
+    /**
+     * Primitive values are boxed according to their SQL type, as
+     * {@link ResultSet#getObject(int)} would box them: for example, an
+     * {@code INTEGER} as an {@link Integer}, and a {@code BIGINT} as a
+     * {@link Long}. Mutable values, such as arrays and dates, are copied.
+     */
+    public @Nullable Object getObject(final int columnIndex) throws SQLException {
+        return getObjectAt(this.columns.checkIndex(columnIndex) - 1);
+    }
+
+    /**
+     * @see #getObject(int)
+     */
+    public @Nullable Object getObject(@Nonnull final String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    /**
+     * @see ResultSet#getObject(int, Class)
+     *
+     * @throws SQLException If the value cannot be converted to the given
+     *                      type.
+     */
+    public <T> T getObject(final int columnIndex, @Nonnull final Class<T> type) throws SQLException {
+        final Object value = getObject(columnIndex);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        } else if (type == String.class) {
+            return type.cast(getString(columnIndex));
+        } else if (type == Boolean.class) {
+            return type.cast(getBoolean(columnIndex));
+        } else if (type == Byte.class) {
+            return type.cast(getByte(columnIndex));
+        } else if (type == Short.class) {
+            return type.cast(getShort(columnIndex));
+        } else if (type == Integer.class) {
+            return type.cast(getInt(columnIndex));
+        } else if (type == Long.class) {
+            return type.cast(getLong(columnIndex));
+        } else if (type == Float.class) {
+            return type.cast(getFloat(columnIndex));
+        } else if (type == Double.class) {
+            return type.cast(getDouble(columnIndex));
+        } else if (type == BigDecimal.class) {
+            return type.cast(getBigDecimal(columnIndex));
+        } else if (type == Date.class) {
+            return type.cast(getDate(columnIndex));
+        } else if (type == Time.class) {
+            return type.cast(getTime(columnIndex));
+        } else if (type == Timestamp.class) {
+            return type.cast(getTimestamp(columnIndex));
+        } else {
+            throw cannotConvert(columnIndex - 1, type);
+        }
+    }
+
+    /**
+     * @see #getObject(int, Class)
+     */
+    public <T> T getObject(@Nonnull final String columnLabel, @Nonnull final Class<T> type) throws SQLException {
+        return getObject(findColumn(columnLabel), type);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(getClass().getSimpleName()).append('{');
+        for (int i = 0; i < this.columns.labels.length; ++i) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(this.columns.labels[i]).append('=');
+            final Object value = getObjectAt(i);
+            buf.append((value instanceof byte[]) ? Arrays.toString((byte[]) value) : value);
+        }
+        return buf.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final RowSnapshot other = (RowSnapshot) obj;
+        return (this.columns == other.columns || this.columns.sameShapeAs(other.columns))
+                && Arrays.equals(this.primitives, other.primitives)
+                && Arrays.deepEquals(this.objects, other.objects)
+                && Objects.equals(this.nullPrimitives, other.nullPrimitives);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 + Arrays.hashCode(this.columns.labels);
+        result = 31 * result + Arrays.hashCode(this.primitives);
+        result = 31 * result + Arrays.deepHashCode(this.objects);
+        return 31 * result + Objects.hashCode(this.nullPrimitives);
+    }
+
+    private RowSnapshot(
+            @Nonnull final Columns columns,
+            @Nonnull final long[] primitives,
+            @Nonnull final Object[] objects,
+            @Nullable final BitSet nullPrimitives) {
+        this.columns = columns;
+        this.primitives = primitives;
+        this.objects = objects;
+        this.nullPrimitives = nullPrimitives;
+    }
+
+    private boolean isNullAt(final int i) {
+        if (this.columns.kinds[i].isPrimitive()) {
+            return this.nullPrimitives != null && this.nullPrimitives.get(i);
+        } else {
+            return this.objects[this.columns.slots[i]] == null;
+        }
+    }
+
+    private long primitiveAt(final int i) {
+        return this.primitives[this.columns.slots[i]];
+    }
+
+    private @Nullable Object getObjectAt(final int i) {
+        if (isNullAt(i)) {
+            return null;
+        }
+        switch (this.columns.kinds[i]) {
+            case BOOLEAN:
+                return primitiveAt(i) != 0L;
+            case LONG:
+                if (this.columns.sqlTypes[i] == Types.BIGINT) {
+                    return primitiveAt(i);
+                } else {
+                    return (int) primitiveAt(i);
+                }
+            case DOUBLE:
+                if (this.columns.sqlTypes[i] == Types.REAL) {
+                    return (float) Double.longBitsToDouble(primitiveAt(i));
+                } else {
+                    return Double.longBitsToDouble(primitiveAt(i));
+                }
+            default:
+                return ColumnMetaData.copyIfMutable(this.objects[this.columns.slots[i]]);
+        }
+    }
+
+    private SQLException cannotConvert(final int i, final Class<?> type) {
+        return new SQLException(
+                "Cannot convert column " + this.columns.labels[i] + " to " + type.getSimpleName());
+    }
+
+    /**
+     * How the value of a column is stored.
+     */
+    private static enum ColumnKind {
+        BOOLEAN,
+        LONG,
+        DOUBLE,
+        OBJECT;
+
+        public static @Nonnull ColumnKind forSqlType(final int sqlType) {
+            switch (sqlType) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return BOOLEAN;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    return LONG;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return DOUBLE;
+                default:
+                    return OBJECT;
+            }
+        }
+
+        public boolean isPrimitive() {
+            return this != OBJECT;
+        }
+    }
+
+
+    /**
+     * The shape of the rows of a single query result, shared among all of
+     * its {@link RowSnapshot}s. It reads each row in the worker thread;
+     * after that, it is only read.
+     */
+    @Immutable
+    private static final class Columns implements RowReader<RowSnapshot> {
+        public final ColumnMetaData metaData;
+        public final String[] labels;
+        public final int[] sqlTypes;
+        public final ColumnKind[] kinds;
+        /**
+         * The index of each column into either {@link RowSnapshot#primitives}
+         * or {@link RowSnapshot#objects}, according to its kind.
+         */
+        public final int[] slots;
+        private final int primitiveCount;
+        private final int objectCount;
+
+        public Columns(@Nonnull final ColumnMetaData metaData) {
+            this.metaData = metaData;
+            this.labels = metaData.labels;
+            this.sqlTypes = metaData.sqlTypes;
+            final int columnCount = metaData.getColumnCount();
+            this.kinds = new ColumnKind[columnCount];
+            this.slots = new int[columnCount];
+            int primitives = 0;
+            int objects = 0;
+            for (int i = 0; i < columnCount; ++i) {
+                this.kinds[i] = ColumnKind.forSqlType(this.sqlTypes[i]);
+                this.slots[i] = this.kinds[i].isPrimitive() ? primitives++ : objects++;
+            }
+            this.primitiveCount = primitives;
+            this.objectCount = objects;
+        }
+
+        @Override
+        public void readRow(final ResultSet results, final Observer<? super RowSnapshot> sub) throws SQLException {
+            sub.onNext(snapshot(results));
+        }
+
+        @Override
+        public void endOfResults(final Observer<? super RowSnapshot> sub) {
+            // nothing held back
+        }
+
+        public @Nonnull RowSnapshot snapshot(final ResultSet results) throws SQLException {
+            final long[] primitives = new long[this.primitiveCount];
+            final Object[] objects = new Object[this.objectCount];
+            BitSet nullPrimitives = null;
+            for (int i = 0; i < this.labels.length; ++i) {
+                final int columnIndex = i + 1;
+                final int slot = this.slots[i];
+                switch (this.kinds[i]) {
+                    case BOOLEAN:
+                        primitives[slot] = results.getBoolean(columnIndex) ? 1L : 0L;
+                        break;
+                    case LONG:
+                        primitives[slot] = results.getLong(columnIndex);
+                        break;
+                    case DOUBLE:
+                        primitives[slot] = Double.doubleToLongBits(results.getDouble(columnIndex));
+                        break;
+                    default:
+                        objects[slot] = ColumnMetaData.readDetachedObject(results, columnIndex, this.sqlTypes[i]);
+                        continue;
+                }
+                if (results.wasNull()) {
+                    if (nullPrimitives == null) {
+                        nullPrimitives = new BitSet(this.labels.length);
+                    }
+                    nullPrimitives.set(i);
+                }
+            }
+            return new RowSnapshot(this, primitives, objects, nullPrimitives);
+        }
+
+        public int checkIndex(final int columnIndex) throws SQLException {
+            if (!this.metaData.isValidIndex(columnIndex)) {
+                throw new SQLException("No column " + columnIndex + "; there are " + this.labels.length);
+            }
+            return columnIndex;
+        }
+
+        public int findColumn(@Nonnull final String columnLabel) throws SQLException {
+            final int index = this.metaData.indexOf(columnLabel);
+            if (index == 0) {
+                throw new SQLException("No column " + columnLabel);
+            }
+            return index;
+        }
+
+        public boolean sameShapeAs(@Nonnull final Columns other) {
+            return this.metaData.sameShapeAs(other.metaData);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * The {@link PreparedStatement}s of a single {@link Connection}, shared
+ * by all of the resources of a {@link JdbcSession}. Templates with the same
+ * SQL and cursor options share a statement, whatever their parameters.
+ * <p/>
+ * Statements are borrowed for the duration of a single execution, and then
+ * returned. A borrowed statement is not in the cache, so if it is borrowed
+ * again before being returned -- e.g. by two open reads of the same query
+ * -- a second statement is prepared. Idle statements are kept in
+ * least-recently-used order; when there are too many, the least recently
+ * used is closed.
+ * <p/>
+ * Like the connection, this class must only be used in the worker thread
+ * of its {@link JdbcSession}.
+ *
+ * @author Rick Warren
+ */
+@NotThreadSafe
+/*package*/ final class StatementCache {
+
+    private @Nonnull final Connection connection;
+    private final int maxSize;
+    private @Nonnull final StatementCacheStatistics statistics;
+    /**
+     * Idle statements, in access order, from least to most recently used.
+     */
+    private final LinkedHashMap<Object, PreparedStatement> idleStatements;
+    private boolean closed = false;
+
+
+    /**
+     * @param maxSize   The maximum number of idle statements to keep. Zero
+     *                  disables caching: statements will be prepared for
+     *                  each execution, and closed afterward.
+     */
+    public StatementCache(
+            @Nonnull final Connection connection,
+            final int maxSize,
+            @Nonnull final StatementCacheStatistics statistics) {
+        Preconditions.checkArgument(maxSize >= 0, "negative cache size");
+        this.connection = Objects.requireNonNull(connection);
+        this.maxSize = maxSize;
+        this.statistics = Objects.requireNonNull(statistics);
+        this.idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public @Nonnull Connection getConnection() {
+        return this.connection;
+    }
+
+    /**
+     * Get a statement for the given template, with its parameters bound.
+     * Return it with {@link #release(StatementTemplate, PreparedStatement)}.
+     */
+    public @Nonnull PreparedStatement borrow(@Nonnull final StatementTemplate template) throws SQLException {
+        Preconditions.checkState(!this.closed, "statement cache closed");
+        final PreparedStatement cached = this.idleStatements.remove(template.getPreparationKey());
+        if (cached != null && !cached.isClosed()) {
+            this.statistics.recordHit();
+            try {
+                template.bindParameters(cached);
+            } catch (final SQLException ex) {
+                cached.close();
+                throw ex;
+            }
+            return cached;
+        }
+        this.statistics.recordMiss();
+        return template.prepareStatement(this.connection);
+    }
+
+    /**
+     * Return a statement obtained from
+     * {@link #borrow(StatementTemplate)} with the same template, or one
+     * with the same {@link StatementTemplate#getPreparationKey() key}.
+     */
+    public void release(
+            @Nonnull final StatementTemplate template,
+            @Nonnull final PreparedStatement statement) throws SQLException {
+        if (this.closed || this.maxSize == 0 || statement.isClosed()) {
+            statement.close();
+            return;
+        }
+        final Object key = template.getPreparationKey();
+        if (this.idleStatements.containsKey(key)) {
+            // It was borrowed twice at once; one idle copy is enough:
+            statement.close();
+            return;
+        }
+        this.idleStatements.put(key, statement);
+        if (this.idleStatements.size() > this.maxSize) {
+            final Iterator<PreparedStatement> leastRecentlyUsed = this.idleStatements.values().iterator();
+            final PreparedStatement evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            this.statistics.recordEviction();
+            evicted.close();
+        }
+    }
+
+    /**
+     * The number of idle statements in the cache.
+     */
+    public int size() {
+        return this.idleStatements.size();
+    }
+
+    /**
+     * Close all idle statements. Those borrowed will be closed when they
+     * are returned.
+     */
+    public void close() throws SQLException {
+        this.closed = true;
+        final List<PreparedStatement> toClose = new ArrayList<>(this.idleStatements.values());
+        this.idleStatements.clear();
+        SQLException firstError = null;
+        for (final PreparedStatement statement : toClose) {
+            try {
+                statement.close();
+            } catch (final SQLException ex) {
+                if (firstError == null) {
+                    firstError = ex;
+                } else {
+                    firstError.setNextException(ex);
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Counts how often the {@link java.sql.PreparedStatement}s needed by the
+ * {@link crud.core.Session}s of a {@link JdbcDataBus} were found already
+ * prepared, and how often they had to be prepared anew.
+ *
+ * @see JdbcDataBus#getStatementCacheStatistics()
+ * @see JdbcDataBus#setStatementCacheSize(int)
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class StatementCacheStatistics {
+
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+    private final AtomicLong evictions = new AtomicLong(0L);
+
+
+    /**
+     * The number of times that a previously prepared statement was reused.
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * The number of times that a statement had to be prepared.
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * The number of prepared statements that were closed to make room for
+     * others.
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * The fraction of requests for statements that were hits, or zero if
+     * there have been none.
+     */
+    public double getHitRatio() {
+        final long raceFreeHits = this.hits.get();
+        final long total = raceFreeHits + this.misses.get();
+        return (total == 0L) ? 0.0 : (double) raceFreeHits / total;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "(hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ')';
+    }
+
+    /*package*/ void recordHit() {
+        this.hits.incrementAndGet();
+    }
+
+    /*package*/ void recordMiss() {
+        this.misses.incrementAndGet();
+    }
+
+    /*package*/ void recordEviction() {
+        this.evictions.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,84 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Lets the thread that unsubscribes from a
+ * {@link crud.implementer.StreamingTask} cancel the statement that the
+ * task is executing in the worker thread, without risking the
+ * cancellation of a later execution that has borrowed the same statement
+ * from the {@link StatementCache}.
+ * <p/>
+ * {@link #cancel()} marks the cancellation before it looks for a
+ * statement, and {@link #endExecution()} hides the statement before it
+ * looks for a cancellation. So if a cancellation could have seen the
+ * statement, the worker sees the cancellation, and closes the statement
+ * rather than returning it to the cache.
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+/*package*/ final class StatementCanceller {
+
+    private final AtomicReference<PreparedStatement> executingStmt = new AtomicReference<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+
+    /**
+     * Expose the given statement to {@link #cancel()}. Call this in the
+     * worker thread, before executing it.
+     */
+    public void startExecution(@Nonnull final PreparedStatement statement) {
+        this.executingStmt.set(statement);
+    }
+
+    /**
+     * Stop exposing the current statement, if any, to {@link #cancel()}.
+     * Call this in the worker thread, before giving up the statement.
+     *
+     * @return  true if the statement may be returned to the
+     *          {@link StatementCache}, or false if a cancellation may
+     *          still touch it, so it must be closed instead.
+     */
+    public boolean endExecution() {
+        this.executingStmt.set(null);
+        return !this.cancelled.get();
+    }
+
+    /**
+     * Cancel the current statement, if any. Only the first call has any
+     * effect. This may be called from any thread.
+     */
+    public void cancel() throws SQLException {
+        if (!this.cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        @SuppressWarnings("resource")
+        final PreparedStatement raceFreeStmt = this.executingStmt.get();
+        if (raceFreeStmt != null) {
+            raceFreeStmt.cancel();
+        }
+    }
+
+}
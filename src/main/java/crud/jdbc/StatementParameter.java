@@ -30,8 +30,17 @@ import com.google.common.base.Preconditions;
 
 /**
  * An indexed parameter in a JDBC SQL statement string ("?").
+ * <p/>
+ * Parameters created from primitive {@code int}, {@code long},
+ * {@code double}, and {@code boolean} values hold them unboxed, and bind
+ * them with the corresponding typed setter, such as
+ * {@link PreparedStatement#setInt(int, int)}, as they do non-null
+ * {@link Type#VARCHAR} Strings. Other parameters are bound with
+ * {@link PreparedStatement#setObject(int, Object, int)}, leaving the
+ * driver to determine how to convert them.
  *
  * @see PreparedStatement#setObject(int, Object, int)
+ * @see ParameterBuffer
  *
  * @author Rick Warren
  */
@@ -39,6 +48,12 @@ import com.google.common.base.Preconditions;
 public final class StatementParameter {
 
     private @Nullable final Object value;
+    /**
+     * The value, if it is {@link #unboxed}: an int, long, or boolean
+     * widened to a long, or the bits of a double.
+     */
+    private final long unboxedBits;
+    private final boolean unboxed;
     private final Optional<Type> type;
     private final int index;
 
@@ -73,6 +88,13 @@ public final class StatementParameter {
         return new Builder(value).ofType(Type.BOOLEAN);
     }
 
+    /**
+     * Like {@link #ofBoolean(Boolean)}, but hold the value unboxed.
+     */
+    public static Builder ofBoolean(final boolean value) {
+        return ofUnboxed(value ? 1L : 0L, Type.BOOLEAN);
+    }
+
     /**
      * Convenience method that preassigns the {@link Type}.
      */
@@ -94,6 +116,13 @@ public final class StatementParameter {
         return new Builder(value).ofType(Type.INTEGER);
     }
 
+    /**
+     * Like {@link #ofInteger(Integer)}, but hold the value unboxed.
+     */
+    public static Builder ofInteger(final int value) {
+        return ofUnboxed(value, Type.INTEGER);
+    }
+
     /**
      * Convenience method that preassigns the {@link Type}.
      */
@@ -101,6 +130,13 @@ public final class StatementParameter {
         return new Builder(value).ofType(Type.LONG);
     }
 
+    /**
+     * Like {@link #ofLong(Long)}, but hold the value unboxed.
+     */
+    public static Builder ofLong(final long value) {
+        return ofUnboxed(value, Type.LONG);
+    }
+
     /**
      * Convenience method that preassigns the {@link Type}.
      */
@@ -115,6 +151,13 @@ public final class StatementParameter {
         return new Builder(value).ofType(Type.DOUBLE);
     }
 
+    /**
+     * Like {@link #ofDouble(Double)}, but hold the value unboxed.
+     */
+    public static Builder ofDouble(final double value) {
+        return ofUnboxed(Double.doubleToLongBits(value), Type.DOUBLE);
+    }
+
     /**
      * Convenience method that preassigns the {@link Type}.
      */
@@ -150,6 +193,13 @@ public final class StatementParameter {
         return new Builder(value).ofType(Type.TIMESTAMP);
     }
 
+    /**
+     * @see #bindUnboxed(PreparedStatement, int, Type, long)
+     */
+    /*package*/ static Builder ofUnboxed(final long bits, final Type type) {
+        return new Builder(bits, type);
+    }
+
     @Override
     public final String toString() {
         final StringBuilder buf = new StringBuilder(getClass().getSimpleName());
@@ -176,7 +226,11 @@ public final class StatementParameter {
         if (!this.type.equals(other.type)) {
             return false;
         }
-        if (!Objects.equals(this.value, other.value)) {
+        if (this.unboxed && other.unboxed) {
+            return this.unboxedBits == other.unboxedBits;
+        }
+        // Unboxed values equal their boxed equivalents:
+        if (!Objects.equals(getValue(), other.getValue())) {
             return false;
         }
         return true;
@@ -186,7 +240,7 @@ public final class StatementParameter {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + Objects.hashCode(this.value);
+        result = prime * result + Objects.hashCode(getValue());
         result = prime * result + this.type.hashCode();
         result = prime * result + this.index;
         return result;
@@ -196,15 +250,84 @@ public final class StatementParameter {
      * Set this parameter on the given {@link PreparedStatement}.
      */
     /*package*/ void substitute(final PreparedStatement statement) throws SQLException {
-        if (this.type.isPresent()) {
-            if (this.value != null) {
-                statement.setObject(this.index, this.value, this.type.get().targetSqlType);
-            } else {
-                statement.setNull(this.index, this.type.get().targetSqlType);
-            }
+        substitute(statement, 0);
+    }
+
+    /**
+     * Set this parameter on the given {@link PreparedStatement}, at its
+     * index plus the given offset: for example, in the second row of a
+     * multi-row INSERT.
+     */
+    /*package*/ void substitute(final PreparedStatement statement, final int indexOffset) throws SQLException {
+        final int actualIndex = this.index + indexOffset;
+        if (this.unboxed) {
+            bindUnboxed(statement, actualIndex, this.type.get(), this.unboxedBits);
         } else {
+            bind(statement, actualIndex, this.type.orNull(), this.value);
+        }
+    }
+
+    /**
+     * Set the given value on the given {@link PreparedStatement}. If the
+     * type is null, leave the driver to infer it.
+     */
+    /*package*/ static void bind(
+            final PreparedStatement statement,
+            final int index,
+            @Nullable final Type type,
+            @Nullable final Object value) throws SQLException {
+        if (type == null) {
             // DB may or may not support setting NULL that's not explicitly typed. Try.
-            statement.setObject(this.index, this.value);
+            statement.setObject(index, value);
+        } else if (value == null) {
+            statement.setNull(index, type.targetSqlType);
+        } else if (type == Type.VARCHAR && value instanceof String) {
+            statement.setString(index, (String) value);
+        } else {
+            statement.setObject(index, value, type.targetSqlType);
+        }
+    }
+
+    /**
+     * Set the given unboxed value, of one of the types that may be held
+     * unboxed, on the given {@link PreparedStatement}.
+     *
+     */
+    /*package*/ static void bindUnboxed(
+            final PreparedStatement statement,
+            final int index,
+            final Type type,
+            final long bits) throws SQLException {
+        switch (type) {
+            case INTEGER:
+                statement.setInt(index, (int) bits);
+                break;
+            case LONG:
+                statement.setLong(index, bits);
+                break;
+            case DOUBLE:
+                statement.setDouble(index, Double.longBitsToDouble(bits));
+                break;
+            case BOOLEAN:
+                statement.setBoolean(index, bits != 0L);
+                break;
+            default:
+                throw new AssertionError("Not an unboxed type: " + type);
+        }
+    }
+
+    /*package*/ static Object box(final Type type, final long bits) {
+        switch (type) {
+            case INTEGER:
+                return (int) bits;
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case BOOLEAN:
+                return bits != 0L;
+            default:
+                throw new AssertionError("Not an unboxed type: " + type);
         }
     }
 
@@ -218,16 +341,27 @@ public final class StatementParameter {
         return buf.toString();
     }
 
-    private StatementParameter(@Nullable final Object value, final Optional<Type> type, final int index) {
+    private StatementParameter(
+            @Nullable final Object value,
+            final long unboxedBits,
+            final boolean unboxed,
+            final Optional<Type> type,
+            final int index) {
         this.value = value;
+        this.unboxedBits = unboxedBits;
+        this.unboxed = unboxed;
         this.type = Objects.requireNonNull(type);
         this.index = index;
         Preconditions.checkArgument(this.index >= 1, "Indexes start at 1");
     }
 
+    private @Nullable Object getValue() {
+        return this.unboxed ? box(this.type.get(), this.unboxedBits) : this.value;
+    }
+
     private void toShortString(final StringBuilder buf) {
         buf.append('{');
-        buf.append(this.index).append(": ").append(this.value);
+        buf.append(this.index).append(": ").append(getValue());
         if (this.type.isPresent()) {
             buf.append(" as ").append(this.type.get().name());
         }
@@ -391,10 +525,25 @@ public final class StatementParameter {
 
     public static final class Builder {
         private @Nullable final Object value;
+        private final long unboxedBits;
+        /**
+         * The type of the unboxed value, if any. If {@link #ofType(Type)}
+         * replaces it, the value will be boxed.
+         */
+        private @Nullable final Type unboxedType;
         private Optional<Type> type = Optional.absent();
 
         private Builder(@Nullable final Object value) {
             this.value = value;
+            this.unboxedBits = 0L;
+            this.unboxedType = null;
+        }
+
+        private Builder(final long unboxedBits, final Type unboxedType) {
+            this.value = null;
+            this.unboxedBits = unboxedBits;
+            this.unboxedType = unboxedType;
+            this.type = Optional.of(unboxedType);
         }
 
         public Builder ofType(final Type theType) {
@@ -403,7 +552,14 @@ public final class StatementParameter {
         }
 
         public StatementParameter atIndex(final int position) {
-            return new StatementParameter(this.value, this.type, position);
+            if (this.unboxedType == null) {
+                return new StatementParameter(this.value, 0L, false, this.type, position);
+            } else if (this.type.get() == this.unboxedType) {
+                return new StatementParameter(null, this.unboxedBits, true, this.type, position);
+            } else {
+                final Object boxed = box(this.unboxedType, this.unboxedBits);
+                return new StatementParameter(boxed, 0L, false, this.type, position);
+            }
         }
     }
 
@@ -85,11 +85,22 @@ public final class StatementParameters {
     }
 
     /*package*/ void substituteAll(final PreparedStatement statement) throws SQLException {
+        substituteAll(statement, 0);
+    }
+
+    /**
+     * @see StatementParameter#substitute(PreparedStatement, int)
+     */
+    /*package*/ void substituteAll(final PreparedStatement statement, final int indexOffset) throws SQLException {
         for (final StatementParameter param : this.params) {
-            param.substitute(statement);
+            param.substitute(statement, indexOffset);
         }
     }
 
+    /*package*/ int size() {
+        return this.params.size();
+    }
+
     /*package*/ String substituteString(final String statement) {
         if (!this.params.isEmpty()) {
             final StringBuilder buf = new StringBuilder(statement);
@@ -14,56 +14,159 @@
  */
 package crud.jdbc;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
 
 import crud.implementer.AbstractResource;
+import crud.implementer.Deadline;
 import crud.implementer.SessionWorker;
+import crud.implementer.StreamingTask;
+import crud.implementer.Task;
+import crud.implementer.TaskKind;
+import rx.Observable;
+import rx.functions.Func0;
 
 
 /*package*/ class StatementProvider<RSRC> extends AbstractResource<RSRC> {
 
-    private @Nonnull final Connection connection;
+    private @Nonnull final StatementCache statements;
     private @Nonnull final StatementTemplate statementTemplate;
 
-    /**
-     * A query to be executed, cached for reuse. Should only be accessed in
-     * the {@link #worker}'s thread, so no need to make it volatile or worry
-     * about race conditions.
-     */
-    private @Nullable PreparedStatement statement = null;
-
 
     protected StatementProvider(
-            @Nonnull final Connection connection,
+            @Nonnull final StatementCache statements,
             @Nonnull final StatementTemplate statementTemplate,
             @Nonnull final SessionWorker worker) {
         super(worker);
-        this.connection = Objects.requireNonNull(connection);
+        this.statements = Objects.requireNonNull(statements);
         this.statementTemplate = Objects.requireNonNull(statementTemplate);
     }
 
-    protected final @Nonnull PreparedStatement getStatement() throws SQLException {
-        PreparedStatement raceFreeStmt = this.statement;
-        if (raceFreeStmt == null) {
-            raceFreeStmt = this.statementTemplate.prepareStatement(this.connection);
-            this.statement = raceFreeStmt;
-        }
-        assert this.statement != null;
-        return raceFreeStmt;
+    protected final @Nonnull StatementTemplate getStatementTemplate() {
+        return this.statementTemplate;
+    }
+
+    /**
+     * Borrow a statement, with the template's parameters bound, from the
+     * session's {@link StatementCache}. Call this in the worker thread, and
+     * {@link #releaseStatement(PreparedStatement) release} the statement,
+     * also in the worker thread, when done with it.
+     */
+    protected final @Nonnull PreparedStatement borrowStatement() throws SQLException {
+        return borrowStatement(this.statementTemplate);
+    }
+
+    /**
+     * Borrow a statement, as {@link #borrowStatement()} does, but for a
+     * variation on this resource's template: for example, one with
+     * {@link StatementTemplate#withParameters(StatementParameters)
+     * different parameters}.
+     */
+    protected final @Nonnull PreparedStatement borrowStatement(@Nonnull final StatementTemplate template)
+    throws SQLException {
+        return this.statements.borrow(template);
+    }
+
+    /**
+     * @see #borrowStatement()
+     */
+    protected final void releaseStatement(@Nonnull final PreparedStatement statement) throws SQLException {
+        releaseStatement(this.statementTemplate, statement);
     }
 
-    @Override
-    protected void doShutdown() throws SQLException {
-        final PreparedStatement raceFreeStmt = StatementProvider.this.statement;
-        if (raceFreeStmt != null) {
-            raceFreeStmt.close();
+    /**
+     * @see #borrowStatement(StatementTemplate)
+     */
+    protected final void releaseStatement(
+            @Nonnull final StatementTemplate template,
+            @Nonnull final PreparedStatement statement) throws SQLException {
+        this.statements.release(template, statement);
+    }
+
+    /**
+     * Release the given statement, as
+     * {@link #releaseStatement(StatementTemplate, PreparedStatement)} does,
+     * unless the given {@link StatementCanceller} may still cancel it, in
+     * which case close it, so that the cancellation can't reach a later
+     * borrower.
+     */
+    protected final void releaseStatement(
+            @Nonnull final StatementTemplate template,
+            @Nonnull final PreparedStatement statement,
+            @Nonnull final StatementCanceller canceller) throws SQLException {
+        if (canceller.endExecution()) {
+            releaseStatement(template, statement);
+        } else {
+            statement.close();
         }
     }
 
+    /**
+     * Schedule the given {@link Task} on this resource's worker, subject to
+     * the {@link StatementTemplate#withTimeout(long, TimeUnit) timeout} of
+     * its statement, if any.
+     *
+     * @see #applyQueryTimeout(Statement)
+     */
+    protected final <T> Observable<T> scheduleCold(@Nonnull final Task<T> task) {
+        final long timeoutNanos = this.statementTemplate.getTimeoutNanos();
+        return (timeoutNanos > 0L)
+                ? getWorker().scheduleCold(task, timeoutNanos, TimeUnit.NANOSECONDS)
+                : getWorker().scheduleCold(task);
+    }
+
+    /**
+     * @see #scheduleCold(Task)
+     */
+    protected final <T> Observable<T> scheduleHot(@Nonnull final Task<T> task) {
+        final long timeoutNanos = this.statementTemplate.getTimeoutNanos();
+        return (timeoutNanos > 0L)
+                ? getWorker().scheduleHot(task, timeoutNanos, TimeUnit.NANOSECONDS)
+                : getWorker().scheduleHot(task);
+    }
+
+    /**
+     * Schedule the {@link StreamingTask}s created by the given factory on
+     * this resource's worker. The template's timeout, if any, limits the
+     * time until each task is {@link StreamingTask#open() opened}.
+     *
+     * @see #scheduleCold(Task)
+     */
+    protected final <T> Observable<T> scheduleStreaming(
+            @Nonnull final Func0<? extends StreamingTask<T>> taskFactory) {
+        return scheduleStreaming(taskFactory, TaskKind.READ);
+    }
+
+    /**
+     * Like {@link #scheduleStreaming(Func0)}, but count the bursts as
+     * being of the given {@link TaskKind kind}.
+     */
+    protected final <T> Observable<T> scheduleStreaming(
+            @Nonnull final Func0<? extends StreamingTask<T>> taskFactory,
+            @Nonnull final TaskKind kind) {
+        final long timeoutNanos = this.statementTemplate.getTimeoutNanos();
+        return (timeoutNanos > 0L)
+                ? getWorker().scheduleStreaming(taskFactory, kind, timeoutNanos, TimeUnit.NANOSECONDS)
+                : getWorker().scheduleStreaming(taskFactory, kind);
+    }
+
+    /**
+     * Limit the execution of the given statement to the time remaining
+     * before the {@link Deadline#current() deadline} of the current
+     * {@link Task}, if it has one, or else remove any limit: the
+     * statement may have been used for another template before. Call this
+     * in the worker thread, immediately before executing the statement.
+     */
+    protected static void applyQueryTimeout(@Nonnull final Statement statement) throws SQLException {
+        final Optional<Deadline> deadline = Deadline.current();
+        statement.setQueryTimeout(deadline.isPresent() ? deadline.get().remainingSecondsRoundedUp() : 0);
+    }
+
 }
@@ -16,12 +16,16 @@ package crud.jdbc;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+import com.google.common.base.Preconditions;
+
 
 /**
  * An immutable representation of a {@link PreparedStatement} with its
@@ -32,25 +36,302 @@ import javax.annotation.concurrent.Immutable;
 @Immutable
 public final class StatementTemplate {
 
+    /**
+     * @see #withBatchSize(int)
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
     private final String sql;
     private final StatementParameters parameters;
+    /**
+     * Zero means no timeout, as with
+     * {@link java.sql.Statement#setQueryTimeout(int)}.
+     *
+     * @see #withTimeout(long, TimeUnit)
+     */
+    private final long timeoutNanos;
+    /**
+     * @see #withBatchSize(int)
+     */
+    private final int batchSize;
+    /**
+     * @see #withReusedRows()
+     */
+    private final boolean reuseRows;
+    /**
+     * @see #withWriteBatching(int, long, TimeUnit)
+     * @see #withMultiRowInserts()
+     */
+    private @Nonnull final WriteOptions write;
+    private @Nonnull final CursorOptions cursor;
 
 
     public StatementTemplate(@Nonnull final String sql, @Nonnull final StatementParameters params) {
-        this.sql = Objects.requireNonNull(sql);
-        this.parameters = Objects.requireNonNull(params);
+        this(sql, params, 0L, DEFAULT_BATCH_SIZE, false, WriteOptions.DEFAULT, CursorOptions.DEFAULT);
     }
 
     public StatementTemplate(@Nonnull final String sql) {
         this(sql, StatementParameters.none());
     }
 
+    /**
+     * Return a copy of this template, the executions of which must complete
+     * within the given time, or fail with a
+     * {@link java.util.concurrent.TimeoutException}. The time includes both
+     * that spent waiting for earlier work in the same
+     * {@link crud.core.Session} and that spent in the database: whatever
+     * remains when the statement begins to execute is passed to
+     * {@link java.sql.Statement#setQueryTimeout(int)}. A timeout of zero
+     * means no limit, which is the default.
+     *
+     * @throws IllegalArgumentException If the timeout is negative.
+     *
+     * @see crud.implementer.Deadline
+     */
+    public @Nonnull StatementTemplate withTimeout(final long timeout, @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(timeout >= 0, "negative timeout");
+        return new StatementTemplate(
+                this.sql,
+                this.parameters,
+                unit.toNanos(timeout),
+                this.batchSize,
+                this.reuseRows,
+                this.write,
+                this.cursor);
+    }
+
+    /**
+     * Return a copy of this template with the same SQL and options, but
+     * with the given parameters in place of its own. The copy shares its
+     * {@link java.sql.PreparedStatement} with this template in the
+     * {@link JdbcDataBus#setStatementCacheSize(int) statement cache}.
+     *
+     * @see ParameterizedReadableResource
+     */
+    public @Nonnull StatementTemplate withParameters(@Nonnull final StatementParameters params) {
+        return new StatementTemplate(
+                this.sql,
+                params,
+                this.timeoutNanos,
+                this.batchSize,
+                this.reuseRows,
+                this.write,
+                this.cursor);
+    }
+
+    /**
+     * Return a copy of this template, which, when read as a
+     * {@link ColumnBatch}, emits up to the given number of rows in each
+     * batch. Only the last batch of a result may be smaller. The default is
+     * {@link #DEFAULT_BATCH_SIZE}. Other kinds of reads ignore this setting.
+     *
+     * @throws IllegalArgumentException If the batch size is not positive.
+     */
+    public @Nonnull StatementTemplate withBatchSize(final int rowsPerBatch) {
+        Preconditions.checkArgument(rowsPerBatch > 0, "batch size must be positive");
+        return new StatementTemplate(
+                this.sql,
+                this.parameters,
+                this.timeoutNanos,
+                rowsPerBatch,
+                this.reuseRows,
+                this.write,
+                this.cursor);
+    }
+
+    /**
+     * Return a copy of this template, which, when read as
+     * {@link ResultSetRow}s, emits the same ResultSetRow object for every
+     * row of each execution, rather than allocating one per row. That
+     * object shows the current row of the cursor, so it is valid only
+     * within the {@link rx.Observer#onNext(Object) onNext} call that
+     * delivers it: it must not be kept, compared to other rows, or
+     * collected, nor may it be handed to another thread, including by
+     * operators such as {@link rx.Observable#observeOn(rx.Scheduler)} or
+     * {@link rx.Observable#toList()}. Plain streaming consumers, which
+     * read each row's values as it arrives, can then read any number of
+     * rows without allocating. Other kinds of reads ignore this setting.
+     */
+    public @Nonnull StatementTemplate withReusedRows() {
+        return new StatementTemplate(
+                this.sql,
+                this.parameters,
+                this.timeoutNanos,
+                this.batchSize,
+                true,
+                this.write,
+                this.cursor);
+    }
+
+    /**
+     * Return a copy of this template, writes with which are
+     * {@link java.sql.PreparedStatement#addBatch() batched}, and
+     * {@link java.sql.PreparedStatement#executeBatch() executed} together,
+     * in a single round trip to the database: when the given number of
+     * rows have accumulated, or when the given time has passed since the
+     * first of them was written, whichever comes first. Each write's
+     * {@link rx.Observable} emits its own update count -- which may be
+     * {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver doesn't
+     * report it -- when its batch has been executed.
+     * <p/>
+     * Until then, other work in the same {@link crud.core.Session},
+     * including reads, may not observe the write. Batches are executed
+     * before a {@link crud.core.TransactedSession} commits, and discarded,
+     * with errors, when it rolls back. Reads ignore this setting.
+     *
+     * @throws IllegalArgumentException If the number of rows or the delay
+     *              is not positive.
+     */
+    public @Nonnull StatementTemplate withWriteBatching(
+            final int maxRows,
+            final long maxDelay,
+            @Nonnull final TimeUnit unit) {
+        Preconditions.checkArgument(maxRows > 0, "write batch size must be positive");
+        Preconditions.checkArgument(maxDelay > 0L, "write batch delay must be positive");
+        return withWrite(this.write.withBatching(maxRows, unit.toNanos(maxDelay)));
+    }
+
+    /**
+     * Return a copy of this template, {@link #withWriteBatching(int, long,
+     * TimeUnit) batched} writes with which are combined into multi-row
+     * INSERT statements -- {@code INSERT ... VALUES (?, ?), (?, ?), ...} --
+     * rather than being sent as a JDBC batch, which many drivers send one
+     * row at a time. Each statement inserts a power-of-two number of rows,
+     * so that only a few distinct statements need be prepared and
+     * {@link JdbcDataBus#setStatementCacheSize(int) cached}. Since a
+     * statement reports only the total number of rows it inserted, each
+     * write's update count is 1 if that total is as expected, or else
+     * {@link java.sql.Statement#SUCCESS_NO_INFO}. Without write batching,
+     * this setting has no effect.
+     *
+     * @throws IllegalArgumentException If this template's SQL is not a
+     *              single-row {@code INSERT ... VALUES (...)} statement, all
+     *              of the values of which are {@code ?} placeholders.
+     */
+    public @Nonnull StatementTemplate withMultiRowInserts() {
+        Preconditions.checkArgument(
+                MultiRowInsert.parse(this.sql).isPresent(),
+                "not a single-row INSERT of placeholders: %s", this.sql);
+        return withWrite(this.write.withMultiRowInserts());
+    }
+
+    /**
+     * Return a copy of this template that asks the driver to fetch the
+     * given number of rows from the database at a time, via
+     * {@link java.sql.Statement#setFetchSize(int)}. Some drivers read the
+     * entire result into memory unless this is set, so setting it allows
+     * large results to be read in constant memory. Some drivers also
+     * require other conditions: PostgreSQL, for example, only honors the
+     * fetch size outside of auto-commit, i.e. in a
+     * {@link crud.core.TransactedSession}. Zero, the default, leaves the
+     * choice to the driver.
+     * <p/>
+     * As a special case, {@link Integer#MIN_VALUE} is allowed, since that
+     * is how MySQL's driver is told to stream rows one at a time.
+     *
+     * @throws IllegalArgumentException If the fetch size is negative, other
+     *              than {@link Integer#MIN_VALUE}.
+     */
+    public @Nonnull StatementTemplate withFetchSize(final int rows) {
+        Preconditions.checkArgument(rows >= 0 || rows == Integer.MIN_VALUE, "negative fetch size");
+        return withCursor(this.cursor.withFetchSize(rows));
+    }
+
+    /**
+     * Return a copy of this template that hints to the driver the direction
+     * in which rows will be read, via
+     * {@link java.sql.Statement#setFetchDirection(int)}. The default is
+     * {@link ResultSet#FETCH_FORWARD}.
+     *
+     * @throws IllegalArgumentException If the direction is not one of
+     *              {@link ResultSet#FETCH_FORWARD},
+     *              {@link ResultSet#FETCH_REVERSE}, or
+     *              {@link ResultSet#FETCH_UNKNOWN}.
+     */
+    public @Nonnull StatementTemplate withFetchDirection(final int direction) {
+        Preconditions.checkArgument(
+                direction == ResultSet.FETCH_FORWARD
+                    || direction == ResultSet.FETCH_REVERSE
+                    || direction == ResultSet.FETCH_UNKNOWN,
+                "unknown fetch direction %s", direction);
+        return withCursor(this.cursor.withFetchDirection(direction));
+    }
+
+    /**
+     * Return a copy of this template, the results of which have the given
+     * type and concurrency, as passed to
+     * {@link Connection#prepareStatement(String, int, int)}. The default
+     * is {@link ResultSet#TYPE_FORWARD_ONLY} and
+     * {@link ResultSet#CONCUR_READ_ONLY}, which is also the cheapest for
+     * most drivers, and the only combination that some can stream.
+     *
+     * @throws IllegalArgumentException If the type or concurrency is not
+     *              one of those defined by {@link ResultSet}.
+     */
+    public @Nonnull StatementTemplate withResultSetType(final int type, final int concurrency) {
+        Preconditions.checkArgument(
+                type == ResultSet.TYPE_FORWARD_ONLY
+                    || type == ResultSet.TYPE_SCROLL_INSENSITIVE
+                    || type == ResultSet.TYPE_SCROLL_SENSITIVE,
+                "unknown result-set type %s", type);
+        Preconditions.checkArgument(
+                concurrency == ResultSet.CONCUR_READ_ONLY || concurrency == ResultSet.CONCUR_UPDATABLE,
+                "unknown result-set concurrency %s", concurrency);
+        return withCursor(this.cursor.withType(type, concurrency));
+    }
+
+    /**
+     * Return a copy of this template, the results of which have the given
+     * holdability, as passed to
+     * {@link Connection#prepareStatement(String, int, int, int)}. By
+     * default, the {@link Connection#getHoldability() connection's}
+     * holdability applies.
+     *
+     * @throws IllegalArgumentException If the holdability is not
+     *              {@link ResultSet#HOLD_CURSORS_OVER_COMMIT} or
+     *              {@link ResultSet#CLOSE_CURSORS_AT_COMMIT}.
+     */
+    public @Nonnull StatementTemplate withHoldability(final int holdability) {
+        Preconditions.checkArgument(
+                holdability == ResultSet.HOLD_CURSORS_OVER_COMMIT
+                    || holdability == ResultSet.CLOSE_CURSORS_AT_COMMIT,
+                "unknown holdability %s", holdability);
+        return withCursor(this.cursor.withHoldability(holdability));
+    }
+
+    /**
+     * Return a copy of this template, the results of which are limited to
+     * the given number of rows, via {@link java.sql.Statement#setMaxRows(int)}.
+     * Further rows are silently dropped. Zero, the default, means no limit.
+     *
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public @Nonnull StatementTemplate withMaxRows(final int rows) {
+        Preconditions.checkArgument(rows >= 0, "negative max rows");
+        return withCursor(this.cursor.withMaxRows(rows));
+    }
+
     @Override
     public String toString() {
         final StringBuilder buf = new StringBuilder(getClass().getSimpleName());
         buf.append('(');
         final String withSubstitutions = this.parameters.substituteString(this.sql);
         buf.append(withSubstitutions);
+        if (this.timeoutNanos > 0L) {
+            buf.append(", timeout=").append(TimeUnit.NANOSECONDS.toMillis(this.timeoutNanos)).append(" ms");
+        }
+        if (this.batchSize != DEFAULT_BATCH_SIZE) {
+            buf.append(", batchSize=").append(this.batchSize);
+        }
+        if (this.reuseRows) {
+            buf.append(", reusedRows");
+        }
+        if (!this.write.equals(WriteOptions.DEFAULT)) {
+            buf.append(", ").append(this.write);
+        }
+        if (!this.cursor.equals(CursorOptions.DEFAULT)) {
+            buf.append(", ").append(this.cursor);
+        }
         buf.append(')');
         return buf.toString();
     }
@@ -73,6 +354,21 @@ public final class StatementTemplate {
         if (!this.parameters.equals(other.parameters)) {
             return false;
         }
+        if (this.timeoutNanos != other.timeoutNanos) {
+            return false;
+        }
+        if (this.batchSize != other.batchSize) {
+            return false;
+        }
+        if (this.reuseRows != other.reuseRows) {
+            return false;
+        }
+        if (!this.write.equals(other.write)) {
+            return false;
+        }
+        if (!this.cursor.equals(other.cursor)) {
+            return false;
+        }
         return true;
     }
 
@@ -82,14 +378,417 @@ public final class StatementTemplate {
         int result = 1;
         result = prime * result + this.sql.hashCode();
         result = prime * result + this.parameters.hashCode();
+        result = prime * result + (int) (this.timeoutNanos ^ (this.timeoutNanos >>> 32));
+        result = prime * result + this.batchSize;
+        result = prime * result + (this.reuseRows ? 1231 : 1237);
+        result = prime * result + this.write.hashCode();
+        result = prime * result + this.cursor.hashCode();
         return result;
     }
 
+    /*package*/ @Nonnull String getSql() {
+        return this.sql;
+    }
+
+    /**
+     * @return  The {@link #withTimeout(long, TimeUnit) timeout} in
+     *          nanoseconds, or zero if there is none.
+     */
+    /*package*/ long getTimeoutNanos() {
+        return this.timeoutNanos;
+    }
+
+    /**
+     * @return  The {@link #withBatchSize(int) batch size}.
+     */
+    /*package*/ int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * @return  Whether {@link #withReusedRows() rows are reused}.
+     */
+    /*package*/ boolean isRowReused() {
+        return this.reuseRows;
+    }
+
+    /**
+     * @return  The maximum number of rows per
+     *          {@link #withWriteBatching(int, long, TimeUnit) write batch},
+     *          or zero if writes are not batched.
+     */
+    /*package*/ int getWriteBatchRows() {
+        return this.write.batchRows;
+    }
+
+    /*package*/ long getWriteBatchDelayNanos() {
+        return this.write.batchDelayNanos;
+    }
+
+    /**
+     * @return  Whether batched writes are
+     *          {@link #withMultiRowInserts() combined into multi-row INSERTs}.
+     */
+    /*package*/ boolean isMultiRowInsert() {
+        return this.write.multiRowInserts;
+    }
+
+    /**
+     * @return  A template with the given SQL, no parameters, and the same
+     *          timeout and cursor options as this one.
+     */
+    /*package*/ @Nonnull StatementTemplate withSql(@Nonnull final String newSql) {
+        return new StatementTemplate(
+                newSql,
+                StatementParameters.none(),
+                this.timeoutNanos,
+                this.batchSize,
+                this.reuseRows,
+                WriteOptions.DEFAULT,
+                this.cursor);
+    }
+
+    /**
+     * @return  A value that is equal for all templates that can share a
+     *          {@link PreparedStatement}: that is, those with the same SQL
+     *          and cursor options, whatever their parameters.
+     *
+     * @see StatementCache
+     */
+    /*package*/ @Nonnull Object getPreparationKey() {
+        return new PreparationKey(this.sql, this.cursor);
+    }
+
     /*package*/ @Nonnull PreparedStatement prepareStatement(final Connection connection)
     throws SQLException {
-        final PreparedStatement statement = connection.prepareStatement(this.sql);
-        this.parameters.substituteAll(statement);
+        final PreparedStatement statement = prepareUnboundStatement(connection);
+        try {
+            this.parameters.substituteAll(statement);
+        } catch (final SQLException ex) {
+            statement.close();
+            throw ex;
+        }
+        return statement;
+    }
+
+    /**
+     * Prepare and configure a statement, but don't substitute any
+     * parameters.
+     *
+     * @see #bindParameters(PreparedStatement)
+     */
+    /*package*/ @Nonnull PreparedStatement prepareUnboundStatement(final Connection connection)
+    throws SQLException {
+        final PreparedStatement statement = this.cursor.prepareStatement(connection, this.sql);
+        try {
+            this.cursor.configure(statement);
+        } catch (final SQLException ex) {
+            statement.close();
+            throw ex;
+        }
         return statement;
     }
 
+    /**
+     * Replace whatever parameters the given statement, prepared from a
+     * template with the same {@link #getPreparationKey() key}, had with
+     * those of this template.
+     */
+    /*package*/ void bindParameters(@Nonnull final PreparedStatement statement) throws SQLException {
+        statement.clearParameters();
+        this.parameters.substituteAll(statement);
+    }
+
+    private StatementTemplate(
+            @Nonnull final String sql,
+            @Nonnull final StatementParameters params,
+            final long timeoutNanos,
+            final int batchSize,
+            final boolean reuseRows,
+            @Nonnull final WriteOptions write,
+            @Nonnull final CursorOptions cursor) {
+        this.sql = Objects.requireNonNull(sql);
+        this.parameters = Objects.requireNonNull(params);
+        this.timeoutNanos = timeoutNanos;
+        this.batchSize = batchSize;
+        this.reuseRows = reuseRows;
+        this.write = Objects.requireNonNull(write);
+        this.cursor = Objects.requireNonNull(cursor);
+    }
+
+    private @Nonnull StatementTemplate withWrite(@Nonnull final WriteOptions newWrite) {
+        return new StatementTemplate(
+                this.sql,
+                this.parameters,
+                this.timeoutNanos,
+                this.batchSize,
+                this.reuseRows,
+                newWrite,
+                this.cursor);
+    }
+
+    private @Nonnull StatementTemplate withCursor(@Nonnull final CursorOptions newCursor) {
+        return new StatementTemplate(
+                this.sql,
+                this.parameters,
+                this.timeoutNanos,
+                this.batchSize,
+                this.reuseRows,
+                this.write,
+                newCursor);
+    }
+
+
+    /**
+     * @see StatementTemplate#getPreparationKey()
+     */
+    @Immutable
+    private static final class PreparationKey {
+        private final String sql;
+        private final CursorOptions cursor;
+
+        public PreparationKey(final String sql, final CursorOptions cursor) {
+            this.sql = sql;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public String toString() {
+            return this.sql;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final PreparationKey other = (PreparationKey) obj;
+            return this.sql.equals(other.sql) && this.cursor.equals(other.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.sql.hashCode() + this.cursor.hashCode();
+        }
+    }
+
+
+    /**
+     * How the results of a query are to be fetched. Each property has a
+     * default that leaves the driver's behavior unchanged.
+     */
+    @Immutable
+    private static final class CursorOptions {
+        /**
+         * Leave the holdability to the connection.
+         */
+        private static final int DEFAULT_HOLDABILITY = -1;
+
+        public static final CursorOptions DEFAULT = new CursorOptions(
+                0,
+                ResultSet.FETCH_FORWARD,
+                ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY,
+                DEFAULT_HOLDABILITY,
+                0);
+
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int type;
+        private final int concurrency;
+        private final int holdability;
+        private final int maxRows;
+
+        public CursorOptions withFetchSize(final int newFetchSize) {
+            return new CursorOptions(
+                    newFetchSize, this.fetchDirection, this.type, this.concurrency, this.holdability, this.maxRows);
+        }
+
+        public CursorOptions withFetchDirection(final int newFetchDirection) {
+            return new CursorOptions(
+                    this.fetchSize, newFetchDirection, this.type, this.concurrency, this.holdability, this.maxRows);
+        }
+
+        public CursorOptions withType(final int newType, final int newConcurrency) {
+            return new CursorOptions(
+                    this.fetchSize, this.fetchDirection, newType, newConcurrency, this.holdability, this.maxRows);
+        }
+
+        public CursorOptions withHoldability(final int newHoldability) {
+            return new CursorOptions(
+                    this.fetchSize, this.fetchDirection, this.type, this.concurrency, newHoldability, this.maxRows);
+        }
+
+        public CursorOptions withMaxRows(final int newMaxRows) {
+            return new CursorOptions(
+                    this.fetchSize, this.fetchDirection, this.type, this.concurrency, this.holdability, newMaxRows);
+        }
+
+        /**
+         * Call the simplest overload of
+         * {@link Connection#prepareStatement(String)} that will do, in case
+         * the driver doesn't implement the others.
+         */
+        public @Nonnull PreparedStatement prepareStatement(
+                @Nonnull final Connection connection,
+                @Nonnull final String sql) throws SQLException {
+            if (this.holdability != DEFAULT_HOLDABILITY) {
+                return connection.prepareStatement(sql, this.type, this.concurrency, this.holdability);
+            } else if (this.type != DEFAULT.type || this.concurrency != DEFAULT.concurrency) {
+                return connection.prepareStatement(sql, this.type, this.concurrency);
+            } else {
+                return connection.prepareStatement(sql);
+            }
+        }
+
+        /**
+         * Apply the non-default properties, and only those.
+         */
+        public void configure(@Nonnull final PreparedStatement statement) throws SQLException {
+            if (this.fetchSize != DEFAULT.fetchSize) {
+                statement.setFetchSize(this.fetchSize);
+            }
+            if (this.fetchDirection != DEFAULT.fetchDirection) {
+                statement.setFetchDirection(this.fetchDirection);
+            }
+            if (this.maxRows != DEFAULT.maxRows) {
+                statement.setMaxRows(this.maxRows);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "fetchSize=" + this.fetchSize
+                    + ", fetchDirection=" + this.fetchDirection
+                    + ", type=" + this.type
+                    + ", concurrency=" + this.concurrency
+                    + ", holdability=" + this.holdability
+                    + ", maxRows=" + this.maxRows;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final CursorOptions other = (CursorOptions) obj;
+            return this.fetchSize == other.fetchSize
+                    && this.fetchDirection == other.fetchDirection
+                    && this.type == other.type
+                    && this.concurrency == other.concurrency
+                    && this.holdability == other.holdability
+                    && this.maxRows == other.maxRows;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + this.fetchSize;
+            result = prime * result + this.fetchDirection;
+            result = prime * result + this.type;
+            result = prime * result + this.concurrency;
+            result = prime * result + this.holdability;
+            result = prime * result + this.maxRows;
+            return result;
+        }
+
+        private CursorOptions(
+                final int fetchSize,
+                final int fetchDirection,
+                final int type,
+                final int concurrency,
+                final int holdability,
+                final int maxRows) {
+            this.fetchSize = fetchSize;
+            this.fetchDirection = fetchDirection;
+            this.type = type;
+            this.concurrency = concurrency;
+            this.holdability = holdability;
+            this.maxRows = maxRows;
+        }
+    }
+
+
+    /**
+     * How writes with a template are executed.
+     */
+    @Immutable
+    private static final class WriteOptions {
+        public static final WriteOptions DEFAULT = new WriteOptions(0, 0L, false);
+
+        /**
+         * Zero means that writes are not batched.
+         */
+        public final int batchRows;
+        public final long batchDelayNanos;
+        public final boolean multiRowInserts;
+
+        public WriteOptions withBatching(final int newBatchRows, final long newBatchDelayNanos) {
+            return new WriteOptions(newBatchRows, newBatchDelayNanos, this.multiRowInserts);
+        }
+
+        public WriteOptions withMultiRowInserts() {
+            return new WriteOptions(this.batchRows, this.batchDelayNanos, true);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder buf = new StringBuilder();
+            if (this.batchRows > 0) {
+                buf.append("writeBatch=").append(this.batchRows)
+                    .append(" rows/").append(TimeUnit.NANOSECONDS.toMillis(this.batchDelayNanos)).append(" ms");
+            }
+            if (this.multiRowInserts) {
+                buf.append((buf.length() > 0) ? ", " : "").append("multiRowInserts");
+            }
+            return buf.toString();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final WriteOptions other = (WriteOptions) obj;
+            return this.batchRows == other.batchRows
+                    && this.batchDelayNanos == other.batchDelayNanos
+                    && this.multiRowInserts == other.multiRowInserts;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + this.batchRows;
+            result = prime * result + (int) (this.batchDelayNanos ^ (this.batchDelayNanos >>> 32));
+            result = prime * result + (this.multiRowInserts ? 1231 : 1237);
+            return result;
+        }
+
+        private WriteOptions(final int batchRows, final long batchDelayNanos, final boolean multiRowInserts) {
+            this.batchRows = batchRows;
+            this.batchDelayNanos = batchDelayNanos;
+            this.multiRowInserts = multiRowInserts;
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Recognizes the tables that SQL statements modify, in just enough detail
+ * to invalidate cached query results. Names are compared without regard to
+ * case, quotation, or schema, so that results may be invalidated more
+ * often than necessary, but never less.
+ *
+ * @see CachingReadableTable
+ *
+ * @author Rick Warren
+ */
+/*package*/ final class TableNames {
+
+    private static final Pattern writtenTablePattern = Pattern.compile(
+            "^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE|DELETE\\s+FROM|TRUNCATE\\s+TABLE)"
+                + "\\s+([^\\s(]+)",
+            Pattern.CASE_INSENSITIVE);
+
+
+    /**
+     * @return  The normalized name of the table that the given DML
+     *          statement modifies, or absent if it isn't recognized.
+     */
+    public static @Nonnull Optional<String> writtenTable(@Nonnull final String sql) {
+        final Matcher matcher = writtenTablePattern.matcher(sql);
+        return matcher.find()
+                ? Optional.of(normalize(matcher.group(1)))
+                : Optional.<String>absent();
+    }
+
+    /**
+     * Remove any schema or catalog qualification and quotation marks from
+     * the given table name, and convert it to upper case.
+     */
+    public static @Nonnull String normalize(@Nonnull final String tableName) {
+        final String unqualified = tableName.substring(tableName.lastIndexOf('.') + 1);
+        final StringBuilder buf = new StringBuilder(unqualified.length());
+        for (int i = 0; i < unqualified.length(); ++i) {
+            final char c = unqualified.charAt(i);
+            if (c != '"' && c != '`' && c != '[' && c != ']') {
+                buf.append(c);
+            }
+        }
+        return buf.toString().toUpperCase(Locale.ROOT);
+    }
+
+    private TableNames() {
+        // prevent instantiation
+    }
+
+}
@@ -0,0 +1,40 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Told when an {@link UpdateResource} has modified a table, and those
+ * modifications are visible to other {@link crud.core.Session}s: that is,
+ * immediately in auto-commit mode, or when the transaction commits.
+ *
+ * @see CachingReadableTable
+ *
+ * @author Rick Warren
+ */
+/*package*/ interface TableWriteListener {
+
+    /**
+     * @param table The {@link TableNames#normalize(String) normalized}
+     *              name of the modified table, or absent if it isn't
+     *              known, in which case any table may have been modified.
+     */
+    void tableWritten(@Nonnull Optional<String> table);
+
+}
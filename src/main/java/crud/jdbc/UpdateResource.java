@@ -14,39 +14,42 @@
  */
 package crud.jdbc;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import javax.annotation.Nonnull;
 
-import crud.core.WritableResource;
 import crud.implementer.SessionWorker;
 import crud.implementer.Task;
 import rx.Observable;
 import rx.Subscriber;
 
 
-/*package*/ final class UpdateResource
-extends StatementProvider<StatementParameters>
-implements WritableResource<StatementParameters, Integer> {
+/*package*/ final class UpdateResource extends AbstractUpdateResource {
 
     public UpdateResource(
-            @Nonnull final Connection connection,
+            @Nonnull final StatementCache statements,
             @Nonnull final StatementTemplate statementTemplate,
-            @Nonnull final SessionWorker worker) {
-        super(connection, statementTemplate, worker);
+            @Nonnull final SessionWorker worker,
+            @Nonnull final TableWriteListener tableWriteListener) {
+        super(statements, statementTemplate, worker, tableWriteListener);
     }
 
     @Override
     public Observable<Integer> write(final StatementParameters params) {
-        return getWorker().scheduleHot(new Task<Integer>() {
+        return scheduleHot(new Task<Integer>() {
             @Override
             public void call(final Subscriber<? super Integer> sub) throws SQLException {
-                @SuppressWarnings("resource")
-                final PreparedStatement updateStmt = getStatement();
-                params.substituteAll(updateStmt);
-                final int nRowsUpdated = updateStmt.executeUpdate();
+                final PreparedStatement updateStmt = borrowStatement();
+                final int nRowsUpdated;
+                try {
+                    params.substituteAll(updateStmt);
+                    applyQueryTimeout(updateStmt);
+                    nRowsUpdated = updateStmt.executeUpdate();
+                } finally {
+                    releaseStatement(updateStmt);
+                }
+                tableWritten();
                 sub.onNext(nRowsUpdated);
             }
         });
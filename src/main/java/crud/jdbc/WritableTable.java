@@ -14,10 +14,14 @@
  */
 package crud.jdbc;
 
+import java.util.List;
+
 import crud.core.Session;
-import crud.core.WritableResource;
 import crud.core.WritableResourceSet;
 import crud.implementer.AbstractWritableResourceSet;
+import crud.implementer.UnorderedSession;
+import rx.Observable;
+import rx.functions.Func1;
 
 
 /*package*/ final class WritableTable
@@ -27,10 +31,57 @@ extends AbstractWritableResourceSet<StatementTemplate, StatementParameters, Inte
         super(id);
     }
 
+    /**
+     * {@link UnorderedSession#get(WritableResourceSet, Object)} would hide
+     * the {@link BulkWritableResource} interface of the lanes' resources,
+     * so spread writes across the lanes here instead.
+     */
     @Override
-    public WritableResource<StatementParameters, Integer> get(final StatementTemplate query, final Session session) {
+    public BulkWritableResource get(final StatementTemplate query, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return new RoundRobinResource(((UnorderedSession) session).getLaneResources(
+                    new Func1<Session, BulkWritableResource>() {
+                        @Override
+                        public BulkWritableResource call(final Session lane) {
+                            return get(query, lane);
+                        }
+                    }));
+        }
         final JdbcSession jdbcSession = (JdbcSession) session;
         return jdbcSession.writableResource(query);
     }
 
+
+    /**
+     * Each bulk write goes to a single lane, so that its batches are
+     * executed in order.
+     */
+    private static final class RoundRobinResource
+    extends UnorderedSession.PerLaneResources<BulkWritableResource>
+    implements BulkWritableResource {
+        public RoundRobinResource(final List<BulkWritableResource> laneResources) {
+            super(laneResources);
+        }
+
+        @Override
+        public Observable<Integer> write(final StatementParameters params) {
+            return nextLane().write(params);
+        }
+
+        @Override
+        public Observable<Long> writeAll(final Observable<StatementParameters> params) {
+            return nextLane().writeAll(params);
+        }
+
+        @Override
+        public Observable<Long> writeAll(final Iterable<StatementParameters> params) {
+            return nextLane().writeAll(params);
+        }
+
+        @Override
+        public Observable<Long> writeAll(final ParameterBuffer.Source params) {
+            return nextLane().writeAll(params);
+        }
+    }
+
 }
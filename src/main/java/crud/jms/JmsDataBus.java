@@ -14,8 +14,10 @@
  */
 package crud.jms;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -40,7 +42,10 @@ import crud.core.Session.Ordering;
 import crud.core.TransactedSession;
 import crud.core.WritableResourceSet;
 import crud.implementer.DataBusWorker;
+import crud.implementer.Task;
+import crud.implementer.UnorderedSession;
 import rx.Observable;
+import rx.Subscriber;
 import rx.functions.Func1;
 
 
@@ -62,16 +67,37 @@ public class JmsDataBus implements DataBus {
      * {@link DataBus} is shut down. Normally that's automatic with JMS, but
      * this wrapper layer has some additional state that it manages.
      */
-    private @Nonnull final DataBusWorker worker = DataBusWorker.create();
+    private @Nonnull final DataBusWorker worker;
     private @Nonnull final Connection connection;
     private @Nonnull final Func1<String, Destination> destinationLookup;
 
+    private final Task<Void> shutdownTask = new Task<Void>() {
+        @Override
+        public void call(final Subscriber<? super Void> sub) throws JMSException {
+            JmsDataBus.this.connection.close();
+        }
+    };
+
 
     public JmsDataBus(
             @Nonnull final Connection connection,
             @Nonnull final Func1<String, Destination> destinationLookup) {
+        this(connection, destinationLookup, DataBusWorker.create());
+    }
+
+    /**
+     * @param worker    Determines how the {@link Session}s of this
+     *                  {@link DataBus} are run: for example, on a shared
+     *                  pool of threads, or on virtual threads; see
+     *                  {@link DataBusWorker#create(crud.implementer.SessionExecutorFactory)}.
+     */
+    public JmsDataBus(
+            @Nonnull final Connection connection,
+            @Nonnull final Func1<String, Destination> destinationLookup,
+            @Nonnull final DataBusWorker worker) {
         this.connection = Objects.requireNonNull(connection);
         this.destinationLookup = Objects.requireNonNull(destinationLookup);
+        this.worker = Objects.requireNonNull(worker);
     }
 
     @Override
@@ -129,17 +155,32 @@ public class JmsDataBus implements DataBus {
         return supportedOrderings;
     }
 
-    @SuppressWarnings("resource")
+    /**
+     * If ordering is not required, and the {@link DataBusWorker} calls for
+     * {@link DataBusWorker#getUnorderedSessionParallelism() parallelism},
+     * the result will be an {@link UnorderedSession} backed by that many
+     * JMS {@link javax.jms.Session}s.
+     */
     @Override
     public Session startSession(final boolean requireOrdering) {
+        final int parallelism = this.worker.getUnorderedSessionParallelism();
+        if (requireOrdering || parallelism == 1) {
+            return startNonTransactedSession(requireOrdering);
+        }
+
+        final List<Session> lanes = new ArrayList<>(parallelism);
         try {
-            final javax.jms.Session delegateSession = this.connection.createSession(
-                    false,
-                    requireOrdering ? ORDERED_ACKNOWLEDGE_MODE : UNORDERED_ACKNOWLEDGE_MODE);
-            return new NonTransactedJmsSession(this.worker, delegateSession);
-        } catch (final JMSException jx) {
-            throw new MiddlewareException(jx.getMessage(), jx);
+            for (int i = 0; i < parallelism; ++i) {
+                lanes.add(startNonTransactedSession(requireOrdering));
+            }
+        } catch (final MiddlewareException mx) {
+            // Don't leak the lanes we did manage to start:
+            for (final Session lane : lanes) {
+                lane.shutdown();
+            }
+            throw mx;
         }
+        return new UnorderedSession(lanes);
     }
 
     @SuppressWarnings("resource")
@@ -155,13 +196,24 @@ public class JmsDataBus implements DataBus {
         }
     }
 
+    /**
+     * Shuts down all {@link Session}s, and then closes the JMS
+     * {@link Connection}.
+     */
     @Override
     public Observable<Void> shutdown() {
+        return this.worker.shutdown(this.shutdownTask);
+    }
+
+    @SuppressWarnings("resource")
+    private Session startNonTransactedSession(final boolean requireOrdering) {
         try {
-            this.connection.close();
-            return Observable.empty();
+            final javax.jms.Session delegateSession = this.connection.createSession(
+                    false,
+                    requireOrdering ? ORDERED_ACKNOWLEDGE_MODE : UNORDERED_ACKNOWLEDGE_MODE);
+            return new NonTransactedJmsSession(this.worker, delegateSession);
         } catch (final JMSException jx) {
-            return Observable.error(new MiddlewareException(jx.getMessage(), jx));
+            throw new MiddlewareException(jx.getMessage(), jx);
         }
     }
 
@@ -26,6 +26,7 @@ import crud.core.MiddlewareException;
 import crud.core.ReadableResource;
 import crud.implementer.SessionWorker;
 import crud.implementer.Task;
+import crud.implementer.TaskKind;
 import rx.Observable;
 import rx.Subscriber;
 import rx.Subscription;
@@ -60,6 +61,7 @@ import rx.Subscription;
 
     @Override
     public Observable<Void> shutdown() {
+        this.worker.removePreShutdownHook(this);
         return this.worker.scheduleHot(new Task<Void>() {
             @Override
             public void call(final Subscriber<? super Void> sub) throws JMSException {
@@ -69,7 +71,7 @@ import rx.Subscription;
                  */
                 MessageConsumerResource.this.consumer.close();
             }
-        });
+        }, TaskKind.SHUTDOWN);
     }
 
 
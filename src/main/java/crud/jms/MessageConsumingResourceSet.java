@@ -26,6 +26,7 @@ import crud.core.MiddlewareException;
 import crud.core.ReadableResource;
 import crud.core.ReadableResourceSet;
 import crud.core.Session;
+import crud.implementer.UnorderedSession;
 
 
 /*package*/ class MessageConsumingResourceSet<M extends Message> implements ReadableResourceSet<String, M> {
@@ -44,6 +45,10 @@ import crud.core.Session;
     @Override
     @SuppressWarnings("resource")
     public ReadableResource<M> get(final String key, final Session session) {
+        if (session instanceof UnorderedSession) {
+            // Each lane consumes different messages, so read from them all:
+            return ((UnorderedSession) session).getMerged(this, key);
+        }
         final SessionWrapper sessionImpl = (SessionWrapper) session;
         final javax.jms.Session realSession = sessionImpl.getDelegate();
         try {
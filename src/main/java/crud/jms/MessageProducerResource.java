@@ -25,6 +25,7 @@ import javax.jms.MessageProducer;
 import crud.core.WritableResource;
 import crud.implementer.SessionWorker;
 import crud.implementer.Task;
+import crud.implementer.TaskKind;
 import rx.Observable;
 import rx.Subscriber;
 
@@ -66,12 +67,13 @@ import rx.Subscriber;
 
     @Override
     public Observable<Void> shutdown() {
+        this.worker.removePreShutdownHook(this);
         return this.worker.scheduleHot(new Task<Void>() {
             @Override
             public void call(final Subscriber<? super Void> sub) throws JMSException {
                 MessageProducerResource.this.producer.close();
             }
-        });
+        }, TaskKind.SHUTDOWN);
     }
 
 }
@@ -29,6 +29,7 @@ import crud.core.MiddlewareException;
 import crud.core.Session;
 import crud.core.WritableResource;
 import crud.core.WritableResourceSet;
+import crud.implementer.UnorderedSession;
 
 
 /*package*/ class MessageProducingResourceSet<M extends Message> implements WritableResourceSet<String, M, Void> {
@@ -49,6 +50,9 @@ import crud.core.WritableResourceSet;
     @SuppressWarnings("resource")
     @Override
     public WritableResource<M, Void> get(final String key, final Session session) {
+        if (session instanceof UnorderedSession) {
+            return ((UnorderedSession) session).get(this, key);
+        }
         if (!key.isEmpty()) {
             log.warn("Ignoring key {}", key);
         }
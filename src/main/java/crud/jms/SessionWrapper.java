@@ -22,7 +22,6 @@ import javax.jms.JMSException;
 import crud.core.Session;
 import crud.implementer.AbstractSession;
 import crud.implementer.DataBusWorker;
-import crud.implementer.SessionWorker;
 
 
 /*package*/ abstract class SessionWrapper extends AbstractSession {
@@ -34,7 +33,7 @@ import crud.implementer.SessionWorker;
             @Nonnull final DataBusWorker dataBusWorker,
             @Nonnull final Session.Ordering ordering,
             @Nonnull final javax.jms.Session delegate) {
-        super(dataBusWorker, SessionWorker.create(), ordering);
+        super(dataBusWorker, dataBusWorker.createSessionWorker(), ordering);
         this.delegate = Objects.requireNonNull(delegate);
     }
 
@@ -0,0 +1,165 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.pattern;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+
+/**
+ * A {@link ReadableResourceSet} that lets concurrent reads of equal keys
+ * share a single read of another ReadableResourceSet. The first read of a
+ * key is executed as usual, on the {@link Session} of the resource read.
+ * Any read of an equal key that begins before that execution completes --
+ * from any Session -- receives all of its elements, including those
+ * emitted before it began. Once the execution completes, the next read of
+ * that key executes anew.
+ * <p/>
+ * This spares the middleware a burst of identical reads when, for example,
+ * a popular value expires from a cache, and many clients ask for it at
+ * once. It is only appropriate for resources whose elements remain valid
+ * after they are delivered, and may be shared among threads: for example,
+ * {@code crud.jdbc.RowSnapshot} and {@code crud.jdbc.ColumnBatch}, but not
+ * {@code crud.jdbc.ResultSetRow}. Once an execution has begun, it
+ * continues until it completes, even if all of its subscribers unsubscribe.
+ *
+ * @see #getCoalescedReadCount()
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class CoalescingReadableResourceSet<KEY, RSRC> implements ReadableResourceSet<KEY, RSRC> {
+
+    private @Nonnull final ReadableResourceSet<KEY, RSRC> delegate;
+    private final ConcurrentMap<KEY, Execution> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong coalescedReadCount = new AtomicLong();
+
+
+    public CoalescingReadableResourceSet(@Nonnull final ReadableResourceSet<KEY, RSRC> delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public ReadableResource<RSRC> get(final KEY key, final Session session) {
+        return new CoalescingResource(Objects.requireNonNull(key), this.delegate.get(key, session));
+    }
+
+    /**
+     * @return  The number of reads that have been passed to the underlying
+     *          {@link ReadableResourceSet}.
+     */
+    public long getExecutionCount() {
+        return this.executionCount.get();
+    }
+
+    /**
+     * @return  The number of reads that shared another's execution, rather
+     *          than executing themselves: that is, the number of executions
+     *          saved.
+     */
+    public long getCoalescedReadCount() {
+        return this.coalescedReadCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + this.delegate + ')';
+    }
+
+    private void subscribe(
+            @Nonnull final KEY key,
+            @Nonnull final ReadableResource<RSRC> resource,
+            @Nonnull final Subscriber<? super RSRC> sub) {
+        Execution execution = this.inFlight.get(key);
+        if (execution != null) {
+            this.coalescedReadCount.incrementAndGet();
+        } else {
+            final Execution newExecution = new Execution(key, resource);
+            execution = this.inFlight.putIfAbsent(key, newExecution);
+            if (execution != null) {
+                // Another read of the same key got there first:
+                this.coalescedReadCount.incrementAndGet();
+            } else {
+                this.executionCount.incrementAndGet();
+                execution = newExecution;
+            }
+        }
+        execution.results.onBackpressureBuffer().unsafeSubscribe(sub);
+    }
+
+
+    /**
+     * One read of the underlying resource, which replays its elements to
+     * every subscriber. The read doesn't begin until the first of them
+     * subscribes.
+     */
+    private final class Execution {
+        public @Nonnull final Observable<RSRC> results;
+
+        public Execution(@Nonnull final KEY key, @Nonnull final ReadableResource<RSRC> resource) {
+            this.results = resource.read().doOnTerminate(new Action0() {
+                @Override
+                public void call() {
+                    // Remove before subscribers learn of completion, so later reads execute anew:
+                    CoalescingReadableResourceSet.this.inFlight.remove(key, Execution.this);
+                }
+            }).cache();
+        }
+    }
+
+
+    private final class CoalescingResource implements ReadableResource<RSRC> {
+        private @Nonnull final ReadableResource<RSRC> resource;
+        private @Nonnull final Observable<RSRC> reads;
+
+        public CoalescingResource(@Nonnull final KEY key, @Nonnull final ReadableResource<RSRC> resource) {
+            this.resource = resource;
+            this.reads = Observable.create(new Observable.OnSubscribe<RSRC>() {
+                @Override
+                public void call(final Subscriber<? super RSRC> sub) {
+                    subscribe(key, resource, sub);
+                }
+            });
+        }
+
+        /**
+         * Each subscription either joins a read already in progress, or
+         * starts a new one.
+         */
+        @Override
+        public Observable<RSRC> read() {
+            return this.reads;
+        }
+
+        @Override
+        public Observable<Void> shutdown() {
+            return this.resource.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.pattern;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+import crud.core.WritableResource;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.subjects.ReplaySubject;
+
+
+/**
+ * A {@link WritableResource} that holds writes for a time, and passes to
+ * another WritableResource only the last of those with equal keys: last
+ * writer wins. The key of each value is determined by a caller-supplied
+ * function. Each write starts a window, unless one is open already; when
+ * the window closes, the pending values are written, one per key, in the
+ * order in which their keys were first written within the window.
+ * <p/>
+ * This spares the middleware writes that would be overwritten anyway, when
+ * the same item is updated much more often than anyone reads it: for
+ * example, the current position of a moving object. It works with any
+ * WritableResource: SQL updates, JMS messages, or lines of a file. To
+ * coalesce values that don't expose their keys, such as
+ * {@code crud.jdbc.StatementParameters}, coalesce the domain objects
+ * from which they are made, and transform them with
+ * {@link crud.transform.TransformedWritableResource#adaptNewValue(Func1)}.
+ * <p/>
+ * Unlike most writes, these don't begin immediately. The result of a
+ * superseded write is that of the write that superseded it, since that
+ * write carries its update, if only in spirit.
+ *
+ * @see #getCoalescedWriteCount()
+ *
+ * @author Rick Warren
+ */
+@ThreadSafe
+public final class CoalescingWritableResource<KEY, RSRC, RESPONSE> implements WritableResource<RSRC, RESPONSE> {
+
+    private @Nonnull final WritableResource<RSRC, RESPONSE> delegate;
+    private @Nonnull final Func1<? super RSRC, ? extends KEY> keyExtractor;
+    private final long windowNanos;
+    private @Nonnull final Scheduler scheduler;
+
+    /**
+     * Held from taking a window's writes until they have all been passed
+     * on, so that a later window can't overtake an earlier one, and leave
+     * an older value of a key in place of a newer one. Acquired before
+     * {@code this}, which {@link #write(Object)} alone needs.
+     */
+    private final Object flushLock = new Object();
+    @GuardedBy("this")
+    private Map<KEY, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    /**
+     * Incremented each time the pending writes are flushed, so that the
+     * timer of an earlier window doesn't close a later one early.
+     */
+    @GuardedBy("this")
+    private long windowNumber = 0L;
+
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong coalescedWriteCount = new AtomicLong();
+
+
+    /**
+     * Hold writes for the given window, timed by
+     * {@link Schedulers#computation()}.
+     *
+     * @throws IllegalArgumentException If the window is negative.
+     */
+    public CoalescingWritableResource(
+            @Nonnull final WritableResource<RSRC, RESPONSE> delegate,
+            @Nonnull final Func1<? super RSRC, ? extends KEY> keyExtractor,
+            final long window,
+            @Nonnull final TimeUnit unit) {
+        this(delegate, keyExtractor, window, unit, Schedulers.computation());
+    }
+
+    /**
+     * Hold writes for the given window, timed by the given
+     * {@link Scheduler}, on which they will also be passed on.
+     *
+     * @throws IllegalArgumentException If the window is negative.
+     */
+    public CoalescingWritableResource(
+            @Nonnull final WritableResource<RSRC, RESPONSE> delegate,
+            @Nonnull final Func1<? super RSRC, ? extends KEY> keyExtractor,
+            final long window,
+            @Nonnull final TimeUnit unit,
+            @Nonnull final Scheduler scheduler) {
+        Preconditions.checkArgument(window >= 0, "negative window");
+        this.delegate = Objects.requireNonNull(delegate);
+        this.keyExtractor = Objects.requireNonNull(keyExtractor);
+        this.windowNanos = unit.toNanos(window);
+        this.scheduler = Objects.requireNonNull(scheduler);
+    }
+
+    /**
+     * Hold the given value until the current window closes, replacing any
+     * value of an equal key that is already held.
+     *
+     * @throws NullPointerException If the key of the value is null.
+     */
+    @Override
+    public Observable<RESPONSE> write(final RSRC newValue) {
+        final KEY key = Objects.requireNonNull(this.keyExtractor.call(newValue), "null key");
+        final PendingWrite write;
+        final boolean isNewWindow;
+        final long newWindowNumber;
+        synchronized (this) {
+            final PendingWrite existing = this.pendingWrites.get(key);
+            if (existing != null) {
+                existing.value = newValue;
+                this.coalescedWriteCount.incrementAndGet();
+                write = existing;
+                isNewWindow = false;
+            } else {
+                isNewWindow = this.pendingWrites.isEmpty();
+                write = new PendingWrite(newValue);
+                this.pendingWrites.put(key, write);
+            }
+            newWindowNumber = this.windowNumber;
+        }
+        if (isNewWindow) {
+            startTimer(newWindowNumber);
+        }
+        return write.result.asObservable();
+    }
+
+    /**
+     * Pass on the pending writes now, without waiting for the current
+     * window to close.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            final Map<KEY, PendingWrite> flushed;
+            synchronized (this) {
+                flushed = takePendingWrites();
+            }
+            writeAll(flushed);
+        }
+    }
+
+    /**
+     * Pass on any pending writes, and shut down the underlying
+     * {@link WritableResource}.
+     */
+    @Override
+    public Observable<Void> shutdown() {
+        flush();
+        return this.delegate.shutdown();
+    }
+
+    /**
+     * @return  The number of writes that have been passed to the underlying
+     *          {@link WritableResource}.
+     */
+    public long getWriteCount() {
+        return this.writeCount.get();
+    }
+
+    /**
+     * @return  The number of writes that were superseded by later writes
+     *          of equal keys, rather than passed on: that is, the number
+     *          of writes saved.
+     */
+    public long getCoalescedWriteCount() {
+        return this.coalescedWriteCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + this.delegate + ')';
+    }
+
+    /**
+     * Flush the given window after its delay, unless it has been flushed
+     * by then.
+     */
+    private void startTimer(final long timedWindowNumber) {
+        Observable.timer(this.windowNanos, TimeUnit.NANOSECONDS, this.scheduler).subscribe(new Action1<Long>() {
+            @Override
+            public void call(final Long ignored) {
+                synchronized (CoalescingWritableResource.this.flushLock) {
+                    final Map<KEY, PendingWrite> flushed;
+                    synchronized (CoalescingWritableResource.this) {
+                        if (CoalescingWritableResource.this.windowNumber != timedWindowNumber) {
+                            return;
+                        }
+                        flushed = takePendingWrites();
+                    }
+                    writeAll(flushed);
+                }
+            }
+        });
+    }
+
+    @GuardedBy("this")
+    private @Nullable Map<KEY, PendingWrite> takePendingWrites() {
+        if (this.pendingWrites.isEmpty()) {
+            return null;
+        }
+        final Map<KEY, PendingWrite> taken = this.pendingWrites;
+        this.pendingWrites = new LinkedHashMap<>();
+        ++this.windowNumber;
+        return taken;
+    }
+
+    @GuardedBy("flushLock")
+    private void writeAll(@Nullable final Map<KEY, PendingWrite> flushed) {
+        if (flushed == null) {
+            return;
+        }
+        for (final PendingWrite write : flushed.values()) {
+            this.writeCount.incrementAndGet();
+            try {
+                this.delegate.write(write.value).subscribe(write.result);
+            } catch (final RuntimeException ex) {
+                write.result.onError(ex);
+            }
+        }
+    }
+
+
+    /**
+     * The latest value of a key, and the result shared by all of the
+     * writes of that key in its window.
+     */
+    private final class PendingWrite {
+        public final ReplaySubject<RESPONSE> result = ReplaySubject.create();
+        @GuardedBy("CoalescingWritableResource.this")
+        public RSRC value;
+
+        public PendingWrite(final RSRC value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import crud.core.Session;
+import rx.Notification;
+import rx.Observable;
+import rx.Subscriber;
+import rx.subjects.AsyncSubject;
+
+
+public class DataBusWorkerTest {
+
+    private static final int NUM_SESSIONS = 20;
+    private static final int MAX_CONCURRENT_SHUTDOWNS = 3;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    private final AtomicInteger sessionsShuttingDown = new AtomicInteger(0);
+    private final AtomicInteger maxSessionsShuttingDown = new AtomicInteger(0);
+    private final AtomicInteger sessionsShutDown = new AtomicInteger(0);
+
+
+    @After
+    public void teardown() {
+        this.timer.shutdownNow();
+    }
+
+    @Test
+    public void sessionShutdownsBoundedByPolicy() throws Exception {
+        // given:
+        final DataBusWorker worker = DataBusWorker.create(
+                SessionExecutors.dedicatedThreads(),
+                1,
+                ShutdownPolicy.bounded(MAX_CONCURRENT_SHUTDOWNS, 0, TimeUnit.SECONDS));
+        for (int i = 0; i < NUM_SESSIONS; ++i) {
+            worker.addPreShutdownHook(new SlowSession(5));
+        }
+        final AtomicInteger sessionsShutDownBeforeFinalTask = new AtomicInteger(-1);
+
+        // when:
+        AsyncResults.awaitCompletion(worker.shutdown(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                sessionsShutDownBeforeFinalTask.set(DataBusWorkerTest.this.sessionsShutDown.get());
+            }
+        }));
+
+        // then:
+        assertEquals(NUM_SESSIONS, this.sessionsShutDown.get());
+        assertEquals(NUM_SESSIONS, sessionsShutDownBeforeFinalTask.get());
+        assertTrue(this.maxSessionsShuttingDown.get() <= MAX_CONCURRENT_SHUTDOWNS);
+    }
+
+    @Test
+    public void finalTaskRunsAfterDeadline() throws Exception {
+        // given:
+        final DataBusWorker worker = DataBusWorker.create(
+                SessionExecutors.dedicatedThreads(),
+                1,
+                ShutdownPolicy.bounded(1, 50, TimeUnit.MILLISECONDS));
+        worker.addPreShutdownHook(new SlowSession(TimeUnit.MINUTES.toMillis(1)));
+        final AtomicBoolean finalTaskRan = new AtomicBoolean(false);
+
+        // when:
+        final Notification<Void> last = worker.shutdown(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                finalTaskRan.set(true);
+            }
+        }).materialize().toBlocking().last();
+
+        // then:
+        assertTrue(last.isOnError());
+        assertTrue(last.getThrowable() instanceof TimeoutException);
+        assertTrue(finalTaskRan.get());
+    }
+
+    @Test
+    public void secondShutdownWaitsForFirst() throws Exception {
+        // given:
+        final AtomicInteger factoryShutdowns = new AtomicInteger(0);
+        final DataBusWorker worker = DataBusWorker.create(new SessionExecutorFactory() {
+            @Override
+            public ExecutorService newSessionExecutor() {
+                return Executors.newSingleThreadExecutor();
+            }
+
+            @Override
+            public void shutdown() {
+                factoryShutdowns.incrementAndGet();
+            }
+        });
+        worker.addPreShutdownHook(new SlowSession(200));
+        final Observable<Void> first = worker.shutdown(new NoOpTask());
+
+        // when:
+        final Observable<Void> second = worker.shutdown(new NoOpTask());
+
+        // then:
+        assertEquals(0, factoryShutdowns.get());
+        AsyncResults.awaitCompletion(second);
+        assertEquals(1, this.sessionsShutDown.get());
+        assertEquals(1, factoryShutdowns.get());
+        AsyncResults.awaitCompletion(first);
+        assertEquals(1, factoryShutdowns.get());
+    }
+
+
+    private static final class NoOpTask implements Task<Void> {
+        @Override
+        public void call(final Subscriber<? super Void> sub) {
+            // nothing to do
+        }
+    }
+
+
+    /**
+     * Takes the given time to shut down, while keeping track of how many
+     * Sessions are doing so at once.
+     */
+    private final class SlowSession extends AbstractAsyncCloseable implements Session {
+        private final long shutdownMillis;
+
+        public SlowSession(final long shutdownMillis) {
+            this.shutdownMillis = shutdownMillis;
+        }
+
+        @Override
+        public Ordering getOrdering() {
+            return Session.Ordering.UNORDERED;
+        }
+
+        @Override
+        public Observable<Void> shutdown() {
+            final int nowShuttingDown = DataBusWorkerTest.this.sessionsShuttingDown.incrementAndGet();
+            int max;
+            do {
+                max = DataBusWorkerTest.this.maxSessionsShuttingDown.get();
+            } while (nowShuttingDown > max
+                    && !DataBusWorkerTest.this.maxSessionsShuttingDown.compareAndSet(max, nowShuttingDown));
+
+            final AsyncSubject<Void> result = AsyncSubject.create();
+            DataBusWorkerTest.this.timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    DataBusWorkerTest.this.sessionsShuttingDown.decrementAndGet();
+                    DataBusWorkerTest.this.sessionsShutDown.incrementAndGet();
+                    result.onCompleted();
+                }
+            }, this.shutdownMillis, TimeUnit.MILLISECONDS);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+
+    @Test
+    public void emptyHistogramHasZeroPercentiles() {
+        assertEquals(0L, this.histogram.getCount());
+        assertEquals(0L, this.histogram.getPercentile(50.0, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void percentileWithinFactorOfTwo() {
+        // given:
+        for (int i = 0; i < 99; ++i) {
+            this.histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        this.histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // when:
+        final long median = this.histogram.getPercentile(50.0, TimeUnit.NANOSECONDS);
+        final long max = this.histogram.getPercentile(100.0, TimeUnit.NANOSECONDS);
+
+        // then:
+        assertEquals(100L, this.histogram.getCount());
+        assertTrue(median >= TimeUnit.MICROSECONDS.toNanos(10));
+        assertTrue(median < TimeUnit.MICROSECONDS.toNanos(20));
+        assertTrue(max >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(max < TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+}
@@ -0,0 +1,114 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+
+
+/**
+ * Compares the number of bytes allocated, across all threads, per call to
+ * {@link SessionWorker#scheduleHot(Task)} with the same for the previous
+ * implementation: {@link SessionWorker#scheduleCold(Task)}, followed by
+ * {@link Observable#cache()} and {@link Observable#materialize()}. The task
+ * emits a single {@link Integer}, as an update to a JDBC table does.
+ * <p/>
+ * This is a standalone application, not a unit test, because the numbers
+ * depend on the JVM. It requires a HotSpot-derived JVM.
+ *
+ * @author Rick Warren
+ */
+public final class ScheduleHotAllocationBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int MEASURED_ITERATIONS = 1000000;
+
+    private static final Task<Integer> oneRowUpdated = new Task<Integer>() {
+        @Override
+        public void call(final Subscriber<? super Integer> sub) {
+            sub.onNext(1);
+        }
+    };
+
+
+    public static void main(final String... args) throws Exception {
+        final SessionWorker worker = SessionWorker.create();
+        try {
+            run("cached cold path", worker, false, WARMUP_ITERATIONS);
+            run("hot path", worker, true, WARMUP_ITERATIONS);
+            final double before = run("cached cold path", worker, false, MEASURED_ITERATIONS);
+            final double after = run("hot path", worker, true, MEASURED_ITERATIONS);
+            System.out.printf("Reduction: %.1f%%%n", 100.0 * (before - after) / before);
+        } finally {
+            AsyncResults.awaitCompletion(worker.shutdown(
+                    new Task<Void>() {
+                        @Override
+                        public void call(final Subscriber<? super Void> sub) {
+                            // nothing to clean up
+                        }
+                    },
+                    1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static double run(
+            final String name,
+            final SessionWorker worker,
+            final boolean hot,
+            final int iterations) {
+        final long bytesBefore = totalAllocatedBytes();
+        Observable<Integer> last = null;
+        for (int i = 0; i < iterations; ++i) {
+            last = hot ? worker.scheduleHot(oneRowUpdated) : scheduleHotTheOldWay(worker);
+        }
+        // Tasks run in order, so the last to finish means all have:
+        last.toBlocking().last();
+        final long bytesAfter = totalAllocatedBytes();
+
+        final double bytesPerCall = (double) (bytesAfter - bytesBefore) / iterations;
+        System.out.printf("%-20s %8.1f bytes/call%n", name, bytesPerCall);
+        return bytesPerCall;
+    }
+
+    private static Observable<Integer> scheduleHotTheOldWay(final SessionWorker worker) {
+        final Observable<Integer> obs = worker.scheduleCold(oneRowUpdated).cache();
+        obs.materialize().subscribe();
+        return obs;
+    }
+
+    /**
+     * Sum allocation across all live threads, to capture both the caller
+     * and the worker.
+     */
+    private static long totalAllocatedBytes() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0L;
+        for (final long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private ScheduleHotAllocationBenchmark() {
+        // prevent instantiation
+    }
+
+}
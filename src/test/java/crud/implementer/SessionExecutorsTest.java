@@ -0,0 +1,149 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import rx.Subscriber;
+
+
+public class SessionExecutorsTest {
+
+    private static final int NUM_EXECUTORS = 20;
+    private static final int NUM_TASKS = 100;
+    private static final int POOL_SIZE = 3;
+
+
+    @Test
+    public void sharedPoolPreservesOrderOnBoundedThreads() throws Exception {
+        // given:
+        final SessionExecutorFactory factory = SessionExecutors.sharedPool(POOL_SIZE);
+        final Set<Thread> threadsUsed = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final List<ExecutorService> executors = new ArrayList<>();
+        final List<List<Integer>> observedOrders = new ArrayList<>();
+        for (int i = 0; i < NUM_EXECUTORS; ++i) {
+            executors.add(factory.newSessionExecutor());
+            observedOrders.add(new ArrayList<Integer>());
+        }
+
+        // when:
+        final CountDownLatch done = new CountDownLatch(NUM_EXECUTORS * NUM_TASKS);
+        for (int task = 0; task < NUM_TASKS; ++task) {
+            for (int i = 0; i < NUM_EXECUTORS; ++i) {
+                final List<Integer> observedOrder = observedOrders.get(i);
+                final int taskNum = task;
+                executors.get(i).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        threadsUsed.add(Thread.currentThread());
+                        // Not synchronized: the executor must serialize us.
+                        observedOrder.add(taskNum);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        factory.shutdown();
+
+        // then:
+        for (final List<Integer> observedOrder : observedOrders) {
+            assertEquals(NUM_TASKS, observedOrder.size());
+            for (int task = 0; task < NUM_TASKS; ++task) {
+                assertEquals(Integer.valueOf(task), observedOrder.get(task));
+            }
+        }
+        assertTrue(threadsUsed.size() <= POOL_SIZE);
+        for (final Thread thread : threadsUsed) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void dedicatedThreadEndsWithItsWorker() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(SessionExecutors.dedicatedThreads());
+        final Thread thread = threadOf(worker);
+
+        // when:
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+        SessionExecutors.dedicatedThreads().shutdown();
+
+        // then:
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void virtualThreadsAvailableOnlyWhenSupported() throws Exception {
+        if (!SessionExecutors.isVirtualThreadSupportAvailable()) {
+            try {
+                SessionExecutors.virtualThreads();
+                fail("virtual threads reported unsupported, but were created");
+            } catch (final UnsupportedOperationException expected) {
+                return;
+            }
+        }
+
+        // given:
+        final SessionExecutorFactory factory = SessionExecutors.virtualThreads();
+        final SessionWorker worker = SessionWorker.create(factory);
+
+        // when:
+        final Thread thread = threadOf(worker);
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+        factory.shutdown();
+
+        // then:
+        assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+    }
+
+    private static Thread threadOf(final SessionWorker worker) throws Exception {
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        AsyncResults.awaitCompletion(worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                thread.set(Thread.currentThread());
+            }
+        }));
+        return thread.get();
+    }
+
+    private static Task<Void> noOpTask() {
+        return new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                // do nothing
+            }
+        };
+    }
+
+}
@@ -0,0 +1,518 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import crud.core.MiddlewareException;
+import rx.Notification;
+import rx.Observable;
+import rx.Observer;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+
+
+public class SessionWorkerTest {
+
+    private static final int NUM_WORKERS = 50;
+    private static final int NUM_TASKS = 200;
+    private static final int NUM_CYCLES = 1000000;
+    /**
+     * Retaining a million resources would take tens of MB.
+     */
+    private static final long MAX_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+
+    private final SessionExecutorFactory sharedPool = SessionExecutors.sharedPool(2);
+
+
+    @After
+    public void teardown() {
+        this.sharedPool.shutdown();
+    }
+
+    @Test
+    public void sharedPoolPreservesOrderWithinEachWorker() throws Exception {
+        // given:
+        final List<SessionWorker> workers = new ArrayList<>();
+        final List<List<Integer>> observedOrders = new ArrayList<>();
+        for (int i = 0; i < NUM_WORKERS; ++i) {
+            workers.add(SessionWorker.create(this.sharedPool));
+            observedOrders.add(new ArrayList<Integer>());
+        }
+
+        // when:
+        final List<Observable<Void>> results = new ArrayList<>();
+        for (int task = 0; task < NUM_TASKS; ++task) {
+            for (int i = 0; i < NUM_WORKERS; ++i) {
+                final List<Integer> observedOrder = observedOrders.get(i);
+                final int taskNum = task;
+                results.add(workers.get(i).scheduleHot(new Task<Void>() {
+                    @Override
+                    public void call(final Subscriber<? super Void> sub) {
+                        // Not synchronized: the worker must serialize us.
+                        observedOrder.add(taskNum);
+                    }
+                }));
+            }
+        }
+        for (final SessionWorker worker : workers) {
+            results.add(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+        }
+        AsyncResults.awaitCompletion(Observable.merge(results));
+
+        // then:
+        for (final List<Integer> observedOrder : observedOrders) {
+            assertEquals(NUM_TASKS, observedOrder.size());
+            for (int task = 0; task < NUM_TASKS; ++task) {
+                assertEquals(Integer.valueOf(task), observedOrder.get(task));
+            }
+        }
+    }
+
+    @Test
+    public void hotResultsReplayedToEverySubscriber() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final List<Integer> expected = Arrays.asList(1, 2, 3);
+
+        // when:
+        final Observable<Integer> result = worker.scheduleHot(new Task<Integer>() {
+            @Override
+            public void call(final Subscriber<? super Integer> sub) {
+                for (final Integer i : expected) {
+                    sub.onNext(i);
+                }
+            }
+        });
+
+        // then:
+        assertEquals(expected, result.toList().toBlocking().single());
+        assertEquals(expected, result.toList().toBlocking().single());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void hotTaskFailureWrappedInMiddlewareException() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final IOException expectedCause = new IOException("expected");
+
+        // when:
+        final Observable<Void> result = worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws IOException {
+                throw expectedCause;
+            }
+        });
+
+        // then:
+        final Notification<Void> last = result.materialize().toBlocking().last();
+        assertTrue(last.isOnError());
+        assertTrue(last.getThrowable() instanceof MiddlewareException);
+        assertEquals(expectedCause, last.getThrowable().getCause());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queuedTaskSkippedAfterUnsubscribe() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final CountDownLatch releaseWorker = new CountDownLatch(1);
+        worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws InterruptedException {
+                releaseWorker.await();
+            }
+        });
+        final AtomicBoolean abandonedTaskRan = new AtomicBoolean(false);
+        final Subscription subscription = worker.scheduleCold(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                abandonedTaskRan.set(true);
+            }
+        }).subscribe();
+
+        // when:
+        subscription.unsubscribe();
+        releaseWorker.countDown();
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+
+        // then:
+        assertFalse(abandonedTaskRan.get());
+    }
+
+    @Test
+    public void runningTaskCancelledOnUnsubscribe() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final CountDownLatch taskStarted = new CountDownLatch(1);
+        final CountDownLatch taskCancelled = new CountDownLatch(1);
+        final Subscription subscription = worker.scheduleCold(new CancellableTask<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws InterruptedException {
+                taskStarted.countDown();
+                taskCancelled.await();
+            }
+
+            @Override
+            public void cancel() {
+                taskCancelled.countDown();
+            }
+        }).subscribe();
+        assertTrue(taskStarted.await(10, TimeUnit.SECONDS));
+
+        // when:
+        subscription.unsubscribe();
+
+        // then:
+        assertTrue(taskCancelled.await(10, TimeUnit.SECONDS));
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queuedTaskTimesOutBeforeRunning() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final CountDownLatch releaseWorker = new CountDownLatch(1);
+        worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws InterruptedException {
+                releaseWorker.await();
+            }
+        });
+        final AtomicBoolean timedOutTaskRan = new AtomicBoolean(false);
+
+        // when:
+        final Observable<Void> result = worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                timedOutTaskRan.set(true);
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(10);
+        releaseWorker.countDown();
+
+        // then:
+        final Notification<Void> last = result.materialize().toBlocking().last();
+        assertTrue(last.isOnError());
+        assertTrue(last.getThrowable() instanceof TimeoutException);
+        assertFalse(timedOutTaskRan.get());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void runningTaskSeesItsDeadline() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+
+        // when:
+        final Observable<Long> remainingMillis = worker.scheduleCold(new Task<Long>() {
+            @Override
+            public void call(final Subscriber<? super Long> sub) {
+                sub.onNext(Deadline.current().get().remaining(TimeUnit.MILLISECONDS));
+            }
+        }, 1, TimeUnit.MINUTES);
+
+        // then:
+        final long remaining = remainingMillis.toBlocking().single();
+        assertTrue(remaining > 0L && remaining <= TimeUnit.MINUTES.toMillis(1));
+        assertFalse(Deadline.current().isPresent());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownCompletesAfterQueuedTasks() throws Exception {
+        // given:
+        final List<SessionWorker> workers = new ArrayList<>();
+        final List<AtomicBoolean> lastTasksRan = new ArrayList<>();
+        for (int i = 0; i < NUM_WORKERS; ++i) {
+            final SessionWorker worker = SessionWorker.create(this.sharedPool);
+            final AtomicBoolean lastTaskRan = new AtomicBoolean(false);
+            worker.scheduleHot(new Task<Void>() {
+                @Override
+                public void call(final Subscriber<? super Void> sub) throws InterruptedException {
+                    Thread.sleep(1);
+                    lastTaskRan.set(true);
+                }
+            });
+            workers.add(worker);
+            lastTasksRan.add(lastTaskRan);
+        }
+
+        // when:
+        final List<Observable<Void>> results = new ArrayList<>();
+        for (final SessionWorker worker : workers) {
+            results.add(worker.shutdown(noOpTask()));
+        }
+        AsyncResults.awaitCompletion(Observable.merge(results));
+
+        // then:
+        for (final AtomicBoolean lastTaskRan : lastTasksRan) {
+            assertTrue(lastTaskRan.get());
+        }
+    }
+
+    @Test
+    public void resourcesShutDownIndividuallyAreNotRetained() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        createAndShutDownResources(worker, NUM_CYCLES / 10);   // warm up
+        final long heapBefore = usedHeapAfterGc();
+
+        // when:
+        createAndShutDownResources(worker, NUM_CYCLES);
+
+        // then:
+        final long heapAfter = usedHeapAfterGc();
+        assertEquals(0, worker.getPreShutdownHookCount());
+        assertTrue(
+                "heap grew by " + (heapAfter - heapBefore) + " bytes",
+                heapAfter - heapBefore < MAX_HEAP_GROWTH_BYTES);
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void statisticsCountTasksByKind() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final AtomicInteger listenerFinishedCount = new AtomicInteger(0);
+        worker.addTaskListener(new TaskListener() {
+            @Override
+            public void taskQueued(final TaskKind kind) {
+                // ignore
+            }
+
+            @Override
+            public void taskStarted(final TaskKind kind, final long queueWaitNanos) {
+                // ignore
+            }
+
+            @Override
+            public void taskFinished(final TaskKind kind, final long executionNanos, final boolean succeeded) {
+                listenerFinishedCount.incrementAndGet();
+            }
+
+            @Override
+            public void taskDropped(final TaskKind kind) {
+                // ignore
+            }
+        });
+
+        // when:
+        worker.scheduleCold(noOpTask()).toBlocking().lastOrDefault(null);
+        worker.scheduleHot(noOpTask()).toBlocking().lastOrDefault(null);
+        worker.scheduleHot(noOpTask(), TaskKind.COMMIT).toBlocking().lastOrDefault(null);
+        worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws IOException {
+                throw new IOException("expected");
+            }
+        }).materialize().toBlocking().last();
+
+        // then:
+        final TaskStatistics stats = worker.getTaskStatistics();
+        assertEquals(1L, stats.getFinishedCount(TaskKind.READ));
+        assertEquals(2L, stats.getFinishedCount(TaskKind.WRITE));
+        assertEquals(1L, stats.getFailedCount(TaskKind.WRITE));
+        assertEquals(1L, stats.getFinishedCount(TaskKind.COMMIT));
+        assertEquals(0L, stats.getFinishedCount(TaskKind.ROLLBACK));
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(4L, stats.getQueueWaitTimes().getCount());
+        assertEquals(4L, stats.getExecutionTimes().getCount());
+        assertEquals(4, listenerFinishedCount.get());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void streamingTaskEmitsOnlyWhatIsRequested() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final CountingStream stream = new CountingStream(100);
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>() {
+            @Override
+            public void onStart() {
+                request(0);
+            }
+        };
+        worker.scheduleStreaming(stream.factory()).subscribe(subscriber);
+
+        // when:
+        subscriber.requestMore(5);
+        // The worker is serial, so once this finishes, the burst has too:
+        worker.scheduleCold(noOpTask()).toBlocking().lastOrDefault(null);
+
+        // then:
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), subscriber.getOnNextEvents());
+        assertEquals(5, stream.emitCalls.get());
+        assertEquals(0, stream.closeCalls.get());   // still open between bursts
+        subscriber.unsubscribe();
+        assertTrue(stream.closed.await(10, TimeUnit.SECONDS));
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledStreamLeavesNoQueuedBursts() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final CountingStream stream = new CountingStream(100);
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>() {
+            @Override
+            public void onStart() {
+                request(0);
+            }
+        };
+        worker.scheduleStreaming(stream.factory()).subscribe(subscriber);
+        subscriber.requestMore(5);  // opens the stream
+        worker.scheduleCold(noOpTask()).toBlocking().lastOrDefault(null);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Observable<Void> blocker = worker.scheduleHot(new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) throws InterruptedException {
+                release.await();
+            }
+        });
+        subscriber.requestMore(5);  // queues a burst behind the blocker
+
+        // when:
+        subscriber.unsubscribe();   // queues another
+        release.countDown();
+        AsyncResults.awaitCompletion(blocker);
+        assertTrue(stream.closed.await(10, TimeUnit.SECONDS));
+        // The worker is serial, so once this finishes, both bursts have too:
+        worker.scheduleCold(noOpTask()).toBlocking().lastOrDefault(null);
+
+        // then:
+        assertEquals(0, worker.getTaskStatistics().getQueueDepth());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void streamingTaskWithUnboundedDemandEmitsEverything() throws Exception {
+        // given:
+        final SessionWorker worker = SessionWorker.create(this.sharedPool);
+        final int count = 3 * StreamingTaskProducer.MAX_BURST_SIZE + 1;
+        final CountingStream stream = new CountingStream(count);
+
+        // when:
+        final List<Integer> results = worker.scheduleStreaming(stream.factory()).toList().toBlocking().single();
+
+        // then:
+        assertEquals(count, results.size());
+        assertEquals(count - 1, results.get(count - 1).intValue());
+        assertTrue(stream.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, stream.closeCalls.get());
+        AsyncResults.awaitCompletion(worker.shutdown(noOpTask(), 10, TimeUnit.SECONDS));
+    }
+
+    private static void createAndShutDownResources(final SessionWorker worker, final int count)
+    throws Exception {
+        Observable<Void> lastShutdown = Observable.empty();
+        for (int i = 1; i <= count; ++i) {
+            final AbstractResource<Void> resource = new AbstractResource<Void>(worker) {
+                // nothing to add
+            };
+            lastShutdown = resource.shutdown();
+            if (i % 10000 == 0) {
+                // Don't let the queue of shutdown tasks itself fill the heap:
+                AsyncResults.awaitCompletion(lastShutdown);
+            }
+        }
+        AsyncResults.awaitCompletion(lastShutdown);
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Emits the integers from zero up to a limit.
+     */
+    private static final class CountingStream implements StreamingTask<Integer> {
+        public final AtomicInteger emitCalls = new AtomicInteger(0);
+        public final AtomicInteger closeCalls = new AtomicInteger(0);
+        public final CountDownLatch closed = new CountDownLatch(1);
+        private final int limit;
+        private int next = 0;
+
+        public CountingStream(final int limit) {
+            this.limit = limit;
+        }
+
+        public Func0<StreamingTask<Integer>> factory() {
+            return new Func0<StreamingTask<Integer>>() {
+                @Override
+                public StreamingTask<Integer> call() {
+                    return CountingStream.this;
+                }
+            };
+        }
+
+        @Override
+        public void open() {
+            // nothing to do
+        }
+
+        @Override
+        public boolean emitNext(final Observer<? super Integer> observer) {
+            this.emitCalls.incrementAndGet();
+            if (this.next < this.limit) {
+                observer.onNext(this.next++);
+            }
+            return this.next < this.limit;
+        }
+
+        @Override
+        public void close() {
+            this.closeCalls.incrementAndGet();
+            this.closed.countDown();
+        }
+
+        @Override
+        public void cancel() {
+            // nothing to interrupt
+        }
+    }
+
+    private static Task<Void> noOpTask() {
+        return new Task<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> sub) {
+                // do nothing
+            }
+        };
+    }
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.implementer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import crud.file.FileSystem;
+import rx.functions.Func1;
+
+
+public class UnorderedSessionTest {
+
+    private static final int PARALLELISM = 4;
+
+    private final FileSystem fileSystem = new FileSystem(
+            DataBusWorker.create(SessionExecutors.dedicatedThreads(), PARALLELISM));
+    private File file;
+
+
+    @Before
+    public void setup() throws IOException {
+        this.fileSystem.start();
+        this.file = File.createTempFile(getClass().getSimpleName(), null);
+        this.file.deleteOnExit();
+        Files.write(this.file.toPath(), Arrays.asList("hello", "world"), StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AsyncResults.awaitShutdown(this.fileSystem);
+    }
+
+    @Test
+    public void unorderedSessionHasOneLanePerUnitOfParallelism() {
+        // when:
+        final Session session = this.fileSystem.startSession(false);
+
+        // then:
+        assertSame(Session.Ordering.UNORDERED, session.getOrdering());
+        assertEquals(PARALLELISM, ((UnorderedSession) session).getLanes().size());
+    }
+
+    @Test
+    public void orderedSessionIsUnaffectedByParallelism() {
+        // when:
+        final Session session = this.fileSystem.startSession(true);
+
+        // then:
+        assertSame(Session.Ordering.ORDERED, session.getOrdering());
+        assertFalse(session instanceof UnorderedSession);
+    }
+
+    @Test
+    public void successiveReadsSpreadAcrossLanes() {
+        // given:
+        final Session session = this.fileSystem.startSession(false);
+        final ReadableResourceSet<File, String> rsrcSet = this.fileSystem.resources(
+                new ReadableResourceSet.Id<>("test", File.class, String.class)).get();
+        final ReadableResource<String> rsrc = rsrcSet.get(this.file, session);
+
+        // when:
+        final Set<String> threadNames = new HashSet<>();
+        for (int i = 0; i < PARALLELISM; ++i) {
+            final List<String> lines = rsrc.read().map(new Func1<String, String>() {
+                @Override
+                public String call(final String line) {
+                    threadNames.add(Thread.currentThread().getName());
+                    return line;
+                }
+            }).toList().toBlocking().single();
+            assertEquals(Arrays.asList("hello", "world"), lines);
+        }
+
+        // then:
+        assertEquals(PARALLELISM, threadNames.size());
+    }
+
+}
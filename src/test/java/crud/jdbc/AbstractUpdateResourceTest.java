@@ -0,0 +1,185 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import crud.core.Session;
+import crud.core.WritableResourceSet;
+import crud.implementer.AsyncResults;
+import rx.Notification;
+import rx.Observable;
+
+
+/**
+ * Tests the {@link BulkWritableResource} implementation of
+ * {@link AbstractUpdateResource} against a mock {@link DataSource}.
+ */
+public class AbstractUpdateResourceTest {
+
+    private static final String insertSql = "INSERT INTO T (ID) VALUES (?)";
+    private static final WritableResourceSet.Id<StatementTemplate, StatementParameters, Integer> id =
+            new WritableResourceSet.Id<>("write", StatementTemplate.class, StatementParameters.class, Integer.class);
+
+    private final DataSource mockDataSource = mock(DataSource.class);
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockInsert = mock(PreparedStatement.class);
+
+    private JdbcDataBus dataBus;
+    private Session session;
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockDataSource.getConnection()).thenReturn(this.mockConnection);
+        when(this.mockConnection.prepareStatement(insertSql)).thenReturn(this.mockInsert);
+        this.dataBus = new JdbcDataBus(this.mockDataSource);
+        this.dataBus.start();
+        this.session = this.dataBus.startSession(true);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AsyncResults.awaitShutdown(this.session);
+        AsyncResults.awaitShutdown(this.dataBus);
+    }
+
+    @Test
+    public void observableWrittenInOneBatch() throws Exception {
+        // given:
+        final BulkWritableResource rsrc = writer(new StatementTemplate(insertSql));
+
+        // when:
+        final List<Long> progress = rsrc.writeAll(Observable.just(param(1), param(2), param(3)))
+                .toList()
+                .toBlocking().single();
+
+        // then:
+        assertEquals(Arrays.asList(3L), progress);
+        verify(this.mockInsert, times(3)).addBatch();
+        verify(this.mockInsert, times(1)).executeBatch();
+        verify(this.mockInsert, never()).executeUpdate();
+    }
+
+    @Test
+    public void iterableWrittenInTemplateSizedBatches() throws Exception {
+        // given:
+        final BulkWritableResource rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(2, 1, TimeUnit.HOURS));
+
+        // when:
+        final List<Long> progress = rsrc.writeAll(Arrays.asList(param(1), param(2), param(3), param(4), param(5)))
+                .toList()
+                .toBlocking().single();
+
+        // then:
+        assertEquals(Arrays.asList(2L, 4L, 5L), progress);
+        verify(this.mockInsert, times(5)).addBatch();
+        verify(this.mockInsert, times(3)).executeBatch();
+    }
+
+    @Test
+    public void pendingWritesExecutedFirst() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenReturn(new int[] { 1 });
+        final BulkWritableResource rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(100, 1, TimeUnit.HOURS));
+        final Observable<Integer> pending = rsrc.write(param(1));
+
+        // when:
+        final Long total = rsrc.writeAll(Arrays.asList(param(2))).toBlocking().single();
+
+        // then:
+        assertEquals(Long.valueOf(1L), total);
+        assertEquals(Integer.valueOf(1), pending.toBlocking().single());
+        verify(this.mockInsert, times(2)).executeBatch();
+    }
+
+    @Test
+    public void sourceWrittenThroughReusedBuffer() throws Exception {
+        // given:
+        final BulkWritableResource rsrc = writer(new StatementTemplate(insertSql));
+        final ParameterBuffer.Source source = new ParameterBuffer.Source() {
+            private int next = 0;
+
+            @Override
+            public boolean fill(final ParameterBuffer buffer) {
+                if (this.next == 3) {
+                    return false;
+                }
+                buffer.setInt(1, this.next++);
+                return true;
+            }
+        };
+
+        // when:
+        final Long total = rsrc.writeAll(source).toBlocking().single();
+
+        // then:
+        assertEquals(Long.valueOf(3L), total);
+        verify(this.mockInsert).setInt(1, 0);
+        verify(this.mockInsert).setInt(1, 1);
+        verify(this.mockInsert).setInt(1, 2);
+        verify(this.mockInsert, times(1)).executeBatch();
+    }
+
+    @Test
+    public void failedBatchStillInvalidatesTable() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenThrow(new SQLException("boom"));
+        final TableWriteListener mockListener = mock(TableWriteListener.class);
+        this.dataBus.addTableWriteListener(mockListener);
+        final BulkWritableResource rsrc = writer(new StatementTemplate(insertSql));
+
+        // when:
+        final Notification<Long> result = rsrc.writeAll(Arrays.asList(param(1), param(2)))
+                .materialize()
+                .toBlocking().last();
+
+        // then:
+        assertTrue(result.isOnError());
+        verify(mockListener).tableWritten(Optional.of("T"));
+    }
+
+    private BulkWritableResource writer(final StatementTemplate template) {
+        return (BulkWritableResource) this.dataBus.resources(id).get().get(template, this.session);
+    }
+
+    private static StatementParameters param(final int value) {
+        return StatementParameters.builder().append(StatementParameter.ofValue(value)).build();
+    }
+
+}
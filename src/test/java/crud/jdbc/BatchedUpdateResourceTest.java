@@ -0,0 +1,248 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.google.common.base.Optional;
+
+import crud.core.MiddlewareException;
+import crud.core.Session;
+import crud.core.TransactedSession;
+import crud.core.WritableResource;
+import crud.core.WritableResourceSet;
+import crud.implementer.AsyncResults;
+import rx.Notification;
+import rx.Observable;
+
+
+/**
+ * Tests {@link BatchedUpdateResource} against a mock {@link DataSource}.
+ */
+public class BatchedUpdateResourceTest {
+
+    private static final String insertSql = "INSERT INTO T (ID) VALUES (?)";
+    private static final WritableResourceSet.Id<StatementTemplate, StatementParameters, Integer> id =
+            new WritableResourceSet.Id<>("write", StatementTemplate.class, StatementParameters.class, Integer.class);
+
+    private final DataSource mockDataSource = mock(DataSource.class);
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockInsert = mock(PreparedStatement.class);
+    private final PreparedStatement mockTwoRowInsert = mock(PreparedStatement.class);
+
+    private JdbcDataBus dataBus;
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockDataSource.getConnection()).thenReturn(this.mockConnection);
+        when(this.mockConnection.prepareStatement(insertSql)).thenReturn(this.mockInsert);
+        this.dataBus = new JdbcDataBus(this.mockDataSource);
+        this.dataBus.start();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AsyncResults.awaitShutdown(this.dataBus);
+    }
+
+    @Test
+    public void fullBatchExecutedTogether() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenReturn(new int[] { 1, 0 });
+        final Session session = this.dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(2, 1, TimeUnit.HOURS),
+                session);
+
+        // when:
+        final Observable<Integer> first = rsrc.write(param(1));
+        final Observable<Integer> second = rsrc.write(param(2));
+
+        // then:
+        assertEquals(Integer.valueOf(1), first.toBlocking().single());
+        assertEquals(Integer.valueOf(0), second.toBlocking().single());
+        verify(this.mockInsert, times(2)).addBatch();
+        verify(this.mockInsert, times(1)).executeBatch();
+        verify(this.mockInsert, never()).executeUpdate();
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void partialBatchExecutedAfterDelay() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenReturn(new int[] { 1 });
+        final Session session = this.dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(100, 10, TimeUnit.MILLISECONDS),
+                session);
+
+        // when:
+        final Integer count = rsrc.write(param(1)).toBlocking().single();
+
+        // then:
+        assertEquals(Integer.valueOf(1), count);
+        verify(this.mockInsert, times(1)).executeBatch();
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void commitExecutesPendingBatch() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenReturn(new int[] { 1 });
+        final TransactedSession session = this.dataBus.startTransactedSession();
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(100, 1, TimeUnit.HOURS),
+                session);
+
+        // when:
+        final Observable<Integer> write = rsrc.write(param(1));
+        AsyncResults.awaitCompletion(session.commit());
+
+        // then:
+        assertEquals(Integer.valueOf(1), write.toBlocking().single());
+        final InOrder order = inOrder(this.mockInsert, this.mockConnection);
+        order.verify(this.mockInsert).executeBatch();
+        order.verify(this.mockConnection).commit();
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void failedBatchFailsWithMiddlewareException() throws Exception {
+        // given:
+        final SQLException failure = new SQLException("boom");
+        when(this.mockInsert.executeBatch()).thenThrow(failure);
+        final Session session = this.dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(1, 1, TimeUnit.HOURS),
+                session);
+
+        // when:
+        final Notification<Integer> result = rsrc.write(param(1)).materialize().toBlocking().last();
+
+        // then:
+        assertTrue(result.isOnError());
+        assertTrue(result.getThrowable() instanceof MiddlewareException);
+        assertSame(failure, result.getThrowable().getCause());
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void partlyFailedBatchStillInvalidatesTable() throws Exception {
+        // given:
+        when(this.mockInsert.executeBatch()).thenThrow(new BatchUpdateException(
+                "boom",
+                new int[] { 1, Statement.EXECUTE_FAILED }));
+        final TableWriteListener mockListener = mock(TableWriteListener.class);
+        this.dataBus.addTableWriteListener(mockListener);
+        final Session session = this.dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(2, 1, TimeUnit.HOURS),
+                session);
+
+        // when:
+        final Observable<Integer> first = rsrc.write(param(1));
+        final Observable<Integer> second = rsrc.write(param(2));
+
+        // then:
+        assertEquals(Integer.valueOf(1), first.toBlocking().single());
+        assertTrue(second.materialize().toBlocking().last().isOnError());
+        verify(mockListener).tableWritten(Optional.of("T"));
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void failedBatchFailsCommit() throws Exception {
+        // given:
+        final SQLException failure = new SQLException("boom");
+        when(this.mockInsert.executeBatch()).thenThrow(failure);
+        final TransactedSession session = this.dataBus.startTransactedSession();
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(100, 1, TimeUnit.HOURS),
+                session);
+        final Observable<Integer> write = rsrc.write(param(1));
+
+        // when:
+        final Notification<Void> result = session.commit().materialize().toBlocking().last();
+
+        // then:
+        assertTrue(result.isOnError());
+        assertSame(failure, result.getThrowable().getCause());
+        assertTrue(write.materialize().toBlocking().last().isOnError());
+        verify(this.mockConnection, never()).commit();
+        AsyncResults.awaitShutdown(session);
+    }
+
+    @Test
+    public void multiRowInsertsCombineRows() throws Exception {
+        // given:
+        final String twoRowSql = "INSERT INTO T (ID) VALUES (?), (?)";
+        when(this.mockConnection.prepareStatement(twoRowSql)).thenReturn(this.mockTwoRowInsert);
+        when(this.mockTwoRowInsert.executeUpdate()).thenReturn(2);
+        when(this.mockInsert.executeUpdate()).thenReturn(1);
+        final Session session = this.dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = writer(
+                new StatementTemplate(insertSql).withWriteBatching(3, 1, TimeUnit.HOURS).withMultiRowInserts(),
+                session);
+
+        // when:
+        final Observable<Integer> first = rsrc.write(param(1));
+        final Observable<Integer> second = rsrc.write(param(2));
+        final Observable<Integer> third = rsrc.write(param(3));
+
+        // then:
+        assertEquals(Integer.valueOf(1), first.toBlocking().single());
+        assertEquals(Integer.valueOf(1), second.toBlocking().single());
+        assertEquals(Integer.valueOf(1), third.toBlocking().single());
+        verify(this.mockTwoRowInsert).setObject(1, 1);
+        verify(this.mockTwoRowInsert).setObject(2, 2);
+        verify(this.mockInsert).setObject(1, 3);
+        verify(this.mockInsert, never()).executeBatch();
+        AsyncResults.awaitShutdown(session);
+    }
+
+    private WritableResource<StatementParameters, Integer> writer(
+            final StatementTemplate template,
+            final Session session) {
+        return this.dataBus.resources(id).get().get(template, session);
+    }
+
+    private static StatementParameters param(final int value) {
+        return StatementParameters.builder().append(StatementParameter.ofValue(value)).build();
+    }
+
+}
@@ -0,0 +1,266 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import crud.core.TransactedSession;
+import crud.core.WritableResource;
+import crud.core.WritableResourceSet;
+import crud.implementer.AsyncResults;
+
+
+/**
+ * Tests {@link CachingReadableTable} against a mock {@link DataSource}.
+ */
+public class CachingReadableTableTest {
+
+    private static final StatementTemplate select = new StatementTemplate("SELECT NAME FROM PRICES");
+    private static final StatementTemplate otherSelect = new StatementTemplate("SELECT NAME FROM PRICES WHERE 1 = 1");
+    private static final String updateSql = "UPDATE PRICES SET NAME = 'x'";
+    private static final ReadableResourceSet.Id<StatementTemplate, RowSnapshot> readId = new ReadableResourceSet.Id<>(
+            "read",
+            StatementTemplate.class,
+            RowSnapshot.class);
+    private static final WritableResourceSet.Id<StatementTemplate, StatementParameters, Integer> writeId =
+            new WritableResourceSet.Id<>("write", StatementTemplate.class, StatementParameters.class, Integer.class);
+
+    private final DataSource mockDataSource = mock(DataSource.class);
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockSelect = mock(PreparedStatement.class);
+    private final PreparedStatement mockUpdate = mock(PreparedStatement.class);
+    private final ResultSet mockResults = mock(ResultSet.class);
+    private final ResultSetMetaData mockMetaData = mock(ResultSetMetaData.class);
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker fakeTicker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private JdbcDataBus dataBus;
+    private Session session;
+    private CachingReadableTable cachingTable;
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockDataSource.getConnection()).thenReturn(this.mockConnection);
+        when(this.mockConnection.prepareStatement(anyString())).thenReturn(this.mockUpdate);
+        when(this.mockConnection.prepareStatement(select.getSql())).thenReturn(this.mockSelect);
+        when(this.mockConnection.prepareStatement(otherSelect.getSql())).thenReturn(this.mockSelect);
+        when(this.mockUpdate.executeUpdate()).thenReturn(1);
+        when(this.mockSelect.executeQuery()).thenReturn(this.mockResults);
+        when(this.mockResults.getMetaData()).thenReturn(this.mockMetaData);
+        when(this.mockMetaData.getColumnCount()).thenReturn(1);
+        when(this.mockMetaData.getColumnLabel(1)).thenReturn("NAME");
+        when(this.mockMetaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(this.mockResults.next()).thenReturn(true, false, true, false, true, false);
+        when(this.mockResults.getString(1)).thenReturn("widget", "gadget");
+
+        this.dataBus = new JdbcDataBus(this.mockDataSource);
+        this.dataBus.start();
+        this.session = this.dataBus.startSession(true);
+        this.cachingTable = CachingReadableTable.builder(this.dataBus.resources(readId).get(), this.dataBus)
+                .tablesRead("prices")
+                .build();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AsyncResults.awaitShutdown(this.session);
+        AsyncResults.awaitShutdown(this.dataBus);
+    }
+
+    @Test
+    public void repeatedReadServedFromCache() throws Exception {
+        // given:
+        final ReadableResource<RowSnapshot> rsrc = this.cachingTable.get(select, this.session);
+
+        // when:
+        final String first = rsrc.read().toBlocking().single().getString(1);
+        final String second = rsrc.read().toBlocking().single().getString(1);
+
+        // then:
+        assertEquals("widget", first);
+        assertEquals("widget", second);
+        verify(this.mockSelect, times(1)).executeQuery();
+        assertEquals(1L, this.cachingTable.getStatistics().hitCount());
+    }
+
+    @Test
+    public void writeToReadTableInvalidates() throws Exception {
+        // when:
+        final String second = readAfterWrite("UPDATE app.\"Prices\" SET NAME = 'x'");
+
+        // then:
+        assertEquals("gadget", second);
+        verify(this.mockSelect, times(2)).executeQuery();
+    }
+
+    @Test
+    public void writeToOtherTableDoesNotInvalidate() throws Exception {
+        // when:
+        final String second = readAfterWrite("DELETE FROM ORDERS");
+
+        // then:
+        assertEquals("widget", second);
+        verify(this.mockSelect, times(1)).executeQuery();
+    }
+
+    @Test
+    public void resultExpiresAfterTimeToLive() throws Exception {
+        // given:
+        final CachingReadableTable table = CachingReadableTable.builder(
+                    this.dataBus.resources(readId).get(),
+                    this.dataBus)
+                .timeToLive(1L, TimeUnit.MINUTES)
+                .ticker(this.fakeTicker)
+                .build();
+        final ReadableResource<RowSnapshot> rsrc = table.get(select, this.session);
+        rsrc.read().toBlocking().single();
+
+        // when:
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(59L));
+        final String beforeExpiry = rsrc.read().toBlocking().single().getString(1);
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(2L));
+        final String afterExpiry = rsrc.read().toBlocking().single().getString(1);
+
+        // then:
+        assertEquals("widget", beforeExpiry);
+        assertEquals("gadget", afterExpiry);
+        verify(this.mockSelect, times(2)).executeQuery();
+        table.close();
+    }
+
+    @Test
+    public void leastRecentlyUsedResultEvicted() throws Exception {
+        // given:
+        final CachingReadableTable table = CachingReadableTable.builder(
+                    this.dataBus.resources(readId).get(),
+                    this.dataBus)
+                .maximumSize(1L)
+                .build();
+
+        // when:
+        table.get(select, this.session).read().toBlocking().single();
+        table.get(otherSelect, this.session).read().toBlocking().single();
+        table.get(select, this.session).read().toBlocking().single();
+
+        // then:
+        verify(this.mockSelect, times(3)).executeQuery();
+        assertEquals(1L, table.size());
+        assertEquals(2L, table.getStatistics().evictionCount());
+        table.close();
+    }
+
+    @Test
+    public void transactedWriteInvalidatesOnCommit() throws Exception {
+        // given:
+        final ReadableResource<RowSnapshot> reader = this.cachingTable.get(select, this.session);
+        reader.read().toBlocking().single();
+        final TransactedSession tx = this.dataBus.startTransactedSession();
+        this.dataBus.resources(writeId).get()
+                .get(new StatementTemplate(updateSql), tx)
+                .write(StatementParameters.none())
+                .toBlocking().single();
+
+        // when:
+        final long sizeBeforeCommit = this.cachingTable.size();
+        AsyncResults.awaitCompletion(tx.commit());
+
+        // then:
+        assertEquals(1L, sizeBeforeCommit);
+        assertEquals(0L, this.cachingTable.size());
+        assertEquals("gadget", reader.read().toBlocking().single().getString(1));
+        verify(this.mockSelect, times(2)).executeQuery();
+        AsyncResults.awaitShutdown(tx);
+    }
+
+    @Test
+    public void transactedWriteDiscardedOnRollback() throws Exception {
+        // given:
+        final ReadableResource<RowSnapshot> reader = this.cachingTable.get(select, this.session);
+        reader.read().toBlocking().single();
+        final TransactedSession tx = this.dataBus.startTransactedSession();
+        this.dataBus.resources(writeId).get()
+                .get(new StatementTemplate(updateSql), tx)
+                .write(StatementParameters.none())
+                .toBlocking().single();
+
+        // when:
+        AsyncResults.awaitCompletion(tx.rollback());
+
+        // then:
+        assertEquals(1L, this.cachingTable.size());
+        assertEquals("widget", reader.read().toBlocking().single().getString(1));
+        verify(this.mockSelect, times(1)).executeQuery();
+        AsyncResults.awaitShutdown(tx);
+    }
+
+    @Test
+    public void closedTableIgnoresWritesAndBypassesCache() throws Exception {
+        // given:
+        final ReadableResource<RowSnapshot> reader = this.cachingTable.get(select, this.session);
+        reader.read().toBlocking().single();
+
+        // when:
+        this.cachingTable.close();
+        this.cachingTable.get(select, this.session).read().toBlocking().single();
+
+        // then:
+        assertEquals(0L, this.cachingTable.size());
+        verify(this.mockSelect, times(2)).executeQuery();
+    }
+
+    private String readAfterWrite(final String updateSql) throws SQLException {
+        when(this.mockConnection.prepareStatement(updateSql)).thenReturn(this.mockUpdate);
+        when(this.mockUpdate.executeUpdate()).thenReturn(1);
+        final ReadableResource<RowSnapshot> reader = this.cachingTable.get(select, this.session);
+        final WritableResource<StatementParameters, Integer> writer = this.dataBus.resources(writeId).get()
+                .get(new StatementTemplate(updateSql), this.session);
+
+        reader.read().toBlocking().single();
+        writer.write(StatementParameters.none()).toBlocking().single();
+        return reader.read().toBlocking().single().getString(1);
+    }
+
+}
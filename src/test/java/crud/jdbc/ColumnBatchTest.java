@@ -0,0 +1,157 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+
+/**
+ * Tests {@link ColumnBatch} against a mock {@link ResultSet}.
+ */
+public class ColumnBatchTest {
+
+    private final ResultSet mockResults = mock(ResultSet.class);
+    private final ResultSetMetaData mockMetaData = mock(ResultSetMetaData.class);
+    private final TestSubscriber<ColumnBatch> subscriber = new TestSubscriber<>();
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockResults.getMetaData()).thenReturn(this.mockMetaData);
+        when(this.mockMetaData.getColumnCount()).thenReturn(2);
+        when(this.mockMetaData.getColumnLabel(1)).thenReturn("ID");
+        when(this.mockMetaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(this.mockMetaData.getColumnLabel(2)).thenReturn("COLOR");
+        when(this.mockMetaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+    }
+
+    @Test
+    public void rowsEmittedInBatchesOfConfiguredSize() throws SQLException {
+        // given:
+        final RowReader<ColumnBatch> reader = newReader(2);
+
+        // when:
+        readRow(reader, 1L, "red");
+        readRow(reader, 2L, "blue");
+        readRow(reader, 3L, "red");
+        reader.endOfResults(this.subscriber);
+
+        // then:
+        final List<ColumnBatch> batches = this.subscriber.getOnNextEvents();
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).getRowCount());
+        assertEquals(1, batches.get(1).getRowCount());
+        assertEquals(3L, batches.get(1).getLong(1, 0));
+        assertEquals("red", batches.get(1).getString(batches.get(1).findColumn("color"), 0));
+    }
+
+    @Test
+    public void repeatedStringsShareDictionaryEntry() throws SQLException {
+        // given:
+        final RowReader<ColumnBatch> reader = newReader(StatementTemplate.DEFAULT_BATCH_SIZE);
+
+        // when:
+        readRow(reader, 1L, "red");
+        readRow(reader, 2L, "blue");
+        readRow(reader, 3L, "red");
+        readRow(reader, 4L, null);
+        reader.endOfResults(this.subscriber);
+
+        // then:
+        final ColumnBatch batch = this.subscriber.getOnNextEvents().get(0);
+        assertEquals(Arrays.asList("red", "blue"), batch.getDictionary(2));
+        assertEquals(batch.getDictionaryCode(2, 0), batch.getDictionaryCode(2, 2));
+        assertEquals(-1, batch.getDictionaryCode(2, 3));
+        assertTrue(batch.isNull(2, 3));
+        assertNull(batch.getString(2, 3));
+        assertFalse(batch.isNull(1, 3));
+    }
+
+    @Test
+    public void valuesSurviveGrowthBeyondInitialCapacity() throws SQLException {
+        // given:
+        final int rowCount = 200;
+        final RowReader<ColumnBatch> reader = newReader(StatementTemplate.DEFAULT_BATCH_SIZE);
+
+        // when:
+        for (int i = 0; i < rowCount; ++i) {
+            readRow(reader, i, (i % 2 == 0) ? null : "odd");
+        }
+        reader.endOfResults(this.subscriber);
+
+        // then:
+        final ColumnBatch batch = this.subscriber.getOnNextEvents().get(0);
+        final long[] ids = new long[rowCount];
+        batch.copyLongs(1, ids, 0);
+        for (int i = 0; i < rowCount; ++i) {
+            assertEquals(i, ids[i]);
+            assertEquals(i % 2 == 0, batch.isNull(2, i));
+        }
+    }
+
+    @Test
+    public void emptyResultEmitsNoBatch() throws SQLException {
+        // given:
+        final RowReader<ColumnBatch> reader = newReader(2);
+
+        // when:
+        reader.endOfResults(this.subscriber);
+
+        // then:
+        assertTrue(this.subscriber.getOnNextEvents().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongVectorTypeThrows() throws SQLException {
+        // given:
+        final RowReader<ColumnBatch> reader = newReader(1);
+        readRow(reader, 1L, "red");
+        final ColumnBatch batch = this.subscriber.getOnNextEvents().get(0);
+
+        // when:
+        batch.getDouble(2, 0);
+    }
+
+    private RowReader<ColumnBatch> newReader(final int batchSize) throws SQLException {
+        return ColumnBatch.rowReaderFactory().newRowReader(
+                new StatementTemplate("SELECT *").withBatchSize(batchSize),
+                this.mockResults);
+    }
+
+    private void readRow(final RowReader<ColumnBatch> reader, final long id, final String color)
+            throws SQLException {
+        when(this.mockResults.getLong(1)).thenReturn(id);
+        when(this.mockResults.getString(2)).thenReturn(color);
+        reader.readRow(this.mockResults, this.subscriber);
+    }
+
+}
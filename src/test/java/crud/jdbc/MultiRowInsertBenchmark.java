@@ -0,0 +1,215 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import crud.core.Session;
+import crud.core.WritableResource;
+import crud.core.WritableResourceSet;
+import crud.implementer.AsyncResults;
+import rx.Observable;
+
+
+/**
+ * Compares the throughput of inserting rows one statement at a time, in
+ * JDBC batches, and in {@link StatementTemplate#withMultiRowInserts()
+ * multi-row INSERTs}, through a {@link JdbcDataBus}.
+ * <p/>
+ * Given a JDBC URL as its argument -- for example,
+ * {@code jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1}, with H2 on the class path
+ * -- it inserts into a table {@code BENCH}, which it creates and drops.
+ * Otherwise, it uses a stand-in driver, which models a driver that sends
+ * each row of a JDBC batch separately, by waiting for a simulated round
+ * trip for each statement executed, and for each row of each batch.
+ * <p/>
+ * This is a standalone application, not a unit test, because the numbers
+ * depend on the environment.
+ *
+ * @author Rick Warren
+ */
+public final class MultiRowInsertBenchmark {
+
+    private static final int ROWS = 20000;
+    private static final int BATCH_ROWS = 256;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final String createSql = "CREATE TABLE BENCH (ID INT, NAME VARCHAR(32))";
+    private static final String dropSql = "DROP TABLE BENCH";
+    private static final StatementTemplate insert = new StatementTemplate(
+            "INSERT INTO BENCH (ID, NAME) VALUES (?, ?)");
+    private static final WritableResourceSet.Id<StatementTemplate, StatementParameters, Integer> id =
+            new WritableResourceSet.Id<>("bench", StatementTemplate.class, StatementParameters.class, Integer.class);
+
+    private static final AtomicLong roundTrips = new AtomicLong();
+
+
+    public static void main(final String... args) throws Exception {
+        final DataSource dataSource = (args.length > 0) ? driverManagerDataSource(args[0]) : standInDataSource();
+        execute(dataSource, createSql);
+        final JdbcDataBus dataBus = new JdbcDataBus(dataSource);
+        dataBus.start();
+        try {
+            final StatementTemplate batched = insert.withWriteBatching(BATCH_ROWS, 10, TimeUnit.MILLISECONDS);
+            run("warm-up", dataBus, batched.withMultiRowInserts());
+            run("one per row", dataBus, insert);
+            run("JDBC batch", dataBus, batched);
+            run("multi-row insert", dataBus, batched.withMultiRowInserts());
+        } finally {
+            AsyncResults.awaitShutdown(dataBus);
+            execute(dataSource, dropSql);
+        }
+    }
+
+    private static void run(
+            final String name,
+            final JdbcDataBus dataBus,
+            final StatementTemplate template) throws Exception {
+        final Session session = dataBus.startSession(true);
+        final WritableResource<StatementParameters, Integer> rsrc = dataBus.resources(id).get().get(template, session);
+        roundTrips.set(0L);
+
+        final long startNanos = System.nanoTime();
+        final List<Observable<Integer>> writes = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; ++i) {
+            writes.add(rsrc.write(StatementParameters.builder()
+                    .append(StatementParameter.ofInteger(i))
+                    .append(StatementParameter.ofString("row " + i))
+                    .build()));
+        }
+        Observable.merge(writes).count().toBlocking().single();
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        AsyncResults.awaitShutdown(session);
+
+        System.out.printf(
+                "%-20s %10.0f rows/s %8d simulated round trips%n",
+                name,
+                ROWS / (elapsedNanos / 1e9),
+                roundTrips.get());
+    }
+
+    private static void execute(final DataSource dataSource, final String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static DataSource driverManagerDataSource(final String url) {
+        return proxy(DataSource.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws SQLException {
+                if ("getConnection".equals(method.getName())) {
+                    return DriverManager.getConnection(url);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * A {@link DataSource} whose statements do nothing but wait for a
+     * simulated round trip to the database.
+     */
+    private static DataSource standInDataSource() {
+        final InvocationHandler connection = new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("prepareStatement".equals(method.getName()) || "createStatement".equals(method.getName())) {
+                    return proxy(PreparedStatement.class, new StandInStatement());
+                }
+                return defaultValue(method.getReturnType());
+            }
+        };
+        return proxy(DataSource.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getConnection".equals(method.getName())) {
+                    return proxy(Connection.class, connection);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static final class StandInStatement implements InvocationHandler {
+        private int batchedRows = 0;
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+                case "addBatch":
+                    ++this.batchedRows;
+                    return null;
+                case "executeBatch":
+                    final int[] counts = new int[this.batchedRows];
+                    Arrays.fill(counts, 1);
+                    simulateRoundTrips(this.batchedRows);
+                    this.batchedRows = 0;
+                    return counts;
+                case "clearBatch":
+                    this.batchedRows = 0;
+                    return null;
+                case "executeUpdate":
+                    simulateRoundTrips(1);
+                    return 1;
+                case "execute":
+                    return false;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private static void simulateRoundTrips(final int count) {
+            roundTrips.addAndGet(count);
+            LockSupport.parkNanos(count * ROUND_TRIP_NANOS);
+        }
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else {
+            return null;
+        }
+    }
+
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private MultiRowInsertBenchmark() {
+        // prevent instantiation
+    }
+
+}
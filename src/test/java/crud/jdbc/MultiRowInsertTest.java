@@ -0,0 +1,60 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link MultiRowInsert}.
+ */
+public class MultiRowInsertTest {
+
+    @Test
+    public void rewritesSingleRowInsert() {
+        // given:
+        final MultiRowInsert insert = MultiRowInsert.parse("insert into T (A, B) values (?, ?)").get();
+
+        // when:
+        final String sql = insert.sqlForRows(3);
+
+        // then:
+        assertEquals(2, insert.getParametersPerRow());
+        assertEquals("insert into T (A, B) values (?, ?), (?, ?), (?, ?)", sql);
+    }
+
+    @Test
+    public void rejectsOtherStatements() {
+        assertFalse(MultiRowInsert.parse("INSERT INTO T (A) VALUES (?, 1)").isPresent());
+        assertFalse(MultiRowInsert.parse("INSERT INTO T (A) SELECT A FROM U").isPresent());
+        assertFalse(MultiRowInsert.parse("UPDATE T SET A = ?").isPresent());
+    }
+
+    @Test
+    public void rowCountsArePowersOfTwo() {
+        // given:
+        final MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO T VALUES (?)").get();
+
+        // then:
+        assertEquals(64, insert.rowsInNextStatement(100, 1000));
+        assertEquals(32, insert.rowsInNextStatement(100, 50));
+        assertEquals(1, insert.rowsInNextStatement(1, 1000));
+        assertEquals(1024, insert.rowsInNextStatement(5000, 5000));
+    }
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link ParameterBuffer}.
+ */
+public class ParameterBufferTest {
+
+    private final PreparedStatement mockStatement = mock(PreparedStatement.class);
+
+
+    @Test
+    public void primitivesBoundWithTypedSetters() throws SQLException {
+        // given:
+        final ParameterBuffer buffer = new ParameterBuffer()
+                .setInt(1, 42)
+                .setLong(2, 1L << 40)
+                .setDouble(3, 2.5)
+                .setBoolean(4, true)
+                .setString(5, "hello")
+                .setNull(6, StatementParameter.Type.VARCHAR);
+
+        // when:
+        buffer.substituteAll(this.mockStatement);
+
+        // then:
+        verify(this.mockStatement).setInt(1, 42);
+        verify(this.mockStatement).setLong(2, 1L << 40);
+        verify(this.mockStatement).setDouble(3, 2.5);
+        verify(this.mockStatement).setBoolean(4, true);
+        verify(this.mockStatement).setString(5, "hello");
+        verify(this.mockStatement).setNull(6, Types.VARCHAR);
+        verify(this.mockStatement, never()).setObject(anyInt(), any());
+        verify(this.mockStatement, never()).setObject(anyInt(), any(), anyInt());
+    }
+
+    @Test
+    public void parametersEqualBoxedEquivalents() {
+        // given:
+        final ParameterBuffer buffer = new ParameterBuffer().setInt(1, 42).setString(2, "hello");
+
+        // when:
+        final StatementParameters params = buffer.toParameters();
+
+        // then:
+        assertEquals(
+                StatementParameters.builder()
+                    .append(StatementParameter.ofInteger(Integer.valueOf(42)))
+                    .append(StatementParameter.ofString("hello"))
+                    .build(),
+                params);
+    }
+
+    @Test
+    public void nanParametersEqualRegardlessOfPayload() {
+        // given:
+        final double quietNaN = Double.longBitsToDouble(0x7ff8000000000001L);
+        final double otherNaN = Double.longBitsToDouble(0x7ff8000000000002L);
+
+        // when:
+        final StatementParameters first = new ParameterBuffer().setDouble(1, quietNaN).toParameters();
+        final StatementParameters second = new ParameterBuffer().setDouble(1, otherNaN).toParameters();
+
+        // then:
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(
+                StatementParameter.ofDouble(quietNaN).atIndex(1),
+                StatementParameter.ofDouble(otherNaN).atIndex(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unsetParameterRejected() throws SQLException {
+        // given:
+        final ParameterBuffer buffer = new ParameterBuffer().setInt(2, 42);
+
+        // when:
+        buffer.substituteAll(this.mockStatement);
+    }
+
+}
@@ -0,0 +1,100 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import crud.implementer.AsyncResults;
+
+
+/**
+ * Tests {@link ParameterizedReadableTable} against a mock {@link DataSource}.
+ */
+public class ParameterizedReadableTableTest {
+
+    private static final String selectSql = "SELECT * FROM T WHERE ID = ?";
+    private static final ReadableResourceSet.Id<String, ResultSetRow> id = new ReadableResourceSet.Id<>(
+            "parameterized",
+            String.class,
+            ResultSetRow.class);
+
+    private final DataSource mockDataSource = mock(DataSource.class);
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockStatement = mock(PreparedStatement.class);
+    private final ResultSet mockResults = mock(ResultSet.class);
+
+    private JdbcDataBus dataBus;
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockDataSource.getConnection()).thenReturn(this.mockConnection);
+        when(this.mockConnection.prepareStatement(selectSql)).thenReturn(this.mockStatement);
+        when(this.mockStatement.executeQuery()).thenReturn(this.mockResults);
+        when(this.mockResults.next()).thenReturn(true, false, true, false);
+
+        this.dataBus = new JdbcDataBus(this.mockDataSource);
+        this.dataBus.start();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AsyncResults.awaitShutdown(this.dataBus);
+    }
+
+    @Test
+    public void readsWithDifferentParametersShareStatement() throws Exception {
+        // given:
+        final Session session = this.dataBus.startSession(true);
+        final ParameterizedReadableResource<ResultSetRow> rsrc =
+                (ParameterizedReadableResource<ResultSetRow>) this.dataBus.resources(id).get().get(selectSql, session);
+
+        // when:
+        final int firstCount = rsrc.read(param(1)).count().toBlocking().single();
+        final int secondCount = rsrc.read(param(2)).count().toBlocking().single();
+        AsyncResults.awaitShutdown(session);
+
+        // then:
+        assertEquals(1, firstCount);
+        assertEquals(1, secondCount);
+        verify(this.mockConnection, times(1)).prepareStatement(selectSql);
+        verify(this.mockStatement).setObject(1, 1);
+        verify(this.mockStatement).setObject(1, 2);
+        verify(this.mockStatement, times(2)).executeQuery();
+        assertEquals(1L, this.dataBus.getStatementCacheStatistics().getHitCount());
+    }
+
+    private static StatementParameters param(final int value) {
+        return StatementParameters.builder().append(StatementParameter.ofValue(value)).build();
+    }
+
+}
@@ -0,0 +1,131 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import rx.Observer;
+
+
+/**
+ * Compares the number of bytes allocated per row read as a
+ * {@link ResultSetRow}, with and without
+ * {@link StatementTemplate#withReusedRows()}. Rows are read from a
+ * stand-in {@link ResultSet}, which itself allocates nothing, by the same
+ * {@link RowReader} that {@link QueryResource} uses, and are delivered to
+ * a consumer that only counts them.
+ * <p/>
+ * This is a standalone application, not a unit test, because the numbers
+ * depend on the JVM. It requires a HotSpot-derived JVM.
+ *
+ * @author Rick Warren
+ */
+public final class ResultSetRowAllocationBenchmark {
+
+    private static final int WARMUP_ROWS = 2000000;
+    private static final int MEASURED_ROWS = 10000000;
+
+    private static final StatementTemplate query = new StatementTemplate("SELECT * FROM T");
+
+
+    public static void main(final String... args) throws Exception {
+        run("row per row", query, WARMUP_ROWS);
+        run("reused row", query.withReusedRows(), WARMUP_ROWS);
+        final double before = run("row per row", query, MEASURED_ROWS);
+        final double after = run("reused row", query.withReusedRows(), MEASURED_ROWS);
+        System.out.printf("Reduction: %.1f%%%n", 100.0 * (before - after) / before);
+    }
+
+    private static double run(
+            final String name,
+            final StatementTemplate template,
+            final int rows) throws SQLException {
+        final ResultSet results = newResultSet(rows);
+        final CountingObserver counter = new CountingObserver();
+
+        final long bytesBefore = currentThreadAllocatedBytes();
+        final RowReader<ResultSetRow> reader = ResultSetRow.rowReaderFactory().newRowReader(template, results);
+        while (results.next()) {
+            reader.readRow(results, counter);
+        }
+        reader.endOfResults(counter);
+        final long bytesAfter = currentThreadAllocatedBytes();
+
+        if (counter.count != rows) {
+            throw new AssertionError("read " + counter.count + " rows, not " + rows);
+        }
+        final double bytesPerRow = (double) (bytesAfter - bytesBefore) / rows;
+        System.out.printf("%-20s %8.2f bytes/row%n", name, bytesPerRow);
+        return bytesPerRow;
+    }
+
+    /**
+     * A {@link ResultSet} with the given number of rows, and no columns.
+     * {@link ResultSet#next()} takes no arguments, and returns a cached
+     * {@link Boolean}, so it doesn't allocate, even through a proxy.
+     */
+    private static ResultSet newResultSet(final int rows) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                new InvocationHandler() {
+                    private int remaining = rows;
+
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if ("next".equals(method.getName())) {
+                            return (this.remaining-- > 0) ? Boolean.TRUE : Boolean.FALSE;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private ResultSetRowAllocationBenchmark() {
+        // prevent instantiation
+    }
+
+
+    private static final class CountingObserver implements Observer<ResultSetRow> {
+        public int count = 0;
+
+        @Override
+        public void onNext(final ResultSetRow row) {
+            ++this.count;
+        }
+
+        @Override
+        public void onCompleted() {
+            // nothing to do
+        }
+
+        @Override
+        public void onError(final Throwable ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+
+/**
+ * Tests {@link ResultSetRow} against a mock {@link ResultSet}.
+ */
+public class ResultSetRowTest {
+
+    private static final StatementTemplate query = new StatementTemplate("SELECT ID, NAME FROM T");
+
+    private final ResultSet mockResults = mock(ResultSet.class);
+    private final ResultSetMetaData mockMetaData = mock(ResultSetMetaData.class);
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockResults.getMetaData()).thenReturn(this.mockMetaData);
+        when(this.mockMetaData.getColumnCount()).thenReturn(2);
+        when(this.mockMetaData.getColumnLabel(1)).thenReturn("ID");
+        when(this.mockMetaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(this.mockMetaData.getColumnLabel(2)).thenReturn("NAME");
+        when(this.mockMetaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(this.mockResults.getString(2)).thenReturn("widget", "gadget");
+    }
+
+    @Test
+    public void labelsResolvedOncePerQuery() throws SQLException {
+        // given:
+        final List<ResultSetRow> rows = readRows(3);
+
+        // when:
+        final String first = rows.get(0).getString("NAME");
+        final String second = rows.get(1).getString("name");
+        rows.get(2).getInt("ID");
+
+        // then:
+        assertEquals("widget", first);
+        assertEquals("gadget", second);
+        verify(this.mockResults, times(1)).getMetaData();
+        verify(this.mockResults, never()).findColumn("NAME");
+        verify(this.mockResults).getInt(1);
+    }
+
+    @Test
+    public void unknownLabelDeferredToDriver() throws SQLException {
+        // given:
+        final ResultSetRow row = readRows(1).get(0);
+        final SQLException driverException = new SQLException("no such column");
+        when(this.mockResults.findColumn("PRICE")).thenThrow(driverException);
+
+        // when:
+        try {
+            row.getDouble("PRICE");
+        } catch (final SQLException ex) {
+            // then:
+            assertEquals(driverException, ex);
+            return;
+        }
+        throw new AssertionError("expected SQLException");
+    }
+
+    @Test
+    public void columnReadsByIndex() throws SQLException {
+        // given:
+        final List<ResultSetRow> rows = readRows(2);
+
+        // when:
+        final ResultSetRow.Column name = rows.get(0).column("name");
+        final String first = name.getString(rows.get(0));
+        final String second = name.getString(rows.get(1));
+
+        // then:
+        assertEquals(2, name.getIndex());
+        assertEquals("widget", first);
+        assertEquals("gadget", second);
+        verify(this.mockResults, never()).getString("NAME");
+    }
+
+    @Test
+    public void reusedRowsAreOneObject() throws SQLException {
+        // when:
+        final List<ResultSetRow> rows = readRows(query.withReusedRows(), 2);
+
+        // then:
+        assertSame(rows.get(0), rows.get(1));
+        assertEquals("widget", rows.get(1).getString("NAME"));
+    }
+
+    private List<ResultSetRow> readRows(final int count) throws SQLException {
+        return readRows(query, count);
+    }
+
+    private List<ResultSetRow> readRows(final StatementTemplate template, final int count) throws SQLException {
+        final RowReader<ResultSetRow> reader = ResultSetRow.rowReaderFactory().newRowReader(
+                template,
+                this.mockResults);
+        final TestSubscriber<ResultSetRow> sub = new TestSubscriber<>();
+        for (int i = 0; i < count; ++i) {
+            reader.readRow(this.mockResults, sub);
+        }
+        return sub.getOnNextEvents();
+    }
+
+}
@@ -0,0 +1,158 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+
+/**
+ * Tests {@link RowSnapshot} against a mock {@link ResultSet}.
+ */
+public class RowSnapshotTest {
+
+    private final ResultSet mockResults = mock(ResultSet.class);
+    private final ResultSetMetaData mockMetaData = mock(ResultSetMetaData.class);
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockResults.getMetaData()).thenReturn(this.mockMetaData);
+        when(this.mockMetaData.getColumnCount()).thenReturn(4);
+        givenColumn(1, "ID", Types.INTEGER);
+        givenColumn(2, "PRICE", Types.DOUBLE);
+        givenColumn(3, "NAME", Types.VARCHAR);
+        givenColumn(4, "DATA", Types.BLOB);
+    }
+
+    @Test
+    public void snapshotKeepsValuesAfterCursorMoves() throws SQLException {
+        // given:
+        final RowReader<RowSnapshot> reader = newReader();
+        givenRow(42, 9.5, "widget", new byte[] { 1, 2 });
+
+        // when:
+        final RowSnapshot first = readRow(reader);
+        givenRow(43, 1.0, "gadget", new byte[] { 3 });
+        final RowSnapshot second = readRow(reader);
+
+        // then:
+        assertEquals(42, first.getInt(1));
+        assertEquals(9.5, first.getDouble("PRICE"), 0.0);
+        assertEquals("widget", first.getString("name"));
+        assertArrayEquals(new byte[] { 1, 2 }, first.getBytes("DATA"));
+        assertEquals(Integer.valueOf(42), first.getObject("ID"));
+        assertEquals("43", second.getString("ID"));
+    }
+
+    @Test
+    public void nullPrimitiveReportedAsZeroAndNull() throws SQLException {
+        // given:
+        final RowReader<RowSnapshot> reader = newReader();
+        givenRow(0, 2.0, null, null);
+        when(this.mockResults.wasNull()).thenReturn(true, false);
+
+        // when:
+        final RowSnapshot row = readRow(reader);
+
+        // then:
+        assertTrue(row.isNull("ID"));
+        assertEquals(0, row.getInt("ID"));
+        assertNull(row.getObject("ID"));
+        assertFalse(row.isNull("PRICE"));
+        assertTrue(row.isNull("NAME"));
+    }
+
+    @Test
+    public void snapshotsOfEqualRowsAreEqual() throws SQLException {
+        // given:
+        final RowReader<RowSnapshot> reader = newReader();
+        givenRow(7, 3.25, "same", new byte[] { 9 });
+
+        // when:
+        final RowSnapshot first = readRow(reader);
+        final RowSnapshot second = readRow(reader);
+
+        // then:
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void snapshotsOfNaNRowsAreEqual() throws SQLException {
+        // given:
+        final RowReader<RowSnapshot> reader = newReader();
+        givenRow(7, Double.longBitsToDouble(0x7ff8000000000001L), "same", new byte[] { 9 });
+        final RowSnapshot first = readRow(reader);
+        givenRow(7, Double.longBitsToDouble(0x7ff8000000000002L), "same", new byte[] { 9 });
+
+        // when:
+        final RowSnapshot second = readRow(reader);
+
+        // then:
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test(expected = SQLException.class)
+    public void unknownLabelThrows() throws SQLException {
+        // given:
+        final RowReader<RowSnapshot> reader = newReader();
+        givenRow(1, 1.0, "x", null);
+        final RowSnapshot row = readRow(reader);
+
+        // when:
+        row.getString("NO_SUCH_COLUMN");
+    }
+
+    private RowReader<RowSnapshot> newReader() throws SQLException {
+        return RowSnapshot.rowReaderFactory().newRowReader(new StatementTemplate("SELECT *"), this.mockResults);
+    }
+
+    private RowSnapshot readRow(final RowReader<RowSnapshot> reader) throws SQLException {
+        final TestSubscriber<RowSnapshot> sub = new TestSubscriber<>();
+        reader.readRow(this.mockResults, sub);
+        return sub.getOnNextEvents().get(0);
+    }
+
+    private void givenColumn(final int index, final String label, final int sqlType) throws SQLException {
+        when(this.mockMetaData.getColumnLabel(index)).thenReturn(label);
+        when(this.mockMetaData.getColumnType(index)).thenReturn(sqlType);
+    }
+
+    private void givenRow(final long id, final double price, final String name, final byte[] data)
+            throws SQLException {
+        when(this.mockResults.getLong(1)).thenReturn(id);
+        when(this.mockResults.getDouble(2)).thenReturn(price);
+        when(this.mockResults.getString(3)).thenReturn(name);
+        when(this.mockResults.getBytes(4)).thenReturn(data);
+    }
+
+}
@@ -0,0 +1,134 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests {@link StatementCache} against a mock {@link Connection}.
+ */
+public class StatementCacheTest {
+
+    private static final String selectSql = "SELECT * FROM T WHERE ID = ?";
+    private static final String updateSql = "UPDATE T SET X = 1 WHERE ID = ?";
+
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockSelect1 = mock(PreparedStatement.class);
+    private final PreparedStatement mockSelect2 = mock(PreparedStatement.class);
+    private final PreparedStatement mockUpdate = mock(PreparedStatement.class);
+    private final StatementCacheStatistics statistics = new StatementCacheStatistics();
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockConnection.prepareStatement(selectSql)).thenReturn(this.mockSelect1, this.mockSelect2);
+        when(this.mockConnection.prepareStatement(updateSql)).thenReturn(this.mockUpdate);
+    }
+
+    @Test
+    public void templatesWithSameSqlShareStatement() throws SQLException {
+        // given:
+        final StatementCache cache = new StatementCache(this.mockConnection, 4, this.statistics);
+        final StatementTemplate first = new StatementTemplate(selectSql, param(1));
+        final StatementTemplate second = new StatementTemplate(selectSql, param(2));
+
+        // when:
+        final PreparedStatement firstStmt = cache.borrow(first);
+        cache.release(first, firstStmt);
+        final PreparedStatement secondStmt = cache.borrow(second);
+
+        // then:
+        assertSame(firstStmt, secondStmt);
+        verify(this.mockConnection, times(1)).prepareStatement(selectSql);
+        verify(secondStmt).setObject(1, 2);
+        assertEquals(1L, this.statistics.getHitCount());
+        assertEquals(1L, this.statistics.getMissCount());
+    }
+
+    @Test
+    public void statementBorrowedTwiceIsPreparedTwice() throws SQLException {
+        // given:
+        final StatementCache cache = new StatementCache(this.mockConnection, 4, this.statistics);
+        final StatementTemplate template = new StatementTemplate(selectSql, param(1));
+
+        // when:
+        final PreparedStatement firstStmt = cache.borrow(template);
+        final PreparedStatement secondStmt = cache.borrow(template);
+        cache.release(template, firstStmt);
+        cache.release(template, secondStmt);
+
+        // then:
+        assertNotSame(firstStmt, secondStmt);
+        assertEquals(1, cache.size());
+        verify(firstStmt, never()).close();
+        verify(secondStmt).close();
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementEvicted() throws SQLException {
+        // given:
+        final StatementCache cache = new StatementCache(this.mockConnection, 1, this.statistics);
+        final StatementTemplate select = new StatementTemplate(selectSql, param(1));
+        final StatementTemplate update = new StatementTemplate(updateSql, param(1));
+
+        // when:
+        final PreparedStatement selectStmt = cache.borrow(select);
+        cache.release(select, selectStmt);
+        final PreparedStatement updateStmt = cache.borrow(update);
+        cache.release(update, updateStmt);
+
+        // then:
+        verify(selectStmt).close();
+        verify(updateStmt, never()).close();
+        assertEquals(1L, this.statistics.getEvictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void closeClosesIdleStatements() throws SQLException {
+        // given:
+        final StatementCache cache = new StatementCache(this.mockConnection, 4, this.statistics);
+        final StatementTemplate template = new StatementTemplate(selectSql, param(1));
+        final PreparedStatement stmt = cache.borrow(template);
+        cache.release(template, stmt);
+
+        // when:
+        cache.close();
+
+        // then:
+        verify(stmt).close();
+        assertEquals(0, cache.size());
+    }
+
+    private static StatementParameters param(final int value) {
+        return StatementParameters.builder().append(StatementParameter.ofValue(value)).build();
+    }
+
+}
@@ -0,0 +1,80 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link StatementCanceller}.
+ */
+public class StatementCancellerTest {
+
+    private final PreparedStatement mockStatement = mock(PreparedStatement.class);
+    private final StatementCanceller canceller = new StatementCanceller();
+
+
+    @Test
+    public void uncancelledStatementReusable() throws SQLException {
+        // given:
+        this.canceller.startExecution(this.mockStatement);
+
+        // when:
+        final boolean reusable = this.canceller.endExecution();
+
+        // then:
+        assertTrue(reusable);
+        verify(this.mockStatement, never()).cancel();
+    }
+
+    @Test
+    public void cancelledStatementNotReusable() throws SQLException {
+        // given:
+        this.canceller.startExecution(this.mockStatement);
+        this.canceller.cancel();
+        this.canceller.cancel();
+
+        // when:
+        final boolean reusable = this.canceller.endExecution();
+
+        // then:
+        assertFalse(reusable);
+        verify(this.mockStatement, times(1)).cancel();
+    }
+
+    @Test
+    public void cancelAfterEndDoesNotTouchStatement() throws SQLException {
+        // given:
+        this.canceller.startExecution(this.mockStatement);
+        this.canceller.endExecution();
+
+        // when:
+        this.canceller.cancel();
+
+        // then:
+        verify(this.mockStatement, never()).cancel();
+    }
+
+}
@@ -0,0 +1,103 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests how {@link StatementTemplate} prepares its statements.
+ */
+public class StatementTemplateTest {
+
+    private static final String sql = "SELECT * FROM T";
+
+    private final Connection mockConnection = mock(Connection.class);
+    private final PreparedStatement mockStatement = mock(PreparedStatement.class);
+
+
+    @Before
+    public void setup() throws SQLException {
+        when(this.mockConnection.prepareStatement(sql)).thenReturn(this.mockStatement);
+        when(this.mockConnection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY,
+                ResultSet.CLOSE_CURSORS_AT_COMMIT)).thenReturn(this.mockStatement);
+    }
+
+    @Test
+    public void defaultTemplateLeavesDriverDefaults() throws SQLException {
+        // given:
+        final StatementTemplate template = new StatementTemplate(sql);
+
+        // when:
+        template.prepareStatement(this.mockConnection);
+
+        // then:
+        verify(this.mockConnection).prepareStatement(sql);
+        verify(this.mockStatement, never()).setFetchSize(anyInt());
+        verify(this.mockStatement, never()).setMaxRows(anyInt());
+    }
+
+    @Test
+    public void cursorOptionsAppliedToStatement() throws SQLException {
+        // given:
+        final StatementTemplate template = new StatementTemplate(sql)
+                .withFetchSize(500)
+                .withHoldability(ResultSet.CLOSE_CURSORS_AT_COMMIT)
+                .withMaxRows(10000);
+
+        // when:
+        template.prepareStatement(this.mockConnection);
+
+        // then:
+        verify(this.mockConnection).prepareStatement(
+                sql,
+                ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY,
+                ResultSet.CLOSE_CURSORS_AT_COMMIT);
+        verify(this.mockStatement).setFetchSize(500);
+        verify(this.mockStatement).setMaxRows(10000);
+    }
+
+    @Test
+    public void cursorOptionsDistinguishTemplates() {
+        // given:
+        final StatementTemplate template = new StatementTemplate(sql);
+
+        // then:
+        assertFalse(template.equals(template.withFetchSize(100)));
+        assertEquals(template.withFetchSize(100), template.withFetchSize(100));
+        assertEquals(template.withFetchSize(100).hashCode(), template.withFetchSize(100).hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeFetchSizeRejected() {
+        new StatementTemplate(sql).withFetchSize(-1);
+    }
+
+}
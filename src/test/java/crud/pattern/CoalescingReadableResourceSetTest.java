@@ -0,0 +1,98 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import crud.core.ReadableResource;
+import crud.core.ReadableResourceSet;
+import crud.core.Session;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+
+public class CoalescingReadableResourceSetTest {
+
+    private final ReadableResourceSet<String, Object> mockResourceSet = mock(ReadableResourceSet.class);
+    private final ReadableResource<Object> mockResource = mock(ReadableResource.class);
+    private final Session mockSession1 = mock(Session.class);
+    private final Session mockSession2 = mock(Session.class);
+    private final PublishSubject<Object> firstExecution = PublishSubject.create();
+    private final PublishSubject<Object> secondExecution = PublishSubject.create();
+
+    private final CoalescingReadableResourceSet<String, Object> coalescing =
+            new CoalescingReadableResourceSet<>(this.mockResourceSet);
+
+
+    @Before
+    public void setup() {
+        when(this.mockResourceSet.get("key", this.mockSession1)).thenReturn(this.mockResource);
+        when(this.mockResourceSet.get("key", this.mockSession2)).thenReturn(this.mockResource);
+        when(this.mockResource.read()).thenReturn(this.firstExecution, this.secondExecution);
+    }
+
+    @Test
+    public void concurrentReadsShareExecution() {
+        // given:
+        final TestSubscriber<Object> first = new TestSubscriber<>();
+        final TestSubscriber<Object> second = new TestSubscriber<>();
+
+        // when:
+        this.coalescing.get("key", this.mockSession1).read().subscribe(first);
+        this.firstExecution.onNext("Hello");
+        this.coalescing.get("key", this.mockSession2).read().subscribe(second);
+        this.firstExecution.onNext("World");
+        this.firstExecution.onCompleted();
+
+        // then:
+        first.assertReceivedOnNext(Arrays.<Object>asList("Hello", "World"));
+        second.assertReceivedOnNext(Arrays.<Object>asList("Hello", "World"));
+        second.assertTerminalEvent();
+        verify(this.mockResource, times(1)).read();
+        assertEquals(1L, this.coalescing.getExecutionCount());
+        assertEquals(1L, this.coalescing.getCoalescedReadCount());
+    }
+
+    @Test
+    public void readAfterCompletionExecutesAgain() {
+        // given:
+        final ReadableResource<Object> rsrc = this.coalescing.get("key", this.mockSession1);
+        final TestSubscriber<Object> first = new TestSubscriber<>();
+        final TestSubscriber<Object> second = new TestSubscriber<>();
+        rsrc.read().subscribe(first);
+        this.firstExecution.onNext("Hello");
+        this.firstExecution.onCompleted();
+
+        // when:
+        rsrc.read().subscribe(second);
+        this.secondExecution.onNext("Goodbye");
+        this.secondExecution.onCompleted();
+
+        // then:
+        second.assertReceivedOnNext(Arrays.<Object>asList("Goodbye"));
+        assertEquals(2L, this.coalescing.getExecutionCount());
+        assertEquals(0L, this.coalescing.getCoalescedReadCount());
+    }
+
+}
@@ -0,0 +1,180 @@
+/* Copyright 2015 Rick Warren
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package crud.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import crud.core.WritableResource;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+
+public class CoalescingWritableResourceTest {
+
+    /**
+     * The key of each value is its first character.
+     */
+    private static final Func1<String, Character> firstChar = new Func1<String, Character>() {
+        @Override
+        public Character call(final String value) {
+            return value.charAt(0);
+        }
+    };
+
+    private final WritableResource<String, Integer> mockResource = mock(WritableResource.class);
+    private final TestScheduler scheduler = new TestScheduler();
+
+    private final CoalescingWritableResource<Character, String, Integer> coalescing =
+            new CoalescingWritableResource<>(this.mockResource, firstChar, 10, TimeUnit.MILLISECONDS, this.scheduler);
+
+
+    @Before
+    public void setup() {
+        when(this.mockResource.write("a2")).thenReturn(Observable.just(2));
+        when(this.mockResource.write("a3")).thenReturn(Observable.just(3));
+        when(this.mockResource.write("b1")).thenReturn(Observable.just(1));
+    }
+
+    @Test
+    public void lastWriteOfEachKeyWins() {
+        // given:
+        final Observable<Integer> first = this.coalescing.write("a1");
+        this.coalescing.write("b1");
+        this.coalescing.write("a2");
+
+        // when:
+        this.scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        // then:
+        verify(this.mockResource, never()).write("a1");
+        verify(this.mockResource).write("a2");
+        verify(this.mockResource).write("b1");
+        assertEquals(Integer.valueOf(2), first.toBlocking().single());
+        assertEquals(2L, this.coalescing.getWriteCount());
+        assertEquals(1L, this.coalescing.getCoalescedWriteCount());
+    }
+
+    @Test
+    public void earlierTimerDoesNotCloseLaterWindow() {
+        // given:
+        this.coalescing.write("a2");
+        this.coalescing.flush();
+        this.scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        this.coalescing.write("a3");
+
+        // when:
+        this.scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+
+        // then:
+        verify(this.mockResource).write("a2");
+        verify(this.mockResource, never()).write("a3");
+
+        // when:
+        this.scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+
+        // then:
+        verify(this.mockResource).write("a3");
+        assertEquals(0L, this.coalescing.getCoalescedWriteCount());
+    }
+
+    @Test
+    public void laterWindowDoesNotOvertakeEarlierOne() throws Exception {
+        // given:
+        final BlockingResource blocking = new BlockingResource("a1");
+        final CoalescingWritableResource<Character, String, Integer> realTime = new CoalescingWritableResource<>(
+                blocking, firstChar, 0, TimeUnit.MILLISECONDS, Schedulers.newThread());
+        realTime.write("a1");
+        assertTrue(blocking.blocked.await(1, TimeUnit.MINUTES));    // timer flush is writing a1
+        realTime.write("a2");
+
+        // when:
+        final Thread flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                realTime.flush();
+            }
+        });
+        flusher.start();
+        Thread.sleep(50);
+
+        // then:
+        assertEquals(Arrays.asList("a1"), blocking.getWritten());
+
+        // when:
+        blocking.release.countDown();
+        flusher.join(TimeUnit.MINUTES.toMillis(1));
+
+        // then:
+        assertEquals(Arrays.asList("a1", "a2"), blocking.getWritten());
+    }
+
+
+    /**
+     * Records the values written to it, and blocks writes of a given value
+     * until released.
+     */
+    private static final class BlockingResource implements WritableResource<String, Integer> {
+        public final CountDownLatch blocked = new CountDownLatch(1);
+        public final CountDownLatch release = new CountDownLatch(1);
+        private final String blockedValue;
+        private final List<String> written = new ArrayList<>();
+
+        public BlockingResource(final String blockedValue) {
+            this.blockedValue = blockedValue;
+        }
+
+        @Override
+        public Observable<Integer> write(final String value) {
+            synchronized (this) {
+                this.written.add(value);
+            }
+            if (this.blockedValue.equals(value)) {
+                this.blocked.countDown();
+                try {
+                    this.release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Observable.just(1);
+        }
+
+        @Override
+        public Observable<Void> shutdown() {
+            return Observable.empty();
+        }
+
+        public synchronized List<String> getWritten() {
+            return new ArrayList<>(this.written);
+        }
+    }
+
+}